@@ -0,0 +1,189 @@
+package ma.formation.jdbc.application.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import ma.formation.jdbc.application.model.*;
+import ma.formation.jdbc.application.service.AdminRecipientRegistry;
+import ma.formation.jdbc.application.service.AvailabilityIndex;
+import ma.formation.jdbc.application.service.MissionFormDataService;
+import ma.formation.jdbc.application.service.NotificationCountCache;
+import ma.formation.jdbc.application.service.NotificationPushService;
+import ma.formation.jdbc.application.service.RecipientVersionService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hibernate listener called once an entity insert, update or delete has committed. It keeps the
+ * caches and in-memory indexes derived from those entities in step with the database without touching
+ * every service that writes them, and pushes committed notifications to the clients' event streams.
+ * Bulk JPQL updates bypass it and must update them explicitly.
+ */
+@Component
+public class EntityWriteListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    // Entities the cached create-mission form lists are loaded from
+    private static final Set<Class<?>> FORM_DATA_ENTITIES =
+            Set.of(Chauffeur.class, Vehicule.class, Employe.class, User.class);
+
+    // Entities the admin dashboard totals are counted from (mission counts move with the mission counters)
+    private static final Set<Class<?>> ADMIN_STATS_ENTITIES = Set.of(Chauffeur.class, Vehicule.class, Employe.class);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MissionFormDataService missionFormDataService;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private NotificationPushService notificationPushService;
+
+    @Autowired
+    private NotificationCountCache notificationCountCache;
+
+    @Autowired
+    private RecipientVersionService recipientVersionService;
+
+    @Autowired
+    private AdminRecipientRegistry adminRecipientRegistry;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Notification notification) {
+            notificationCountCache.notificationCreee(notification);
+            recipientVersionService.changed(NotificationPushService.destinataires(notification));
+            notificationPushService.notificationCreated(notification);
+            return;
+        }
+        written(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Notification notification) {
+            notificationUpdated(notification, event);
+            recipientVersionService.changed(NotificationPushService.destinataires(notification));
+            if (fusionnee(event)) {
+                // A later event was merged into it (see NotificationOutboxService): streams show it again
+                notificationPushService.notificationCreated(notification);
+            } else {
+                notificationPushService.notificationChanged(notification);
+            }
+            return;
+        }
+        written(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (FORM_DATA_ENTITIES.contains(entity.getClass())) {
+            missionFormDataService.invalidate();
+        }
+        if (ADMIN_STATS_ENTITIES.contains(entity.getClass())) {
+            recipientVersionService.changed(NotificationPushService.Destinataire.ADMIN);
+        }
+        if (entity instanceof Admin || entity instanceof User user && user.getRole() == UserRole.ADMIN) {
+            adminRecipientRegistry.invalidate();
+        }
+        if (entity instanceof Mission mission) {
+            availabilityIndex.missionDeleted(mission.getId());
+        } else if (entity instanceof Vehicule vehicule) {
+            availabilityIndex.vehiculeDeleted(vehicule.getId());
+        } else if (entity instanceof Chauffeur chauffeur) {
+            availabilityIndex.chauffeurDeleted(chauffeur.getId());
+        } else if (entity instanceof Indisponibilite indisponibilite) {
+            availabilityIndex.congeDeleted(indisponibilite.getId());
+        } else if (entity instanceof Notification notification) {
+            notificationCountCache.notificationSupprimee(notification);
+            recipientVersionService.changed(NotificationPushService.destinataires(notification));
+            notificationPushService.notificationChanged(notification);
+        }
+    }
+
+    // Read state before the update, from the loaded state: the lue flag or a read cursor covering the row
+    private void notificationUpdated(Notification notification, PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            notificationCountCache.invalider(notification);
+            return;
+        }
+        List<String> properties = Arrays.asList(event.getPersister().getPropertyNames());
+        Long curseur = (Long) oldState[properties.indexOf("curseurLecture")];
+        boolean etaitLue = (Boolean) oldState[properties.indexOf("lue")]
+                || (curseur != null && notification.getId() <= curseur);
+        notificationCountCache.notificationModifiee(notification, etaitLue);
+    }
+
+    // Only a merge moves dateEnvoi
+    private boolean fusionnee(PostUpdateEvent event) {
+        int[] dirty = event.getDirtyProperties();
+        if (dirty == null) {
+            return false;
+        }
+        int dateEnvoi = Arrays.asList(event.getPersister().getPropertyNames()).indexOf("dateEnvoi");
+        return Arrays.stream(dirty).anyMatch(index -> index == dateEnvoi);
+    }
+
+    private void written(Object entity) {
+        if (FORM_DATA_ENTITIES.contains(entity.getClass())) {
+            missionFormDataService.invalidate();
+        }
+        if (ADMIN_STATS_ENTITIES.contains(entity.getClass())) {
+            recipientVersionService.changed(NotificationPushService.Destinataire.ADMIN);
+        }
+        if (entity instanceof Admin || entity instanceof User user && user.getRole() == UserRole.ADMIN) {
+            adminRecipientRegistry.invalidate();
+        }
+        if (entity instanceof Mission mission) {
+            availabilityIndex.missionWritten(mission.getId(), mission.getEtat(),
+                    mission.getChauffeur() != null ? mission.getChauffeur().getId() : null,
+                    mission.getVehicule() != null ? mission.getVehicule().getId() : null, mission.getDateHeure());
+        } else if (entity instanceof Vehicule vehicule) {
+            availabilityIndex.vehiculeWritten(vehicule.getId(), vehicule.isDisponible());
+        } else if (entity instanceof Chauffeur chauffeur) {
+            availabilityIndex.chauffeurWritten(chauffeur.getId(), chauffeur.isActif());
+        } else if (entity instanceof Indisponibilite indisponibilite) {
+            availabilityIndex.congeWritten(indisponibilite.getId(),
+                    indisponibilite.getChauffeur() != null ? indisponibilite.getChauffeur().getId() : null,
+                    indisponibilite.isAcceptee(), indisponibilite.getDateDebut(), indisponibilite.getDateFin());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return true;
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+}
@@ -0,0 +1,62 @@
+package ma.formation.jdbc.application.config;
+
+import ma.formation.jdbc.application.model.IdGenerators;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the table id generators past the ids already in use before the web server accepts requests.
+ * Missions and notifications used IDENTITY columns before; without this the generator rows would
+ * start at 1 and collide with existing rows. Values are only ever raised, so restarts and concurrent
+ * instances are safe.
+ */
+@Component
+public class IdGeneratorInitializer implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorInitializer.class);
+
+    // Generator segment -> table whose ids it hands out
+    private static final Map<String, String> SEGMENTS = Map.of(
+            "missions", "missions",
+            "notifications", "notifications");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdGeneratorInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        SEGMENTS.forEach(this::initialize);
+    }
+
+    private void initialize(String segment, String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        // A whole block above the highest id, whichever end of the block the optimizer starts from
+        long floor = maxId + IdGenerators.ALLOCATION_SIZE + 1;
+
+        int updated = jdbcTemplate.update(
+                "UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN + " = ? " +
+                "WHERE " + IdGenerators.SEGMENT_COLUMN + " = ? AND " + IdGenerators.VALUE_COLUMN + " < ?",
+                floor, segment, floor);
+        if (updated == 0) {
+            Integer rows = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM " + IdGenerators.TABLE + " WHERE " + IdGenerators.SEGMENT_COLUMN + " = ?",
+                    Integer.class, segment);
+            if (rows == null || rows == 0) {
+                jdbcTemplate.update(
+                        "INSERT INTO " + IdGenerators.TABLE + " (" + IdGenerators.SEGMENT_COLUMN + ", " + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)",
+                        segment, floor);
+                updated = 1;
+            }
+        }
+        if (updated > 0) {
+            log.info("Id generator '{}' moved to {} (max {}.id = {})", segment, floor, table, maxId);
+        }
+    }
+}
@@ -35,6 +35,7 @@ public class SecurityConfig {
                                 new AntPathRequestMatcher("/api/admin/create-employe"),
                                 new AntPathRequestMatcher("/api/admin/create-vehicule"),
                                 new AntPathRequestMatcher("/api/admin/create-mission"),
+                                new AntPathRequestMatcher("/api/admin/create-missions"),
                                 new AntPathRequestMatcher("/api/admin/mission-form-data"),
                                 new AntPathRequestMatcher("/api/admin/dashboard/stats"),
                                 new AntPathRequestMatcher("/api/admin/missions/count"),
@@ -43,12 +44,6 @@ public class SecurityConfig {
                                 new AntPathRequestMatcher("/api/admin/demandes-conge"),
                                 new AntPathRequestMatcher("/api/admin/demandes-conge/*/accepter"),
                                 new AntPathRequestMatcher("/api/admin/demandes-conge/*/refuser"),
-                                new AntPathRequestMatcher("/api/admin/notifications"),
-                                new AntPathRequestMatcher("/api/admin/notifications/*"),
-                                new AntPathRequestMatcher("/api/admin/notifications/unread-count"),
-                                new AntPathRequestMatcher("/api/admin/notifications/mark-all-read"),
-                                new AntPathRequestMatcher("/api/admin/notifications/*/mark-read"),
-
                                 new AntPathRequestMatcher("/api/admin/chauffeurs"),
                                 new AntPathRequestMatcher("/api/admin/chauffeurs/*"),
                                 new AntPathRequestMatcher("/api/admin/chauffeurs/count"),
@@ -72,12 +67,16 @@ public class SecurityConfig {
                                 new AntPathRequestMatcher("/api/employes/*/dashboard/stats"),
                                 new AntPathRequestMatcher("/api/employes/*/notifications"),
                                 new AntPathRequestMatcher("/api/employes/*/notifications/unread-count"),
+                                new AntPathRequestMatcher("/api/employes/*/notifications/stream"),
+                                new AntPathRequestMatcher("/api/employes/*/notifications/feed"),
                                 new AntPathRequestMatcher("/api/employes/*/notifications/recent"),
                                 new AntPathRequestMatcher("/api/employes/*/notifications/mark-all-read"),
                                 new AntPathRequestMatcher("/api/notifications/*/mark-read"),
+                                new AntPathRequestMatcher("/api/notifications/mark-read"),
                                 new AntPathRequestMatcher("/api/notifications/*"),
                                 new AntPathRequestMatcher("/api/employes/*/notifications/non-lues"),
                                 new AntPathRequestMatcher("/api/employes/*/notifications/historique"),
+                                new AntPathRequestMatcher("/api/employes/*/notifications/historique/archives"),
                                 new AntPathRequestMatcher("/api/employes/notification/*/lue"),
                                 new AntPathRequestMatcher("/api/employes/*"),
                                 new AntPathRequestMatcher("/api/chauffeurs/*/missions"),
@@ -86,6 +85,9 @@ public class SecurityConfig {
                                 new AntPathRequestMatcher("/api/chauffeurs/*/indisponibilites"),
                                 new AntPathRequestMatcher("/api/chauffeurs/*/notifications"),
                                 new AntPathRequestMatcher("/api/chauffeurs/*/notifications/unread-count"),
+                                new AntPathRequestMatcher("/api/chauffeurs/*/notifications/stream"),
+                                new AntPathRequestMatcher("/api/chauffeurs/*/notifications/feed"),
+                                new AntPathRequestMatcher("/api/chauffeurs/*/notifications/mark-all-read"),
                                 new AntPathRequestMatcher("/api/chauffeurs/notifications/*/mark-read"),
                                 new AntPathRequestMatcher("/api/chauffeurs/missions/*/accept"),
                                 new AntPathRequestMatcher("/api/chauffeurs/missions/*/complete"),
@@ -102,7 +104,8 @@ public class SecurityConfig {
                                 new AntPathRequestMatcher("/swagger-ui.html"),
                                 new AntPathRequestMatcher("/h2-console/**")
                         ).permitAll()
-                        // General admin endpoints (must come after specific ones)
+                        // General admin endpoints (must come after specific ones), including the admin
+                        // notifications, which are those of the admin logged in (see AuthController)
                         .requestMatchers(new AntPathRequestMatcher("/api/admin/**")).hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
@@ -0,0 +1,109 @@
+package ma.formation.jdbc.application.config;
+
+import ma.formation.jdbc.application.service.SqlRequestMonitor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wraps the application's data source so the statements executed during a measured HTTP request are timed
+ * and reported to {@link SqlRequestMonitor}. Only the connections taken while a request is measured are
+ * wrapped; the others (schedulers, outbox workers) are handed out as they are and cost nothing.
+ */
+@Component
+public class SqlMonitoringDataSource implements BeanPostProcessor {
+
+    private final ObjectProvider<SqlRequestMonitor> monitorProvider;
+    private final boolean enabled;
+    private volatile SqlRequestMonitor monitor;
+
+    public SqlMonitoringDataSource(ObjectProvider<SqlRequestMonitor> monitorProvider,
+                                   @Value("${sql.monitoring.enabled:true}") boolean enabled) {
+        this.monitorProvider = monitorProvider;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof DataSource dataSource)) {
+            return bean;
+        }
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return surveiller(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return surveiller(super.getConnection(username, password));
+            }
+        };
+    }
+
+    // The monitor is looked up on first use: post-processors are created before the services
+    private SqlRequestMonitor monitor() {
+        SqlRequestMonitor resolu = monitor;
+        if (resolu == null) {
+            monitor = resolu = monitorProvider.getObject();
+        }
+        return resolu;
+    }
+
+    private Connection surveiller(Connection connection) {
+        if (!monitor().actif()) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object resultat = invoquer(connection, method, args);
+                    if (resultat instanceof Statement statement
+                            && (method.getName().startsWith("prepare") || method.getName().equals("createStatement"))) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                        return chronometrer(statement, sql);
+                    }
+                    return resultat;
+                });
+    }
+
+    // Times the execute calls; a prepared statement reports the SQL it was prepared with
+    private Statement chronometrer(Statement statement, String sqlPrepare) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoquer(statement, method, args);
+            }
+            long debut = System.nanoTime();
+            try {
+                return invoquer(statement, method, args);
+            } finally {
+                String sql = sqlPrepare != null ? sqlPrepare
+                        : args != null && args.length > 0 && args[0] instanceof String s ? s : method.getName();
+                monitor().enregistrer(sql, System.nanoTime() - debut);
+            }
+        };
+        return (Statement) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoquer(Object cible, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(cible, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
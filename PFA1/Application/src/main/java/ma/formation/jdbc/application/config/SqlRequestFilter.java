@@ -0,0 +1,50 @@
+package ma.formation.jdbc.application.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ma.formation.jdbc.application.service.SqlRequestMonitor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Measures the SQL of each API request (see {@link SqlRequestMonitor}) and files it under the request's
+ * method and path pattern, so /api/admin/missions/3 and /api/admin/missions/4 add to the same endpoint.
+ */
+@Component
+public class SqlRequestFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private SqlRequestMonitor sqlRequestMonitor;
+
+    @Value("${sql.monitoring.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        sqlRequestMonitor.debuter();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+            String endpoint = request.getMethod() + " " + (pattern != null ? pattern : "(sans handler)");
+            String methode = handler instanceof HandlerMethod handlerMethod
+                    ? handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName() : null;
+            sqlRequestMonitor.terminer(endpoint, methode);
+        }
+    }
+}
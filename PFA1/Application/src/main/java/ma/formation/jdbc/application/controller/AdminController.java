@@ -1,12 +1,21 @@
 package ma.formation.jdbc.application.controller;
 
+import ma.formation.jdbc.application.exception.MissionConflictException;
 import ma.formation.jdbc.application.model.*;
 import ma.formation.jdbc.application.service.AdminService;
+import ma.formation.jdbc.application.service.DispatchService;
+import ma.formation.jdbc.application.service.MissionFormDataService;
+import ma.formation.jdbc.application.service.NotificationPushService;
+import ma.formation.jdbc.application.service.RecipientVersionService;
+import ma.formation.jdbc.application.service.SqlRequestMonitor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.context.request.WebRequest;
 import ma.formation.jdbc.application.model.User;
 import ma.formation.jdbc.application.model.UserRole;
 import ma.formation.jdbc.application.model.Chauffeur;
@@ -16,10 +25,13 @@ import ma.formation.jdbc.application.dto.VehiculeRegistrationDTO;
 import ma.formation.jdbc.application.dto.IndisponibiliteResponseDTO;
 import ma.formation.jdbc.application.dto.CreateMissionRequest;
 import ma.formation.jdbc.application.dto.MissionFormDataDTO;
+import ma.formation.jdbc.application.dto.MissionPageDTO;
 import ma.formation.jdbc.application.dto.MissionResponseDTO;
 import ma.formation.jdbc.application.dto.MissionUpdateDTO;
 import ma.formation.jdbc.application.dto.ChauffeurDTO;
+import ma.formation.jdbc.application.dto.SqlEndpointStatsDTO;
 import ma.formation.jdbc.application.repository.*;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.stream.Collectors;
 
@@ -35,6 +47,18 @@ import java.util.stream.Collectors;
 public class AdminController {
     @Autowired
     private AdminService adminService;
+
+    @Autowired
+    private MissionFormDataService missionFormDataService;
+
+    @Autowired
+    private DispatchService dispatchService;
+
+    @Autowired
+    private RecipientVersionService recipientVersionService;
+
+    @Autowired
+    private SqlRequestMonitor sqlRequestMonitor;
     
     @Autowired
     private ChauffeurRepository chauffeurRepository;
@@ -64,13 +88,15 @@ public class AdminController {
     }
 
     @GetMapping("/missions/en-attente")
-    public ResponseEntity<List<Mission>> getMissionsEnAttente() {
+    public ResponseEntity<List<MissionResponseDTO>> getMissionsEnAttente() {
         return ResponseEntity.ok(adminService.getMissionsEnAttente());
     }
 
     @GetMapping("/indisponibilites/non-acceptees")
-    public ResponseEntity<List<Indisponibilite>> getIndisponibilitesNonAcceptees() {
-        return ResponseEntity.ok(adminService.getIndisponibilitesNonAcceptees());
+    public ResponseEntity<List<IndisponibiliteResponseDTO>> getIndisponibilitesNonAcceptees() {
+        return ResponseEntity.ok(adminService.getIndisponibilitesNonAcceptees().stream()
+                .map(IndisponibiliteResponseDTO::new)
+                .collect(java.util.stream.Collectors.toList()));
     }
 
     @PostMapping("/missions/{missionId}/chauffeur/{chauffeurId}")
@@ -87,11 +113,7 @@ public class AdminController {
 
     @GetMapping("/historique/chauffeur/{id}")
     public ResponseEntity<List<MissionResponseDTO>> getHistoriqueMissions(@PathVariable Long id) {
-        List<Mission> missions = adminService.getHistoriqueMissionsParChauffeur(id);
-        List<MissionResponseDTO> missionDTOs = missions.stream()
-                .map(MissionResponseDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(missionDTOs);
+        return ResponseEntity.ok(adminService.getHistoriqueMissionsParChauffeur(id));
     }
 
     @PostMapping("/employe")
@@ -134,78 +156,63 @@ public class AdminController {
         try {
             Mission mission = adminService.createMission(request);
             return ResponseEntity.ok(Collections.singletonMap("message", "Mission créée avec succès"));
+        } catch (MissionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Collections.singletonMap("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
         }
     }
     
+    // Bulk creation for planning waves: one result per item, in request order
+    @PostMapping("/create-missions")
+    public ResponseEntity<?> createMissions(@RequestBody List<CreateMissionRequest> requests) {
+        try {
+            return ResponseEntity.ok(adminService.createMissions(requests));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+    // Assigns the unassigned pending missions now instead of waiting for the scheduled run
+    @PostMapping("/dispatch")
+    public ResponseEntity<?> dispatchMissions() {
+        try {
+            return ResponseEntity.ok(dispatchService.dispatch());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+    // With dateHeure, only the drivers free for a mission at that time are listed
     @GetMapping("/mission-form-data")
-    public ResponseEntity<MissionFormDataDTO> getMissionFormData() {
+    public ResponseEntity<MissionFormDataDTO> getMissionFormData(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateHeure) {
         try {
-            MissionFormDataDTO formData = new MissionFormDataDTO();
-            
-            // Get all employees and convert to DTO
-            List<MissionFormDataDTO.EmployeDTO> employes = employeRepository.findAll().stream()
-                .map(emp -> new MissionFormDataDTO.EmployeDTO(
-                    emp.getId(),
-                    emp.getNom() != null ? emp.getNom() : "N/A",
-                    emp.getPrenom() != null ? emp.getPrenom() : "N/A",
-                    emp.getUser() != null ? emp.getUser().getEmail() : "N/A"
-                ))
-                .collect(Collectors.toList());
-            
-            // Get only available chauffeurs (not currently on active missions)
-            List<MissionFormDataDTO.ChauffeurDTO> chauffeurs = chauffeurRepository.findAll().stream()
-                .filter(chauffeur -> {
-                    // Check if chauffeur has any active missions (EN_COURS, COMMENCEE)
-                    boolean hasActiveMission = missionRepository.existsByChauffeurAndEtatIn(
-                        chauffeur, 
-                        Arrays.asList(Mission.EtatMission.EN_COURS, Mission.EtatMission.COMMENCEE)
-                    );
-                    return !hasActiveMission;
-                })
-                .map(chauffeur -> new MissionFormDataDTO.ChauffeurDTO(
-                    chauffeur.getId(),
-                    chauffeur.getNom() != null ? chauffeur.getNom() : "N/A",
-                    chauffeur.getPrenom() != null ? chauffeur.getPrenom() : "N/A",
-                    chauffeur.getUser() != null ? chauffeur.getUser().getEmail() : "N/A"
-                ))
-                .collect(Collectors.toList());
-            
-            // Get only available vehicles (not assigned to active missions)
-            List<MissionFormDataDTO.VehiculeDTO> vehicules = vehiculeRepository.findByDisponibleTrue().stream()
-                .filter(vehicule -> {
-                    // Check if vehicle is assigned to any active missions (EN_COURS, COMMENCEE)
-                    boolean isAssignedToActiveMission = missionRepository.existsByVehiculeAndEtatIn(
-                        vehicule,
-                        Arrays.asList(Mission.EtatMission.EN_COURS, Mission.EtatMission.COMMENCEE)
-                    );
-                    return !isAssignedToActiveMission;
-                })
-                .map(vehicule -> new MissionFormDataDTO.VehiculeDTO(
-                    vehicule.getId(),
-                    vehicule.getImmatriculation(),
-                    vehicule.getMarque(),
-                    vehicule.getModele(),
-                    vehicule.getCapacite(),
-                    vehicule.isDisponible()
-                ))
-                .collect(Collectors.toList());
-            
-            formData.setEmployes(employes);
-            formData.setChauffeurs(chauffeurs);
-            formData.setVehicules(vehicules);
-            
-            return ResponseEntity.ok(formData);
+            return ResponseEntity.ok(missionFormDataService.getFormData(dateHeure));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    // SQL statements and JDBC time per endpoint, with histograms and the requests over budget or N+1
+    @GetMapping("/sql-stats")
+    public ResponseEntity<List<SqlEndpointStatsDTO>> getSqlStats() {
+        return ResponseEntity.ok(sqlRequestMonitor.getStats());
+    }
+
+    @DeleteMapping("/sql-stats")
+    public ResponseEntity<Void> resetSqlStats() {
+        sqlRequestMonitor.reinitialiser();
+        return ResponseEntity.noContent().build();
+    }
+
     // Dashboard Statistics Endpoints
     @GetMapping("/dashboard/stats")
-    public ResponseEntity<?> getDashboardStats() {
+    public ResponseEntity<?> getDashboardStats(WebRequest request) {
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.ADMIN))) {
+            return null;
+        }
         try {
             Map<String, Object> stats = adminService.getDashboardStats();
             return ResponseEntity.ok(stats);
@@ -254,12 +261,24 @@ public class AdminController {
         }
     }
 
-    // Get all missions for admin dashboard
+    // Get one page of missions for admin dashboard, filtered and keyset-paginated on (dateHeure, id)
     @GetMapping("/missions")
-    public ResponseEntity<List<MissionResponseDTO>> getAllMissions() {
+    public ResponseEntity<?> getAllMissions(
+            @RequestParam(required = false) Mission.EtatMission etat,
+            @RequestParam(required = false) Long chauffeurId,
+            @RequestParam(required = false) Long employeId,
+            @RequestParam(required = false) Long vehiculeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeDate,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<MissionResponseDTO> missions = adminService.getAllMissions();
-            return ResponseEntity.ok(missions);
+            MissionPageDTO page = adminService.getMissionsPage(etat, chauffeurId, employeId, vehiculeId,
+                    from, to, beforeDate, beforeId, size);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -282,6 +301,8 @@ public class AdminController {
         try {
             adminService.updateMission(id, missionUpdateDTO);
             return ResponseEntity.ok(Collections.singletonMap("message", "Mission mise à jour avec succès"));
+        } catch (MissionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Collections.singletonMap("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
         }
@@ -293,6 +314,8 @@ public class AdminController {
         try {
             adminService.deleteMission(id);
             return ResponseEntity.ok().build();
+        } catch (MissionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Collections.singletonMap("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
         }
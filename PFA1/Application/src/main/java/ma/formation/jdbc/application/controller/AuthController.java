@@ -1,13 +1,22 @@
 package ma.formation.jdbc.application.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import ma.formation.jdbc.application.model.*;
 import ma.formation.jdbc.application.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,10 +34,14 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    private final SecurityContextRepository securityContextRepository = new HttpSessionSecurityContextRepository();
+
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request,
+                                   HttpServletResponse httpResponse) {
         try {
             AuthResponse response = authService.authenticate(loginRequest.getEmail(), loginRequest.getPassword());
+            ouvrirSession(response, request, httpResponse);
             return ResponseEntity.ok(Map.of(
                     "user", response,
                     "token", "simple-token-" + response.getId() // Simple token for frontend compatibility
@@ -38,6 +51,19 @@ public class AuthController {
         }
     }
 
+    // Logs the user in for the session: the role guards the admin routes and the email names the admin
+    // whose notifications the admin notification endpoints serve (see SecurityConfig)
+    private void ouvrirSession(AuthResponse user, HttpServletRequest request, HttpServletResponse response) {
+        if (request.getSession(false) != null) {
+            request.changeSessionId();
+        }
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(user.getEmail(), null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))));
+        SecurityContextHolder.setContext(context);
+        securityContextRepository.saveContext(context, request, response);
+    }
+
     public static class LoginRequest {
         private String email;
         private String password;
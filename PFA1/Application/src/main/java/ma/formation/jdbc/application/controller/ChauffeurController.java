@@ -6,10 +6,19 @@ import ma.formation.jdbc.application.dto.IndisponibiliteResponseDTO;
 import ma.formation.jdbc.application.dto.NotificationResponseDTO;
 import ma.formation.jdbc.application.service.ChauffeurService;
 import ma.formation.jdbc.application.service.MissionService;
+import ma.formation.jdbc.application.service.NotificationPushService;
+import ma.formation.jdbc.application.service.RecipientVersionService;
+import ma.formation.jdbc.application.service.StatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 
 @RestController
@@ -21,6 +30,15 @@ public class ChauffeurController {
     @Autowired
     private MissionService missionService;
 
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private NotificationPushService notificationPushService;
+
+    @Autowired
+    private RecipientVersionService recipientVersionService;
+
     @PostMapping
     public ResponseEntity<Chauffeur> creerChauffeur(@RequestBody Chauffeur chauffeur) {
         return ResponseEntity.ok(chauffeurService.creerChauffeur(chauffeur));
@@ -69,53 +87,15 @@ public class ChauffeurController {
     // Driver Dashboard Endpoints
     @GetMapping("/{id}/missions")
     public ResponseEntity<List<MissionResponseDTO>> getChauffeurMissions(@PathVariable Long id) {
-        List<Mission> missions = missionService.getMissionsByChauffeurId(id);
-        List<MissionResponseDTO> missionDTOs = missions.stream()
-                .map(MissionResponseDTO::new)
-                .collect(java.util.stream.Collectors.toList());
-        return ResponseEntity.ok(missionDTOs);
+        return ResponseEntity.ok(missionService.getMissionResponsesByChauffeurId(id));
     }
     
     @GetMapping("/{id}/dashboard/stats")
-    public ResponseEntity<java.util.Map<String, Object>> getChauffeurDashboardStats(@PathVariable Long id) {
-        List<Mission> missions = missionService.getMissionsByChauffeurId(id);
-        
-        java.util.Map<String, Object> stats = new java.util.HashMap<>();
-        
-        // Count missions by status
-        long totalMissions = missions.size();
-        
-        // Count pending missions (EN_ATTENTE)
-        long pendingMissions = missions.stream()
-                .filter(m -> m.getEtat() == null || m.getEtat() == Mission.EtatMission.EN_ATTENTE)
-                .count();
-                
-        // Count active missions (COMMENCEE)
-        long activeMissions = missions.stream()
-                .filter(m -> m.getEtat() == Mission.EtatMission.COMMENCEE)
-                .count();
-                
-        // Count completed missions (TERMINEE)
-        long completedMissions = missions.stream()
-                .filter(m -> m.getEtat() == Mission.EtatMission.TERMINEE)
-                .count();
-                
-        // Count refused missions (REFUSEE)
-        long refusedMissions = missions.stream()
-                .filter(m -> m.getEtat() == Mission.EtatMission.REFUSEE)
-                .count();
-        
-        // Calculate success rate
-        double successRate = totalMissions > 0 ? (double) completedMissions / totalMissions * 100 : 0;
-        
-        stats.put("totalMissions", totalMissions);
-        stats.put("activeMissions", activeMissions);
-        stats.put("pendingMissions", pendingMissions);
-        stats.put("completedMissions", completedMissions);
-        stats.put("refusedMissions", refusedMissions);
-        stats.put("successRate", Math.round(successRate));
-        
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<java.util.Map<String, Object>> getChauffeurDashboardStats(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.chauffeur(id)))) {
+            return null;
+        }
+        return ResponseEntity.ok(statsService.getChauffeurStats(id));
     }
     
     @PostMapping("/missions/{missionId}/accept")
@@ -146,15 +126,56 @@ public class ChauffeurController {
 
     // Chauffeur notification endpoints
     @GetMapping("/{id}/notifications")
-    public ResponseEntity<List<NotificationResponseDTO>> getChauffeurNotifications(@PathVariable Long id) {
+    public ResponseEntity<List<NotificationResponseDTO>> getChauffeurNotifications(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.chauffeur(id)))) {
+            return null;
+        }
         return ResponseEntity.ok(chauffeurService.getChauffeurNotifications(id));
     }
 
+    // One page of the driver's notifications, keyset-paginated on (dateEnvoi, id)
+    @GetMapping("/{id}/notifications/feed")
+    public ResponseEntity<?> getChauffeurNotificationFeed(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeDate,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterDate,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.chauffeur(id)))) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(chauffeurService.getChauffeurNotificationFeed(id, beforeDate, beforeId,
+                    afterDate, afterId, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Event stream of the driver's notifications and unread count (replaces polling)
+    @GetMapping(value = "/{id}/notifications/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChauffeurNotifications(@PathVariable Long id,
+                                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return notificationPushService.subscribe(NotificationPushService.Destinataire.chauffeur(id), lastEventId);
+    }
+
     @GetMapping("/{id}/notifications/unread-count")
-    public ResponseEntity<Long> getChauffeurUnreadNotificationsCount(@PathVariable Long id) {
+    public ResponseEntity<Long> getChauffeurUnreadNotificationsCount(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.chauffeur(id)))) {
+            return null;
+        }
         return ResponseEntity.ok(chauffeurService.getChauffeurUnreadNotificationsCount(id));
     }
 
+    @PutMapping("/{id}/notifications/mark-all-read")
+    public ResponseEntity<Integer> markAllChauffeurNotificationsAsRead(@PathVariable Long id) {
+        return ResponseEntity.ok(chauffeurService.markAllChauffeurNotificationsAsRead(id));
+    }
+
     @PutMapping("/notifications/{notificationId}/mark-read")
     public ResponseEntity<Void> markChauffeurNotificationAsRead(@PathVariable Long notificationId) {
         chauffeurService.markChauffeurNotificationAsRead(notificationId);
@@ -1,15 +1,24 @@
 package ma.formation.jdbc.application.controller;
 
+import ma.formation.jdbc.application.exception.MissionConflictException;
 import ma.formation.jdbc.application.model.*;
 import ma.formation.jdbc.application.dto.MissionResponseDTO;
 import ma.formation.jdbc.application.dto.EmployeDetailsDTO;
+import ma.formation.jdbc.application.dto.NotificationDTO;
+import ma.formation.jdbc.application.service.NotificationPushService;
 import ma.formation.jdbc.application.service.NotificationService;
+import ma.formation.jdbc.application.service.RecipientVersionService;
 import ma.formation.jdbc.application.service.EmployeService;
 import ma.formation.jdbc.application.service.AdminService;
+import ma.formation.jdbc.application.service.StatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -24,12 +33,18 @@ public class EmployeController {
     
     @Autowired
     private EmployeService employeService;
+
+    @Autowired
+    private RecipientVersionService recipientVersionService;
     
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private StatsService statsService;
+
     @GetMapping("/{id}/notifications/non-lues")
-    public ResponseEntity<List<Notification>> getNotificationsNonLues(@PathVariable Long id) {
+    public ResponseEntity<List<NotificationDTO>> getNotificationsNonLues(@PathVariable Long id) {
         return ResponseEntity.ok(notificationService.getNotificationsNonLues(id));
     }
 
@@ -40,17 +55,27 @@ public class EmployeController {
     }
 
     @GetMapping("/{id}/notifications/historique")
-    public ResponseEntity<List<Notification>> getHistoriqueNotifications(@PathVariable Long id) {
+    public ResponseEntity<List<NotificationDTO>> getHistoriqueNotifications(@PathVariable Long id) {
         return ResponseEntity.ok(notificationService.getHistoriqueNotifications(id));
     }
+
+    // Archived notifications (moved out by the retention job), keyset-paginated on (dateEnvoi, id)
+    @GetMapping("/{id}/notifications/historique/archives")
+    public ResponseEntity<?> getArchivesNotifications(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeDate,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(notificationService.getArchivesNotifications(id, beforeDate, beforeId, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
     
     @GetMapping("/{id}/missions")
     public ResponseEntity<List<MissionResponseDTO>> getMissionsAssignees(@PathVariable Long id) {
-        List<Mission> missions = employeService.getMissionsParEmploye(id);
-        List<MissionResponseDTO> missionDTOs = missions.stream()
-                .map(MissionResponseDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(missionDTOs);
+        return ResponseEntity.ok(employeService.getMissionResponsesParEmploye(id));
     }
     
     @GetMapping("/{id}")
@@ -65,51 +90,17 @@ public class EmployeController {
     }
     
     @GetMapping("/{id}/dashboard/stats")
-    public ResponseEntity<Map<String, Object>> getDashboardStats(@PathVariable Long id) {
-        List<Mission> missions = employeService.getMissionsParEmploye(id);
-        
-        Map<String, Object> stats = new HashMap<>();
-        
-        // Count missions by status
-        long totalMissions = missions.size();
-        
-        // Count pending missions (EN_ATTENTE)
-        long pendingMissions = missions.stream()
-                .filter(m -> m.getEtat() == null || m.getEtat() == Mission.EtatMission.EN_ATTENTE)
-                .count();
-                
-        // Count active missions (COMMENCEE)
-        long activeMissions = missions.stream()
-                .filter(m -> m.getEtat() == Mission.EtatMission.COMMENCEE)
-                .count();
-                
-        // Count completed missions (TERMINEE)
-        long completedMissions = missions.stream()
-                .filter(m -> m.getEtat() == Mission.EtatMission.TERMINEE)
-                .count();
-                
-        // Count refused missions (REFUSEE)
-        long refusedMissions = missions.stream()
-                .filter(m -> m.getEtat() == Mission.EtatMission.REFUSEE)
-                .count();
-        
-        stats.put("totalMissions", totalMissions);
-        stats.put("activeMissions", activeMissions);
-        stats.put("pendingMissions", pendingMissions);
-        stats.put("completedMissions", completedMissions);
-        stats.put("refusedMissions", refusedMissions);
-        
-        // Get unread notifications count
-        List<Notification> unreadNotifications = notificationService.getNotificationsNonLues(id);
-        stats.put("unreadNotifications", unreadNotifications.size());
-        
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<Map<String, Object>> getDashboardStats(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.employe(id)))) {
+            return null;
+        }
+        return ResponseEntity.ok(statsService.getEmployeStats(id));
     }
 
     // Get missions with problems assigned to this employee (for reassignment)
     @GetMapping("/{id}/missions/with-problems")
     public ResponseEntity<List<MissionResponseDTO>> getMissionsWithProblems(@PathVariable Long id) {
-        List<Mission> missions = employeService.getMissionsParEmploye(id);
+        List<MissionResponseDTO> missions = employeService.getMissionResponsesParEmploye(id);
         
         // Filter missions that need reassignment:
         // 1. Missions with problems that are back in EN_ATTENTE status
@@ -117,11 +108,10 @@ public class EmployeController {
         List<MissionResponseDTO> missionsWithProblems = missions.stream()
                 .filter(m -> 
                     // Missions with problems in EN_ATTENTE status
-                    (m.getProbleme() != null && !m.getProbleme().trim().isEmpty() && m.getEtat() == Mission.EtatMission.EN_ATTENTE) ||
+                    (m.getProbleme() != null && !m.getProbleme().trim().isEmpty() && Mission.EtatMission.EN_ATTENTE.name().equals(m.getEtat())) ||
                     // Refused missions that need reassignment
-                    (m.getEtat() == Mission.EtatMission.REFUSEE)
+                    Mission.EtatMission.REFUSEE.name().equals(m.getEtat())
                 )
-                .map(MissionResponseDTO::new)
                 .collect(Collectors.toList());
                 
         return ResponseEntity.ok(missionsWithProblems);
@@ -134,6 +124,8 @@ public class EmployeController {
             // Use the same AdminService reassignMission method since the logic is the same
             adminService.reassignMission(missionId, chauffeurId);
             return ResponseEntity.ok(Collections.singletonMap("message", "Mission réassignée avec succès"));
+        } catch (MissionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Collections.singletonMap("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
         }
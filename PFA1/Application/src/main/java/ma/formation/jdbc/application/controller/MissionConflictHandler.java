@@ -0,0 +1,19 @@
+package ma.formation.jdbc.application.controller;
+
+import ma.formation.jdbc.application.exception.MissionConflictException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Collections;
+import java.util.Map;
+
+// Turns a lost mission transition race into a 409 for endpoints that do not catch it themselves
+@RestControllerAdvice
+public class MissionConflictHandler {
+    @ExceptionHandler(MissionConflictException.class)
+    public ResponseEntity<Map<String, String>> handleMissionConflict(MissionConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Collections.singletonMap("error", e.getMessage()));
+    }
+}
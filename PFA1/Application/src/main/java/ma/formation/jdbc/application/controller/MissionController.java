@@ -1,8 +1,11 @@
 package ma.formation.jdbc.application.controller;
 
+import ma.formation.jdbc.application.dto.MissionResponseDTO;
+import ma.formation.jdbc.application.exception.MissionConflictException;
 import ma.formation.jdbc.application.model.*;
 import ma.formation.jdbc.application.service.MissionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -24,6 +27,8 @@ public class MissionController {
         try {
             missionService.accepterMission(id, chauffeurId);
             return ResponseEntity.ok("{\"message\": \"Mission acceptée avec succès\"}");
+        } catch (MissionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
@@ -34,6 +39,8 @@ public class MissionController {
         try {
             missionService.commencerMission(id);
             return ResponseEntity.ok("{\"message\": \"Mission commencée avec succès\"}");
+        } catch (MissionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
@@ -44,6 +51,8 @@ public class MissionController {
         try {
             missionService.terminerMission(id);
             return ResponseEntity.ok("{\"message\": \"Mission terminée avec succès\"}");
+        } catch (MissionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
@@ -54,23 +63,25 @@ public class MissionController {
         try {
             missionService.refuserMission(id, raison);
             return ResponseEntity.ok("{\"message\": \"Mission refusée avec succès\"}");
+        } catch (MissionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
     }
 
     @GetMapping("/en-attente")
-    public ResponseEntity<List<Mission>> getMissionsEnAttente() {
+    public ResponseEntity<List<MissionResponseDTO>> getMissionsEnAttente() {
         return ResponseEntity.ok(missionService.getMissionsEnAttente());
     }
 
     @GetMapping("/chauffeur/{id}")
-    public ResponseEntity<List<Mission>> getMissionsParChauffeur(@PathVariable Long id) {
+    public ResponseEntity<List<MissionResponseDTO>> getMissionsParChauffeur(@PathVariable Long id) {
         return ResponseEntity.ok(missionService.getMissionsParChauffeur(id));
     }
 
     @GetMapping("/historique/chauffeur/{id}")
-    public ResponseEntity<List<Mission>> getHistoriqueMissions(@PathVariable Long id) {
+    public ResponseEntity<List<MissionResponseDTO>> getHistoriqueMissions(@PathVariable Long id) {
         return ResponseEntity.ok(missionService.getHistoriqueMissions(id));
     }
 
@@ -79,6 +90,8 @@ public class MissionController {
         try {
             missionService.signalerProbleme(id, probleme);
             return ResponseEntity.ok("{\"message\": \"Problème signalé avec succès\"}");
+        } catch (MissionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
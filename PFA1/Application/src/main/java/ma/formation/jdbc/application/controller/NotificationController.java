@@ -2,13 +2,28 @@ package ma.formation.jdbc.application.controller;
 
 import ma.formation.jdbc.application.model.Notification;
 import ma.formation.jdbc.application.dto.NotificationDTO;
+import ma.formation.jdbc.application.dto.NotificationCountCacheStatsDTO;
+import ma.formation.jdbc.application.dto.NotificationOutboxStatsDTO;
+import ma.formation.jdbc.application.service.AdminRecipientRegistry;
+import ma.formation.jdbc.application.service.NotificationCountCache;
+import ma.formation.jdbc.application.service.NotificationOutboxService;
+import ma.formation.jdbc.application.service.NotificationPushService;
 import ma.formation.jdbc.application.service.NotificationService;
+import ma.formation.jdbc.application.service.RecipientVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
@@ -18,15 +33,62 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
-    // Get all notifications for an employee
+    @Autowired
+    private NotificationPushService notificationPushService;
+
+    @Autowired
+    private NotificationOutboxService notificationOutboxService;
+
+    @Autowired
+    private NotificationCountCache notificationCountCache;
+
+    @Autowired
+    private RecipientVersionService recipientVersionService;
+
+    @Autowired
+    private AdminRecipientRegistry adminRecipientRegistry;
+
+    // Event stream of an employee's notifications and unread count (replaces polling)
+    @GetMapping(value = "/employes/{employeId}/notifications/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEmployeeNotifications(@PathVariable Long employeId,
+                                                  @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return notificationPushService.subscribe(NotificationPushService.Destinataire.employe(employeId), lastEventId);
+    }
+
+    // Polled list and count endpoints answer 304 Not Modified, before any query, while the recipient's
+    // version (sent as ETag) has not moved; see RecipientVersionService
+
+    // Get the newest notifications for an employee (first page of the feed)
     @GetMapping("/employes/{employeId}/notifications")
-    public ResponseEntity<List<NotificationDTO>> getEmployeeNotifications(@PathVariable Long employeId) {
+    public ResponseEntity<List<NotificationDTO>> getEmployeeNotifications(@PathVariable Long employeId, WebRequest request) {
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.employe(employeId)))) {
+            return null;
+        }
         try {
-            List<Notification> notifications = notificationService.getNotificationsByEmployeId(employeId);
-            List<NotificationDTO> notificationDTOs = notifications.stream()
-                    .map(NotificationDTO::new)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(notificationDTOs);
+            return ResponseEntity.ok(notificationService.getNotificationsByEmployeId(employeId));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // One page of an employee's notifications, keyset-paginated on (dateEnvoi, id)
+    @GetMapping("/employes/{employeId}/notifications/feed")
+    public ResponseEntity<?> getEmployeeNotificationFeed(
+            @PathVariable Long employeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeDate,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterDate,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.employe(employeId)))) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(notificationService.getEmployeeFeed(employeId, beforeDate, beforeId,
+                    afterDate, afterId, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -34,7 +96,10 @@ public class NotificationController {
 
     // Get unread notifications count for an employee
     @GetMapping("/employes/{employeId}/notifications/unread-count")
-    public ResponseEntity<Long> getUnreadNotificationsCount(@PathVariable Long employeId) {
+    public ResponseEntity<Long> getUnreadNotificationsCount(@PathVariable Long employeId, WebRequest request) {
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.employe(employeId)))) {
+            return null;
+        }
         try {
             Long count = notificationService.getUnreadNotificationsCount(employeId);
             return ResponseEntity.ok(count);
@@ -56,10 +121,19 @@ public class NotificationController {
 
     // Mark all notifications as read for an employee
     @PutMapping("/employes/{employeId}/notifications/mark-all-read")
-    public ResponseEntity<Void> markAllNotificationsAsRead(@PathVariable Long employeId) {
+    public ResponseEntity<Integer> markAllNotificationsAsRead(@PathVariable Long employeId) {
         try {
-            notificationService.markAllAsRead(employeId);
-            return ResponseEntity.ok().build();
+            return ResponseEntity.ok(notificationService.markAllAsRead(employeId));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Mark a list of notifications as read in one statement; returns how many were unread
+    @PutMapping("/notifications/mark-read")
+    public ResponseEntity<Integer> markNotificationsAsRead(@RequestBody List<Long> notificationIds) {
+        try {
+            return ResponseEntity.ok(notificationService.markAsRead(notificationIds));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -78,48 +152,121 @@ public class NotificationController {
 
     // Get recent notifications for an employee (last 10)
     @GetMapping("/employes/{employeId}/notifications/recent")
-    public ResponseEntity<List<NotificationDTO>> getRecentNotifications(@PathVariable Long employeId) {
+    public ResponseEntity<List<NotificationDTO>> getRecentNotifications(@PathVariable Long employeId, WebRequest request) {
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.employe(employeId)))) {
+            return null;
+        }
         try {
-            List<Notification> notifications = notificationService.getRecentNotifications(employeId, 10);
-            List<NotificationDTO> notificationDTOs = notifications.stream()
-                    .map(NotificationDTO::new)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(notificationDTOs);
+            return ResponseEntity.ok(notificationService.getRecentNotifications(employeId, 10));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
-    // Admin notification endpoints
+    // Admin notification endpoints; each admin has their own notifications and read state, those of the
+    // admin logged in on the session
     @GetMapping("/admin/notifications")
-    public ResponseEntity<List<NotificationDTO>> getAdminNotifications() {
+    public ResponseEntity<List<NotificationDTO>> getAdminNotifications(Authentication authentication, WebRequest request) {
+        Long adminId = adminConnecte(authentication);
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.admin(adminId)))) {
+            return null;
+        }
         try {
-            // Get only leave request notifications for admin (DEMANDE_CONGE type)
-            List<Notification> notifications = notificationService.getAdminLeaveRequestNotifications();
-            List<NotificationDTO> notificationDTOs = notifications.stream()
-                    .map(NotificationDTO::new)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(notificationDTOs);
+            // First page of the admin's feed
+            return ResponseEntity.ok(notificationService.getNotificationsByAdminId(adminId));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    // One page of the admin's notifications, keyset-paginated on (dateEnvoi, id)
+    @GetMapping("/admin/notifications/feed")
+    public ResponseEntity<?> getAdminNotificationFeed(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeDate,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterDate,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer size,
+            Authentication authentication, WebRequest request) {
+        Long adminId = adminConnecte(authentication);
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.admin(adminId)))) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok(notificationService.getAdminFeed(adminId, beforeDate, beforeId,
+                    afterDate, afterId, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping(value = "/admin/notifications/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAdminNotifications(Authentication authentication,
+                                               @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return notificationPushService.subscribe(NotificationPushService.Destinataire.admin(adminConnecte(authentication)),
+                lastEventId);
+    }
+
     @GetMapping("/admin/notifications/unread-count")
-    public ResponseEntity<Long> getAdminUnreadNotificationsCount() {
+    public ResponseEntity<Long> getAdminUnreadNotificationsCount(Authentication authentication, WebRequest request) {
+        Long adminId = adminConnecte(authentication);
+        if (request.checkNotModified(recipientVersionService.etag(NotificationPushService.Destinataire.admin(adminId)))) {
+            return null;
+        }
         try {
-            Long count = notificationService.getAdminUnreadLeaveRequestCount();
+            Long count = notificationService.getUnreadNotificationsCountByAdminId(adminId);
             return ResponseEntity.ok(count);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    // Notification outbox backlog: rows waiting for delivery, parked rows, delivery counters
+    @GetMapping("/admin/notifications/outbox")
+    public ResponseEntity<NotificationOutboxStatsDTO> getOutboxStats() {
+        try {
+            return ResponseEntity.ok(notificationOutboxService.getStats());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Unread count cache: hits, misses, adjustments and counts held
+    @GetMapping("/admin/notifications/count-cache")
+    public ResponseEntity<NotificationCountCacheStatsDTO> getCountCacheStats() {
+        try {
+            return ResponseEntity.ok(notificationCountCache.getStats());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Retry the outbox rows parked after too many failed deliveries
+    @PostMapping("/admin/notifications/outbox/relancer")
+    public ResponseEntity<Integer> relancerOutbox() {
+        try {
+            return ResponseEntity.ok(notificationOutboxService.relancerBloquees());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @PutMapping("/admin/notifications/mark-all-read")
-    public ResponseEntity<Void> markAllAdminNotificationsAsRead() {
+    public ResponseEntity<Integer> markAllAdminNotificationsAsRead(Authentication authentication) {
+        Long adminId = adminConnecte(authentication);
         try {
-            notificationService.markAllAdminLeaveRequestsAsRead();
-            return ResponseEntity.ok().build();
+            return ResponseEntity.ok(notificationService.markAllAdminAsRead(adminId));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PutMapping("/admin/notifications/{notificationId}/mark-read")
+    public ResponseEntity<Integer> markAdminNotificationAsRead(@PathVariable Long notificationId) {
+        try {
+            return ResponseEntity.ok(notificationService.markAsRead(List.of(notificationId)));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -153,4 +300,13 @@ public class NotificationController {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    // The /api/admin routes require the ADMIN role (see SecurityConfig); the principal is the login email
+    private Long adminConnecte(Authentication authentication) {
+        Long adminId = authentication == null ? null : adminRecipientRegistry.getAdminId(authentication.getName());
+        if (adminId == null) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Aucun administrateur pour cet utilisateur");
+        }
+        return adminId;
+    }
 }
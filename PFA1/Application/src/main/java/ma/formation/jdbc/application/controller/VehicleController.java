@@ -42,11 +42,17 @@ public class VehicleController {
 
     @GetMapping
     public ResponseEntity<List<Map<String, Object>>> getAllVehicles() {
-        List<Vehicule> vehicles = vehicleService.getAllVehicles();
+        List<Vehicule> vehicles = vehicleService.getAllVehiclesWithChauffeur();
         List<Mission.EtatMission> activeMissionStates = Arrays.asList(
             Mission.EtatMission.COMMENCEE, 
             Mission.EtatMission.EN_COURS
         );
+
+        // Active mission of each vehicle (the oldest one if several), read once for the whole fleet
+        Map<Long, Object[]> activeMissions = new HashMap<>();
+        for (Object[] row : missionRepository.findVehiculesEnMission(activeMissionStates)) {
+            activeMissions.putIfAbsent((Long) row[0], row);
+        }
         
         List<Map<String, Object>> vehicleData = vehicles.stream().map(vehicle -> {
             Map<String, Object> vehicleInfo = new HashMap<>();
@@ -58,23 +64,18 @@ public class VehicleController {
             vehicleInfo.put("disponible", vehicle.isDisponible());
             
             // Check if vehicle is currently assigned to an active mission
-            List<Mission> activeMissions = missionRepository.findAll().stream()
-                .filter(mission -> mission.getVehicule() != null && 
-                                 mission.getVehicule().getId().equals(vehicle.getId()) &&
-                                 activeMissionStates.contains(mission.getEtat()))
-                .collect(Collectors.toList());
+            Object[] activeMission = activeMissions.get(vehicle.getId());
             
-            if (!activeMissions.isEmpty()) {
-                Mission activeMission = activeMissions.get(0);
+            if (activeMission != null) {
                 Map<String, Object> chauffeurInfo = new HashMap<>();
-                if (activeMission.getChauffeur() != null) {
-                    chauffeurInfo.put("id", activeMission.getChauffeur().getId());
-                    chauffeurInfo.put("nom", activeMission.getChauffeur().getNom());
-                    chauffeurInfo.put("prenom", activeMission.getChauffeur().getPrenom());
+                if (activeMission[3] != null) {
+                    chauffeurInfo.put("id", activeMission[3]);
+                    chauffeurInfo.put("nom", activeMission[4]);
+                    chauffeurInfo.put("prenom", activeMission[5]);
                 }
                 vehicleInfo.put("chauffeur", chauffeurInfo);
-                vehicleInfo.put("currentMissionId", activeMission.getId());
-                vehicleInfo.put("currentMissionStatus", activeMission.getEtat().toString());
+                vehicleInfo.put("currentMissionId", activeMission[1]);
+                vehicleInfo.put("currentMissionStatus", activeMission[2].toString());
                 vehicleInfo.put("isInActiveMission", true);
             } else {
                 // Check static assignment
@@ -110,7 +111,7 @@ public class VehicleController {
 
     @GetMapping("/count")
     public ResponseEntity<Long> getVehicleCount() {
-        return ResponseEntity.ok((long) vehicleService.getAllVehicles().size());
+        return ResponseEntity.ok(vehicleService.countVehicles());
     }
 
     @GetMapping("/available/count")
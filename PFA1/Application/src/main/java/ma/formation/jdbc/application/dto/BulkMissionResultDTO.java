@@ -0,0 +1,24 @@
+package ma.formation.jdbc.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outcome of one item of a bulk mission creation, index is its position in the request list
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkMissionResultDTO {
+    private int index;
+    private boolean success;
+    private Long missionId;
+    private String error;
+
+    public static BulkMissionResultDTO succes(int index, Long missionId) {
+        return new BulkMissionResultDTO(index, true, missionId, null);
+    }
+
+    public static BulkMissionResultDTO echec(int index, String error) {
+        return new BulkMissionResultDTO(index, false, null, error);
+    }
+}
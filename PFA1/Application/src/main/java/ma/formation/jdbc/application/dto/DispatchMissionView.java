@@ -0,0 +1,9 @@
+package ma.formation.jdbc.application.dto;
+
+import java.time.LocalDateTime;
+
+// Unassigned mission as read by the dispatcher: what matching needs, plus what its notifications and counters need
+public record DispatchMissionView(Long id, Long version, LocalDateTime dateHeure, String typeMission,
+                                  Long vehiculeId, String probleme, Long employeId, String depart,
+                                  String destination) {
+}
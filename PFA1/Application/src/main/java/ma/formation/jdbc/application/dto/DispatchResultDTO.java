@@ -0,0 +1,29 @@
+package ma.formation.jdbc.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of one dispatch run: how many unassigned missions were examined and what was assigned
+@Data
+@NoArgsConstructor
+public class DispatchResultDTO {
+    private int missionsExaminees;
+    private int missionsAffectees;
+    // Missions changed, or drivers booked, by someone else between scoring and commit, left for the next run
+    private int conflits;
+    private long dureeMs;
+    private List<Affectation> affectations = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Affectation {
+        private Long missionId;
+        private Long chauffeurId;
+        private Long vehiculeId;
+    }
+}
@@ -0,0 +1,43 @@
+package ma.formation.jdbc.application.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class MissionPageDTO {
+    private List<MissionResponseDTO> missions;
+    private int size;
+    private boolean hasMore;
+
+    // Cursor for the next page (dateHeure and id of the last mission), null on the last page
+    private LocalDateTime nextBeforeDate;
+    private Long nextBeforeId;
+
+    public MissionPageDTO() {}
+
+    public MissionPageDTO(List<MissionResponseDTO> missions, int size, boolean hasMore) {
+        this.missions = missions;
+        this.size = size;
+        this.hasMore = hasMore;
+        if (hasMore && !missions.isEmpty()) {
+            MissionResponseDTO last = missions.get(missions.size() - 1);
+            this.nextBeforeDate = last.getDateHeure();
+            this.nextBeforeId = last.getId();
+        }
+    }
+
+    // Getters and Setters
+    public List<MissionResponseDTO> getMissions() { return missions; }
+    public void setMissions(List<MissionResponseDTO> missions) { this.missions = missions; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public LocalDateTime getNextBeforeDate() { return nextBeforeDate; }
+    public void setNextBeforeDate(LocalDateTime nextBeforeDate) { this.nextBeforeDate = nextBeforeDate; }
+
+    public Long getNextBeforeId() { return nextBeforeId; }
+    public void setNextBeforeId(Long nextBeforeId) { this.nextBeforeId = nextBeforeId; }
+}
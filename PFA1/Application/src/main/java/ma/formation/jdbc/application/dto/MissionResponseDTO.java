@@ -128,6 +128,34 @@ public class MissionResponseDTO {
         }
     }
 
+    // Constructor for JPQL projections (one joined SELECT, no entity hydration)
+    public MissionResponseDTO(Long id, String destination, String depart, LocalDateTime dateHeure,
+                              String typeMission, String instructions, Mission.EtatMission etat,
+                              String probleme, boolean acceptee,
+                              Long employeId, String employeNom, String employePrenom,
+                              Long chauffeurId, String chauffeurNom, String chauffeurPrenom, String chauffeurTelephone,
+                              Long vehiculeId, String vehiculeImmatriculation, String vehiculeMarque, String vehiculeModele) {
+        this.id = id;
+        this.destination = destination;
+        this.depart = depart;
+        this.dateHeure = dateHeure;
+        this.typeMission = typeMission;
+        this.instructions = instructions;
+        this.etat = etat != null ? etat.name() : "EN_ATTENTE";
+        this.probleme = probleme;
+        this.acceptee = acceptee;
+
+        if (employeId != null) {
+            this.employe = new EmployeInfo(employeId, employeNom, employePrenom);
+        }
+        if (chauffeurId != null) {
+            this.chauffeur = new ChauffeurInfo(chauffeurId, chauffeurNom, chauffeurPrenom, chauffeurTelephone);
+        }
+        if (vehiculeId != null) {
+            this.vehicule = new VehiculeInfo(vehiculeId, vehiculeImmatriculation, vehiculeMarque, vehiculeModele);
+        }
+    }
+
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
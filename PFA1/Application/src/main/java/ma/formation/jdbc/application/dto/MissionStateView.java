@@ -0,0 +1,14 @@
+package ma.formation.jdbc.application.dto;
+
+import ma.formation.jdbc.application.model.Mission;
+
+import java.time.LocalDateTime;
+
+// Columns a transition is guarded on, plus what its notification and counters need
+public record MissionStateView(Long id, Mission.EtatMission etat, boolean acceptee, String probleme,
+                               String destination, Long version, Long chauffeurId, String chauffeurNom,
+                               String chauffeurPrenom, Long employeId, Long vehiculeId, LocalDateTime dateHeure) {
+    public String chauffeurNomComplet() {
+        return chauffeurNom + " " + chauffeurPrenom;
+    }
+}
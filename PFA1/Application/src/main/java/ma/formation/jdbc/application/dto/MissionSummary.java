@@ -1,5 +1,6 @@
 package ma.formation.jdbc.application.dto;
 
+import ma.formation.jdbc.application.model.Mission;
 import java.time.LocalDateTime;
 
 public class MissionSummary {
@@ -37,6 +38,14 @@ public class MissionSummary {
         this.chauffeurPrenom = chauffeurPrenom;
     }
 
+    // Constructor for JPQL projections
+    public MissionSummary(Long id, String destination, String depart, LocalDateTime dateHeure, Mission.EtatMission etat, String typeMission, String description, String chauffeurNom, String chauffeurPrenom) {
+        this(id, destination, depart, dateHeure,
+             etat != null ? etat.toString() : null,
+             typeMission != null ? typeMission : "STANDARD",
+             description, chauffeurNom, chauffeurPrenom);
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -0,0 +1,20 @@
+package ma.formation.jdbc.application.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Unread count cache counters (per server since its start)
+@Data
+@NoArgsConstructor
+public class NotificationCountCacheStatsDTO {
+    // Reads answered from memory, and reads that ran a count query
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    // Writes that moved or reset cached counts, and writes that dropped them
+    private long ajustements;
+    private long invalidations;
+    // Counts currently held
+    private int comptes;
+    private long ttlMs;
+}
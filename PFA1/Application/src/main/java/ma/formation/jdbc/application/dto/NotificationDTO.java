@@ -1,6 +1,7 @@
 package ma.formation.jdbc.application.dto;
 
 import ma.formation.jdbc.application.model.Notification;
+import ma.formation.jdbc.application.model.NotificationTemplates;
 import java.time.LocalDateTime;
 
 public class NotificationDTO {
@@ -40,6 +41,25 @@ public class NotificationDTO {
         }
     }
 
+    // Projection constructor, for rows read straight into DTOs; the text is rendered from the template
+    // when there is one
+    public NotificationDTO(Long id, String type, String modele, String parametres, String message,
+                           LocalDateTime dateEnvoi, boolean lue,
+                           Long missionId, String missionDestination, String missionDepart,
+                           Long employeId, String employeNom, String employePrenom) {
+        this.id = id;
+        this.type = type;
+        this.message = modele != null ? NotificationTemplates.rendre(modele, parametres) : message;
+        this.dateEnvoi = dateEnvoi;
+        this.lue = lue;
+        this.missionId = missionId;
+        this.missionDestination = missionDestination;
+        this.missionDepart = missionDepart;
+        this.employeId = employeId;
+        this.employeNom = employeNom;
+        this.employePrenom = employePrenom;
+    }
+
     // Getters and setters
     public Long getId() {
         return id;
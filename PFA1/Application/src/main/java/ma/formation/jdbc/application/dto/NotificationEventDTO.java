@@ -0,0 +1,33 @@
+package ma.formation.jdbc.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.formation.jdbc.application.model.Notification;
+
+import java.time.LocalDateTime;
+
+// Pushed notification: the notification's own columns and the ids it points to, nothing that needs loading
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationEventDTO {
+    private Long id;
+    private String type;
+    private String message;
+    private LocalDateTime dateEnvoi;
+    private boolean lue;
+    private Long missionId;
+    private Long indisponibiliteId;
+
+    public static NotificationEventDTO of(Notification notification) {
+        return new NotificationEventDTO(
+                notification.getId(),
+                notification.getType(),
+                notification.getMessage(),
+                notification.getDateEnvoi(),
+                notification.isLue(),
+                notification.getMission() != null ? notification.getMission().getId() : null,
+                notification.getIndisponibilite() != null ? notification.getIndisponibilite().getId() : null);
+    }
+}
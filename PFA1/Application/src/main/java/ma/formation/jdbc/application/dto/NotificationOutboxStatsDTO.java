@@ -0,0 +1,25 @@
+package ma.formation.jdbc.application.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Notification outbox backlog and delivery counters (counters are per server since its start)
+@Data
+@NoArgsConstructor
+public class NotificationOutboxStatsDTO {
+    // Rows waiting for delivery, including those waiting for a retry
+    private long enAttente;
+    // Rows that reached the maximum number of attempts
+    private long bloquees;
+    // Age of the oldest waiting row, 0 when the outbox is empty
+    private long retardMaxSecondes;
+    private long livrees;
+    private long echecs;
+    // Delivered rows merged into another notification of the same recipient and mission
+    private long fusionnees;
+    private long dureeDerniereVidangeMs;
+    private LocalDateTime derniereVidange;
+    private int workers;
+}
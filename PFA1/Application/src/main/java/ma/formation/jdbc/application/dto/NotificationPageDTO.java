@@ -0,0 +1,50 @@
+package ma.formation.jdbc.application.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// One keyset page of a notification feed, newest first; T is the notification view of the feed
+public class NotificationPageDTO<T> {
+    private List<T> notifications;
+    private int size;
+    // More rows in the direction asked for: older ones for a first or "before" page, newer ones for "after"
+    private boolean hasMore;
+
+    // Cursor for the next older page (dateEnvoi and id of the last notification), null when there is none
+    private LocalDateTime nextBeforeDate;
+    private Long nextBeforeId;
+
+    // Cursor of the newest notification of the page, to ask for what arrived since ("after")
+    private LocalDateTime newestDate;
+    private Long newestId;
+
+    public NotificationPageDTO() {}
+
+    public NotificationPageDTO(List<T> notifications, int size, boolean hasMore) {
+        this.notifications = notifications;
+        this.size = size;
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public List<T> getNotifications() { return notifications; }
+    public void setNotifications(List<T> notifications) { this.notifications = notifications; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public LocalDateTime getNextBeforeDate() { return nextBeforeDate; }
+    public void setNextBeforeDate(LocalDateTime nextBeforeDate) { this.nextBeforeDate = nextBeforeDate; }
+
+    public Long getNextBeforeId() { return nextBeforeId; }
+    public void setNextBeforeId(Long nextBeforeId) { this.nextBeforeId = nextBeforeId; }
+
+    public LocalDateTime getNewestDate() { return newestDate; }
+    public void setNewestDate(LocalDateTime newestDate) { this.newestDate = newestDate; }
+
+    public Long getNewestId() { return newestId; }
+    public void setNewestId(Long newestId) { this.newestId = newestId; }
+}
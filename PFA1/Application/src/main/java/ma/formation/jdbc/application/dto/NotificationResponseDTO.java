@@ -1,6 +1,7 @@
 package ma.formation.jdbc.application.dto;
 
 import ma.formation.jdbc.application.model.Notification;
+import ma.formation.jdbc.application.model.NotificationTemplates;
 import java.time.LocalDateTime;
 
 public class NotificationResponseDTO {
@@ -46,6 +47,25 @@ public class NotificationResponseDTO {
         }
     }
 
+    // Projection constructor, for rows read straight into DTOs; the text is rendered from the template
+    // when there is one
+    public NotificationResponseDTO(Long id, String type, String modele, String parametres, String message,
+                                   LocalDateTime dateEnvoi, boolean lue, Long missionId, String missionDestination,
+                                   Long indisponibiliteId, String indisponibiliteType,
+                                   LocalDateTime indisponibiliteDebut, LocalDateTime indisponibiliteFin) {
+        this.id = id;
+        this.type = type;
+        this.message = modele != null ? NotificationTemplates.rendre(modele, parametres) : message;
+        this.dateEnvoi = dateEnvoi;
+        this.lue = lue;
+        this.missionId = missionId;
+        this.missionDestination = missionDestination;
+        this.indisponibiliteId = indisponibiliteId;
+        this.indisponibiliteType = indisponibiliteType;
+        this.indisponibiliteDebut = indisponibiliteDebut;
+        this.indisponibiliteFin = indisponibiliteFin;
+    }
+
     // Getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -0,0 +1,29 @@
+package ma.formation.jdbc.application.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// SQL statements and JDBC time of the requests to one endpoint (per server since its start or last reset)
+@Data
+@NoArgsConstructor
+public class SqlEndpointStatsDTO {
+    // HTTP method and path pattern, and the controller method that handled it
+    private String endpoint;
+    private String handler;
+    private long requetes;
+    private long statementsTotal;
+    private double statementsMoyenne;
+    private long statementsMax;
+    private double jdbcMsTotal;
+    private double jdbcMsMoyenne;
+    private double jdbcMsMax;
+    // Requests over the statement or JDBC time budget, and requests that repeated one statement (N+1)
+    private long horsBudget;
+    private long requetesNPlusUn;
+    private String dernierStatementRepete;
+    // Requests by statement count and by JDBC time, keyed by bucket upper bound ("<=5", ">100")
+    private Map<String, Long> histogrammeStatements;
+    private Map<String, Long> histogrammeJdbcMs;
+}
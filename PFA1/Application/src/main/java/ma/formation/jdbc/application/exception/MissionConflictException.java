@@ -0,0 +1,11 @@
+package ma.formation.jdbc.application.exception;
+
+/**
+ * Raised when a mission transition is not allowed from the mission's current state, or when the
+ * mission was changed concurrently between the read and the conditional update. Mapped to HTTP 409.
+ */
+public class MissionConflictException extends RuntimeException {
+    public MissionConflictException(String message) {
+        super(message);
+    }
+}
@@ -11,6 +11,7 @@ public class AuthResponse {
     private Set<String> permissions;
     private Long employeId; // Add employeId for employee users
     private Long chauffeurId; // Add chauffeurId for driver users
+    private Long adminId; // Add adminId for admin users
 
     // Getters and Setters
     public Long getId() { return id; }
@@ -29,6 +30,8 @@ public class AuthResponse {
     public void setEmployeId(Long employeId) { this.employeId = employeId; }
     public Long getChauffeurId() { return chauffeurId; }
     public void setChauffeurId(Long chauffeurId) { this.chauffeurId = chauffeurId; }
+    public Long getAdminId() { return adminId; }
+    public void setAdminId(Long adminId) { this.adminId = adminId; }
 
     public static AuthResponse fromUser(User user) {
         AuthResponse response = new AuthResponse();
@@ -58,4 +61,10 @@ public class AuthResponse {
         response.setChauffeurId(chauffeurId);
         return response;
     }
+
+    public static AuthResponse fromUserWithAdminId(User user, Long adminId) {
+        AuthResponse response = fromUser(user);
+        response.setAdminId(adminId);
+        return response;
+    }
 }
@@ -1,5 +1,6 @@
 package ma.formation.jdbc.application.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
@@ -22,17 +23,21 @@ public class Chauffeur {
     @Column(nullable = false)
     private String telephone;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "vehicule_id")
     private Vehicule vehicule;
 
+    // Inverse sides and the account are never serialized: serializing them would load them (and loop back)
+    @JsonIgnore
     @OneToMany(mappedBy = "chauffeur", cascade = CascadeType.ALL)
     private List<Mission> missions;
 
+    @JsonIgnore
     @OneToMany(mappedBy = "chauffeur", cascade = CascadeType.ALL)
     private List<Indisponibilite> indisponibilites;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @JsonIgnore
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "id")
     private User user;
 
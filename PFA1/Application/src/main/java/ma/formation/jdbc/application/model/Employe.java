@@ -1,5 +1,6 @@
 package ma.formation.jdbc.application.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
@@ -28,13 +29,17 @@ public class Employe {
     @Column(nullable = false)
     private boolean actif = true;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    // Inverse sides and the account are never serialized: serializing them would load them (and loop back)
+    @JsonIgnore
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "id")
     private User user;
 
+    @JsonIgnore
     @OneToMany(mappedBy = "employe", cascade = CascadeType.ALL)
     private List<Mission> missions;
 
+    @JsonIgnore
     @OneToMany(mappedBy = "employe", cascade = CascadeType.ALL)
     private List<Notification> notifications;
 }
@@ -0,0 +1,15 @@
+package ma.formation.jdbc.application.model;
+
+/**
+ * Shared settings of the table-based id generators. IDENTITY columns make Hibernate insert each row
+ * immediately to learn its id, which disables JDBC batching; a pooled table generator hands out
+ * {@link #ALLOCATION_SIZE} ids per round trip instead.
+ */
+public final class IdGenerators {
+    public static final String TABLE = "id_generators";
+    public static final String SEGMENT_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGenerators() {}
+}
@@ -12,7 +12,7 @@ public class Indisponibilite {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chauffeur_id")
     private Chauffeur chauffeur;
 
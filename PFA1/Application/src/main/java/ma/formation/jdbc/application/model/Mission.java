@@ -6,10 +6,20 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "missions")
+@Table(name = "missions", indexes = {
+    // Keyset pagination on (dateHeure, id), alone or behind an equality filter
+    @Index(name = "idx_missions_date_id", columnList = "dateHeure, id"),
+    @Index(name = "idx_missions_etat_date_id", columnList = "etat, dateHeure, id"),
+    @Index(name = "idx_missions_chauffeur_date_id", columnList = "chauffeur_id, dateHeure, id"),
+    @Index(name = "idx_missions_employe_date_id", columnList = "employe_id, dateHeure, id"),
+    @Index(name = "idx_missions_vehicule_date_id", columnList = "vehicule_id, dateHeure, id")
+})
 public class Mission {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "mission_id")
+    @TableGenerator(name = "mission_id", table = IdGenerators.TABLE,
+                    pkColumnName = IdGenerators.SEGMENT_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+                    pkColumnValue = "missions", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
@@ -38,7 +48,7 @@ public class Mission {
         this.etat = etat;
     }
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chauffeur_id")
     private Chauffeur chauffeur;
 
@@ -50,11 +60,11 @@ public class Mission {
         this.chauffeur = chauffeur;
     }
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "employe_id")
     private Employe employe;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "vehicule_id")
     private Vehicule vehicule;
 
@@ -64,6 +74,11 @@ public class Mission {
     @Column(nullable = false)
     private boolean acceptee;
 
+    // Optimistic lock for entity saves; state transitions bump it in their conditional UPDATE
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     public boolean isAcceptee() {
         return acceptee;
     }
@@ -0,0 +1,62 @@
+package ma.formation.jdbc.application.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+
+@Data
+@Entity
+@Table(name = "mission_counters")
+public class MissionCounter {
+    @EmbeddedId
+    private Key key;
+
+    @Column(nullable = false)
+    private long enAttente;
+
+    @Column(nullable = false)
+    private long commencee;
+
+    @Column(nullable = false)
+    private long enCours;
+
+    @Column(nullable = false)
+    private long terminee;
+
+    @Column(nullable = false)
+    private long refusee;
+
+    public long get(Mission.EtatMission etat) {
+        return switch (etat) {
+            case EN_ATTENTE -> enAttente;
+            case COMMENCEE -> commencee;
+            case EN_COURS -> enCours;
+            case TERMINEE -> terminee;
+            case REFUSEE -> refusee;
+        };
+    }
+
+    public long getTotal() {
+        return enAttente + commencee + enCours + terminee + refusee;
+    }
+
+    public enum Scope {
+        GLOBAL, CHAUFFEUR, EMPLOYE
+    }
+
+    // Counter row identity: the global row uses scopeId 0
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Embeddable
+    public static class Key implements Serializable {
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 16)
+        private Scope scope;
+
+        @Column(nullable = false)
+        private Long scopeId;
+    }
+}
@@ -1,34 +1,52 @@
 package ma.formation.jdbc.application.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Formula;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Data
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        // Unread counts are range counts above the recipient's read cursor (see NotificationReadCursor)
+        @Index(name = "idx_notifications_employe_id", columnList = "employe_id, id"),
+        @Index(name = "idx_notifications_chauffeur_id", columnList = "chauffeur_id, id"),
+        @Index(name = "idx_notifications_admin_id", columnList = "admin_id, id"),
+        @Index(name = "idx_notifications_type_id", columnList = "type, id"),
+        // Feeds are keyset pages on (dateEnvoi, id), newest first (see NotificationRepository.findFeedPage)
+        @Index(name = "idx_notifications_employe_date_id", columnList = "employe_id, dateEnvoi, id"),
+        @Index(name = "idx_notifications_chauffeur_date_id", columnList = "chauffeur_id, dateEnvoi, id"),
+        @Index(name = "idx_notifications_admin_date_id", columnList = "admin_id, dateEnvoi, id"),
+        @Index(name = "idx_notifications_type_date_id", columnList = "type, dateEnvoi, id"),
+        @Index(name = "idx_notifications_date_id", columnList = "dateEnvoi, id")
+})
 public class Notification {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "notification_id")
+    @TableGenerator(name = "notification_id", table = IdGenerators.TABLE,
+                    pkColumnName = IdGenerators.SEGMENT_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+                    pkColumnValue = "notifications", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "employe_id")
     private Employe employe;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "admin_id")
     private Admin admin;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chauffeur_id")
     private Chauffeur chauffeur;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "mission_id")
     private Mission mission;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "indisponibilite_id")
     private Indisponibilite indisponibilite;
 
@@ -38,9 +56,55 @@ public class Notification {
     @Column(nullable = false)
     private LocalDateTime dateEnvoi;
 
+    // Read on its own; see isLue() for the read state including the read cursors
     @Column(nullable = false)
     private boolean lue;
 
+    // Highest read cursor covering this notification: its employee, its chauffeur, its admin
+    @JsonIgnore
+    @Formula("(SELECT MAX(c.dernier_id_lu) FROM notification_read_cursors c " +
+             "WHERE (c.scope = 'EMPLOYE' AND c.scope_id = employe_id) " +
+             "OR (c.scope = 'CHAUFFEUR' AND c.scope_id = chauffeur_id) " +
+             "OR (c.scope = 'ADMIN' AND c.scope_id = admin_id))")
+    private Long curseurLecture;
+
+    // Template code and encoded parameters of the text (see NotificationTemplates)
+    @JsonIgnore
+    @Column(length = 60)
+    private String modele;
+
+    @JsonIgnore
+    @Column(length = NotificationTemplates.PARAMETRES_MAX)
+    private String parametres;
+
+    // Stored text, for notifications without a template
     @Column(columnDefinition = "TEXT")
     private String message;
+
+    // Outbox row this notification was delivered from: a second delivery of the same row fails here
+    @Column(unique = true)
+    private Long outboxId;
+
+    public String getMessage() {
+        return modele != null ? NotificationTemplates.rendre(modele, parametres) : message;
+    }
+
+    /** Sets the text as template {@code modele} of NotificationTemplates with these parameters. */
+    public void rediger(String modele, Object... parametres) {
+        String encodes = NotificationTemplates.encoder(parametres);
+        if (encodes.length() > NotificationTemplates.PARAMETRES_MAX) {
+            // Too long for the parameters column (free text such as a problem report): store the text
+            this.modele = null;
+            this.parametres = null;
+            this.message = NotificationTemplates.rendre(modele, encodes, Locale.ROOT);
+            return;
+        }
+        this.modele = modele;
+        this.parametres = encodes;
+        this.message = null;
+    }
+
+    public boolean isLue() {
+        return lue || (curseurLecture != null && id != null && id <= curseurLecture);
+    }
 }
@@ -0,0 +1,50 @@
+package ma.formation.jdbc.application.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * A read employee notification moved out of {@code notifications} by the retention job (see
+ * NotificationArchiveService), so the indexes the unread counts and feeds use stay small. It keeps the
+ * notification's id; recipients and subjects are plain ids so archived rows never hold back a delete.
+ * Archived notifications are read by definition.
+ */
+@Data
+@Entity
+@Table(name = "notifications_archive", indexes = {
+        @Index(name = "idx_notifications_archive_employe_date_id", columnList = "employeId, dateEnvoi, id")
+})
+public class NotificationArchive {
+    @Id
+    private Long id;
+
+    private Long employeId;
+
+    private Long adminId;
+
+    private Long chauffeurId;
+
+    private Long missionId;
+
+    private Long indisponibiliteId;
+
+    @Column(nullable = false)
+    private String type;
+
+    // Template and parameters, or stored text, as on the notification
+    @Column(length = 60)
+    private String modele;
+
+    @Column(length = NotificationTemplates.PARAMETRES_MAX)
+    private String parametres;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    @Column(nullable = false)
+    private LocalDateTime dateEnvoi;
+
+    @Column(nullable = false)
+    private LocalDateTime dateArchivage;
+}
@@ -0,0 +1,74 @@
+package ma.formation.jdbc.application.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * A notification waiting to be delivered, written in the same transaction as the change it reports.
+ * Recipients and subjects are plain ids so writing it never loads or cascades anything; the outbox
+ * dispatcher turns it into a {@link Notification} and deletes it in one transaction.
+ */
+@Data
+@Entity
+@Table(name = "notification_outbox")
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "notification_outbox_id")
+    @TableGenerator(name = "notification_outbox_id", table = IdGenerators.TABLE,
+                    pkColumnName = IdGenerators.SEGMENT_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+                    pkColumnValue = "notification_outbox", allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    private Long employeId;
+
+    private Long adminId;
+
+    private Long chauffeurId;
+
+    private Long missionId;
+
+    private Long indisponibiliteId;
+
+    @Column(nullable = false)
+    private String type;
+
+    // Template and parameters, or stored text, as on the notification
+    @Column(length = 60)
+    private String modele;
+
+    @Column(length = NotificationTemplates.PARAMETRES_MAX)
+    private String parametres;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    // Time of the event, kept as the notification's dateEnvoi
+    @Column(nullable = false)
+    private LocalDateTime dateEnvoi;
+
+    // Failed delivery attempts; rows at the configured maximum are parked until retried by hand
+    @Column(nullable = false)
+    private int tentatives;
+
+    // Not before this time after a failure (null: as soon as possible)
+    private LocalDateTime prochainEssai;
+
+    @Column(length = 500)
+    private String derniereErreur;
+
+    public static NotificationOutbox of(Notification notification) {
+        NotificationOutbox event = new NotificationOutbox();
+        event.setEmployeId(notification.getEmploye() != null ? notification.getEmploye().getId() : null);
+        event.setAdminId(notification.getAdmin() != null ? notification.getAdmin().getId() : null);
+        event.setChauffeurId(notification.getChauffeur() != null ? notification.getChauffeur().getId() : null);
+        event.setMissionId(notification.getMission() != null ? notification.getMission().getId() : null);
+        event.setIndisponibiliteId(notification.getIndisponibilite() != null ? notification.getIndisponibilite().getId() : null);
+        event.setType(notification.getType());
+        event.setModele(notification.getModele());
+        event.setParametres(notification.getParametres());
+        event.setMessage(notification.getModele() != null ? null : notification.getMessage());
+        event.setDateEnvoi(notification.getDateEnvoi() != null ? notification.getDateEnvoi() : LocalDateTime.now());
+        return event;
+    }
+}
@@ -0,0 +1,42 @@
+package ma.formation.jdbc.application.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+
+/**
+ * Read watermark of one notification recipient: every notification of the recipient with an id up to
+ * {@code dernierIdLu} is read, whatever its {@code lue} flag says. "Mark all read" only moves this row;
+ * the per-row flag remains for notifications read one by one above the watermark.
+ * <p>
+ * Scopes: an employee, chauffeur or admin (their notifications). Scopes are plain strings so queries can
+ * name them as literals.
+ */
+@Data
+@Entity
+@Table(name = "notification_read_cursors")
+public class NotificationReadCursor {
+    public static final String EMPLOYE = "EMPLOYE";
+    public static final String CHAUFFEUR = "CHAUFFEUR";
+    public static final String ADMIN = "ADMIN";
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(nullable = false)
+    private long dernierIdLu;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Embeddable
+    public static class Key implements Serializable {
+        @Column(nullable = false, length = 16)
+        private String scope;
+
+        @Column(nullable = false)
+        private Long scopeId;
+    }
+}
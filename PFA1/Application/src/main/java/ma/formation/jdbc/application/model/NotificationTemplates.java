@@ -0,0 +1,143 @@
+package ma.formation.jdbc.application.model;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Notification texts. A notification stores the code of its template and the template's parameters
+ * (see {@link Notification#rediger}); the text is rendered when it is read, in the reader's locale.
+ * Templates come from the {@code notifications/modeles} bundle and are compiled once per locale into
+ * literal parts and parameter indexes, so rendering is a plain concatenation. Locales without a bundle
+ * of their own use the base (French) one.
+ */
+public final class NotificationTemplates {
+    public static final String MISSION_ASSIGNEE_ADMIN = "mission.assignee.admin";
+    public static final String MISSION_ASSIGNEE_CHAUFFEUR = "mission.assignee.chauffeur";
+    public static final String MISSION_ASSIGNEE_DISPATCH = "mission.assignee.dispatch";
+    public static final String MISSION_ACCEPTEE = "mission.acceptee";
+    public static final String MISSION_COMMENCEE = "mission.commencee";
+    public static final String MISSION_ACCEPTEE_COMMENCEE = "mission.acceptee.commencee";
+    public static final String MISSION_TERMINEE = "mission.terminee";
+    public static final String MISSION_REFUSEE = "mission.refusee";
+    public static final String MISSION_ABANDONNEE = "mission.abandonnee";
+    public static final String MISSION_PROBLEME = "mission.probleme";
+    public static final String CONGE_ACCEPTE = "conge.accepte";
+    public static final String CONGE_REFUSE = "conge.refuse";
+    public static final String CONGE_REFUSE_RAISON = "conge.refuse.raison";
+    public static final String DEMANDE_CONGE = "conge.demande";
+
+    // Longest encoded parameters stored; longer ones are stored as the rendered text instead
+    public static final int PARAMETRES_MAX = 1000;
+
+    private static final String BUNDLE = "notifications/modeles";
+    private static final char SEPARATEUR = '\u001F';
+    private static final Pattern PARAMETRE = Pattern.compile("\\{(\\d+)}");
+
+    private static final Map<Locale, Map<String, Modele>> modeles = new ConcurrentHashMap<>();
+
+    private NotificationTemplates() {}
+
+    /** Text of template {@code code} with its encoded parameters, in the current request's locale. */
+    public static String rendre(String code, String parametres) {
+        return rendre(code, parametres, LocaleContextHolder.getLocale());
+    }
+
+    public static String rendre(String code, String parametres, Locale locale) {
+        Modele modele = modeles(locale).get(code);
+        List<String> valeurs = decoder(parametres);
+        return modele != null ? modele.rendre(valeurs) : code + " " + String.join(" ", valeurs);
+    }
+
+    /** Parameters as stored in the {@code parametres} column. */
+    public static String encoder(Object... valeurs) {
+        return Arrays.stream(valeurs)
+                .map(valeur -> String.valueOf(valeur).replace(SEPARATEUR, ' '))
+                .collect(Collectors.joining(String.valueOf(SEPARATEUR)));
+    }
+
+    /**
+     * Encoded parameters with which template {@code code} renders exactly {@code texte} in the base
+     * locale, or null; used to move stored texts to their template.
+     */
+    public static String parametresDe(String code, String texte) {
+        Modele modele = modeles(Locale.ROOT).get(code);
+        if (modele == null || texte == null) {
+            return null;
+        }
+        Matcher matcher = modele.motif().matcher(texte);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String[] valeurs = new String[modele.nombreParametres()];
+        Arrays.fill(valeurs, "");
+        for (int i = 0; i < modele.indices().length; i++) {
+            valeurs[modele.indices()[i]] = matcher.group(i + 1);
+        }
+        String parametres = encoder((Object[]) valeurs);
+        // The match can split the text differently from how it was built; keep only exact round trips
+        return texte.equals(modele.rendre(decoder(parametres))) ? parametres : null;
+    }
+
+    private static List<String> decoder(String parametres) {
+        if (parametres == null) {
+            return List.of();
+        }
+        List<String> valeurs = new ArrayList<>();
+        int debut = 0;
+        for (int fin; (fin = parametres.indexOf(SEPARATEUR, debut)) >= 0; debut = fin + 1) {
+            valeurs.add(parametres.substring(debut, fin));
+        }
+        valeurs.add(parametres.substring(debut));
+        return valeurs;
+    }
+
+    private static Map<String, Modele> modeles(Locale locale) {
+        return modeles.computeIfAbsent(locale, NotificationTemplates::charger);
+    }
+
+    private static Map<String, Modele> charger(Locale locale) {
+        ResourceBundle bundle = ResourceBundle.getBundle(BUNDLE, locale,
+                ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_PROPERTIES));
+        return bundle.keySet().stream().collect(Collectors.toUnmodifiableMap(code -> code,
+                code -> Modele.compiler(bundle.getString(code))));
+    }
+
+    // Literal parts around the parameters: textes[0] {indices[0]} textes[1] ... textes[n]
+    private record Modele(String[] textes, int[] indices, int nombreParametres, Pattern motif) {
+        static Modele compiler(String texte) {
+            List<String> textes = new ArrayList<>();
+            List<Integer> indices = new ArrayList<>();
+            StringBuilder motif = new StringBuilder();
+            Matcher matcher = PARAMETRE.matcher(texte);
+            int debut = 0;
+            while (matcher.find()) {
+                textes.add(texte.substring(debut, matcher.start()));
+                indices.add(Integer.parseInt(matcher.group(1)));
+                motif.append(Pattern.quote(texte.substring(debut, matcher.start()))).append("(.*?)");
+                debut = matcher.end();
+            }
+            textes.add(texte.substring(debut));
+            motif.append(Pattern.quote(texte.substring(debut)));
+            int nombreParametres = indices.stream().mapToInt(i -> i + 1).max().orElse(0);
+            return new Modele(textes.toArray(String[]::new), indices.stream().mapToInt(i -> i).toArray(),
+                    nombreParametres, Pattern.compile(motif.toString(), Pattern.DOTALL));
+        }
+
+        String rendre(List<String> valeurs) {
+            StringBuilder texte = new StringBuilder(textes[0]);
+            for (int i = 0; i < indices.length; i++) {
+                texte.append(indices[i] < valeurs.size() ? valeurs.get(indices[i]) : "").append(textes[i + 1]);
+            }
+            return texte.toString();
+        }
+    }
+}
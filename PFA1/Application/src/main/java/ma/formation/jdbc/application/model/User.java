@@ -23,7 +23,8 @@ public class User {
 
     private boolean active = true;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    // Lazy like every association; batch-loaded (hibernate.default_batch_fetch_size) when read for several users
+    @ElementCollection
     @CollectionTable(name = "user_permissions", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "permission")
     private Set<String> permissions = new HashSet<>();
@@ -1,7 +1,9 @@
 package ma.formation.jdbc.application.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import java.util.List;
 
 @Data
 @Entity
@@ -26,6 +28,15 @@ public class Vehicule {
     @Column(nullable = false)
     private boolean disponible;
 
-    @OneToOne(mappedBy = "vehicule")
-    private Chauffeur chauffeur;
+    // Inverse side of Chauffeur.vehicule (many-to-one), so a lazy collection: a mappedBy one-to-one cannot be
+    // proxied and would be queried with every vehicle. Never serialized (it would loop back through Chauffeur)
+    @JsonIgnore
+    @OneToMany(mappedBy = "vehicule")
+    private List<Chauffeur> chauffeurs;
+
+    // Driver the vehicle is assigned to, if any
+    @JsonIgnore
+    public Chauffeur getChauffeur() {
+        return chauffeurs == null || chauffeurs.isEmpty() ? null : chauffeurs.get(0);
+    }
 }
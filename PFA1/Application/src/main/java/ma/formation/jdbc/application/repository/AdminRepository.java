@@ -3,9 +3,16 @@ package ma.formation.jdbc.application.repository;
 import ma.formation.jdbc.application.model.Admin;
 import ma.formation.jdbc.application.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface AdminRepository extends JpaRepository<Admin, Long> {
     Optional<Admin> findByUser(User user);
+
+    // Recipients of admin-bound notifications with their login email (see AdminRecipientRegistry);
+    // rows are [id, email]
+    @Query("SELECT a.id, u.email FROM Admin a LEFT JOIN a.user u ORDER BY a.id")
+    List<Object[]> findAllIdsAndEmails();
 }
@@ -1,15 +1,55 @@
 package ma.formation.jdbc.application.repository;
 
+import jakarta.persistence.LockModeType;
+import ma.formation.jdbc.application.dto.MissionFormDataDTO;
 import ma.formation.jdbc.application.model.Chauffeur;
 import ma.formation.jdbc.application.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface ChauffeurRepository extends JpaRepository<Chauffeur, Long> {
+    // Driver lists and details show the account email and the vehicle: both joined, not loaded per driver
+    @Override
+    @EntityGraph(attributePaths = {"user", "vehicule"})
+    List<Chauffeur> findAll();
+
+    @EntityGraph(attributePaths = {"user", "vehicule"})
+    Optional<Chauffeur> findDetailsById(Long id);
+
     List<Chauffeur> findByActifTrue();
 
     Optional<Chauffeur> findByUser(User user);
     
     Optional<Chauffeur> findByUserId(Long userId);
+
+    // Id chunks in ascending order, for batch jobs
+    @Query("SELECT c.id FROM Chauffeur c WHERE c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Create-mission form: every driver with its account email (availability comes from AvailabilityIndex)
+    @Query("SELECT new ma.formation.jdbc.application.dto.MissionFormDataDTO$ChauffeurDTO(" +
+           "c.id, COALESCE(c.nom, 'N/A'), COALESCE(c.prenom, 'N/A'), COALESCE(u.email, 'N/A')) " +
+           "FROM Chauffeur c LEFT JOIN c.user u ORDER BY c.id")
+    List<MissionFormDataDTO.ChauffeurDTO> findFormOptions();
+
+    // Lock the drivers' rows, in id order, so assignments of the same driver run one after the other
+    // (see AvailabilityIndex.verrouillerChauffeurs)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id FROM Chauffeur c WHERE c.id IN :ids ORDER BY c.id")
+    List<Long> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Active flag of every driver, for the in-memory availability index (rows are [id, actif])
+    @Query("SELECT c.id, c.actif FROM Chauffeur c")
+    List<Object[]> findAllActifs();
+
+    // Active drivers and their own vehicle, for the dispatcher (rows are [id, nom, prenom, vehiculeId])
+    @Query("SELECT c.id, c.nom, c.prenom, c.vehicule.id FROM Chauffeur c WHERE c.actif = true ORDER BY c.id")
+    List<Object[]> findDispatchProfiles();
 }
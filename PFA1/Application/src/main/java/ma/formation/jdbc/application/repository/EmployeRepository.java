@@ -1,11 +1,40 @@
 package ma.formation.jdbc.application.repository;
 
+import ma.formation.jdbc.application.dto.MissionFormDataDTO;
 import ma.formation.jdbc.application.model.Employe;
 import ma.formation.jdbc.application.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface EmployeRepository extends JpaRepository<Employe, Long> {
+    // Employee lists and details show the account email: joined, not loaded per employee
+    @Override
+    @EntityGraph(attributePaths = "user")
+    List<Employe> findAll();
+
+    @EntityGraph(attributePaths = "user")
+    Optional<Employe> findDetailsById(Long id);
+
     Optional<Employe> findByUser(User user);
     Optional<Employe> findByUserId(Long userId);
+
+    // Id chunks in ascending order, for batch jobs
+    @Query("SELECT e.id FROM Employe e WHERE e.id > :afterId ORDER BY e.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Which of the given ids exist, in one IN query (bulk mission creation)
+    @Query("SELECT e.id FROM Employe e WHERE e.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Create-mission form: every employee with its account email
+    @Query("SELECT new ma.formation.jdbc.application.dto.MissionFormDataDTO$EmployeDTO(" +
+           "e.id, COALESCE(e.nom, 'N/A'), COALESCE(e.prenom, 'N/A'), COALESCE(u.email, 'N/A')) " +
+           "FROM Employe e LEFT JOIN e.user u ORDER BY e.id")
+    List<MissionFormDataDTO.EmployeDTO> findFormOptions();
 }
@@ -1,13 +1,38 @@
 package ma.formation.jdbc.application.repository;
 
+import jakarta.persistence.LockModeType;
 import ma.formation.jdbc.application.model.Indisponibilite;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface IndisponibiliteRepository extends JpaRepository<Indisponibilite, Long> {
+    // Leave request lists show the driver (see IndisponibiliteResponseDTO): joined, not loaded per request
+    @EntityGraph(attributePaths = "chauffeur")
     List<Indisponibilite> findByChauffeurId(Long chauffeurId);
 
+    @EntityGraph(attributePaths = "chauffeur")
     List<Indisponibilite> findByAccepteeFalse();
-    
+
+    @EntityGraph(attributePaths = "chauffeur")
     List<Indisponibilite> findByStatut(String statut);
+
+    // Accepted leave not yet over (rows are [id, chauffeurId, dateDebut, dateFin])
+    @Query("SELECT i.id, i.chauffeur.id, i.dateDebut, i.dateFin FROM Indisponibilite i " +
+           "WHERE i.acceptee = true AND i.dateFin > :after")
+    List<Object[]> findAccepteesEndingAfter(@Param("after") LocalDateTime after);
+
+    // Accepted leave of these drivers overlapping [debut, fin), read as committed rather than from the
+    // transaction's snapshot (rows are [id, chauffeurId, dateDebut, dateFin])
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT i.id, i.chauffeur.id, i.dateDebut, i.dateFin FROM Indisponibilite i " +
+           "WHERE i.chauffeur.id IN :chauffeurIds AND i.acceptee = true AND i.dateDebut < :fin AND i.dateFin > :debut")
+    List<Object[]> lockAccepteesByChauffeurIdIn(@Param("chauffeurIds") Collection<Long> chauffeurIds,
+                                                @Param("debut") LocalDateTime debut,
+                                                @Param("fin") LocalDateTime fin);
 }
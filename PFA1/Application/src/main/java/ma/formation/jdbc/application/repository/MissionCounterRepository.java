@@ -0,0 +1,38 @@
+package ma.formation.jdbc.application.repository;
+
+import jakarta.persistence.LockModeType;
+import ma.formation.jdbc.application.model.MissionCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
+
+public interface MissionCounterRepository extends JpaRepository<MissionCounter, MissionCounter.Key> {
+    // Lock counter rows before recounting them so concurrent transitions queue behind the rebuild
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM MissionCounter c WHERE c.key.scope = :scope AND c.key.scopeId IN :scopeIds")
+    List<MissionCounter> lockByScope(@Param("scope") MissionCounter.Scope scope,
+                                     @Param("scopeIds") Collection<Long> scopeIds);
+
+    @Modifying
+    @Query("DELETE FROM MissionCounter c WHERE c.key.scope = :scope AND c.key.scopeId = :scopeId")
+    int deleteByScope(@Param("scope") MissionCounter.Scope scope, @Param("scopeId") Long scopeId);
+
+    // Remove rows left behind by deleted drivers and employees
+    @Modifying
+    @Query("DELETE FROM MissionCounter c WHERE c.key.scope = :scope " +
+           "AND c.key.scopeId NOT IN (SELECT ch.id FROM Chauffeur ch)")
+    int deleteOrphanChauffeurCounters(@Param("scope") MissionCounter.Scope scope);
+
+    @Modifying
+    @Query("DELETE FROM MissionCounter c WHERE c.key.scope = :scope " +
+           "AND c.key.scopeId NOT IN (SELECT e.id FROM Employe e)")
+    int deleteOrphanEmployeCounters(@Param("scope") MissionCounter.Scope scope);
+
+    @Query("SELECT c FROM MissionCounter c WHERE c.key.scope = :scope AND c.key.scopeId IN :scopeIds")
+    List<MissionCounter> findByScope(@Param("scope") MissionCounter.Scope scope,
+                                     @Param("scopeIds") Collection<Long> scopeIds);
+}
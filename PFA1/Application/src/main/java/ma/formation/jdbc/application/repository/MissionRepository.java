@@ -1,13 +1,25 @@
 package ma.formation.jdbc.application.repository;
 
+import jakarta.persistence.LockModeType;
+import ma.formation.jdbc.application.dto.DispatchMissionView;
+import ma.formation.jdbc.application.dto.MissionResponseDTO;
+import ma.formation.jdbc.application.dto.MissionStateView;
+import ma.formation.jdbc.application.dto.MissionSummary;
+import ma.formation.jdbc.application.model.Chauffeur;
 import ma.formation.jdbc.application.model.Mission;
+import ma.formation.jdbc.application.model.Vehicule;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface MissionRepository extends JpaRepository<Mission, Long> {
+public interface MissionRepository extends JpaRepository<Mission, Long>, MissionRepositoryCustom {
     List<Mission> findByEtat(Mission.EtatMission etat);
 
     List<Mission> findByChauffeurId(Long chauffeurId);
@@ -25,6 +37,62 @@ public interface MissionRepository extends JpaRepository<Mission, Long> {
     // Get all missions ordered by date descending (most recent first)
     List<Mission> findAllByOrderByDateHeureDesc();
 
+    // Select list shared by the MissionResponseDTO projections below
+    String MISSION_RESPONSE_SELECT =
+           "SELECT new ma.formation.jdbc.application.dto.MissionResponseDTO(" +
+           "m.id, m.destination, m.depart, m.dateHeure, m.typeMission, m.instructions, m.etat, m.probleme, m.acceptee, " +
+           "e.id, e.nom, e.prenom, c.id, c.nom, c.prenom, c.telephone, " +
+           "v.id, v.immatriculation, v.marque, v.modele) " +
+           "FROM Mission m LEFT JOIN m.employe e LEFT JOIN m.chauffeur c LEFT JOIN m.vehicule v ";
+
+    // Mission list projections for the driver and employee views
+    @Query(MISSION_RESPONSE_SELECT + "WHERE m.chauffeur.id = :chauffeurId ORDER BY m.dateHeure DESC, m.id DESC")
+    List<MissionResponseDTO> findResponsesByChauffeurId(@Param("chauffeurId") Long chauffeurId);
+
+    @Query(MISSION_RESPONSE_SELECT + "WHERE m.employe.id = :employeId ORDER BY m.dateHeure DESC, m.id DESC")
+    List<MissionResponseDTO> findResponsesByEmployeId(@Param("employeId") Long employeId);
+
+    @Query(MISSION_RESPONSE_SELECT + "WHERE m.etat = :etat ORDER BY m.dateHeure DESC, m.id DESC")
+    List<MissionResponseDTO> findResponsesByEtat(@Param("etat") Mission.EtatMission etat);
+
+    @Query(MISSION_RESPONSE_SELECT + "WHERE m.id = :id")
+    Optional<MissionResponseDTO> findResponseById(@Param("id") Long id);
+
+    @Query("SELECT new ma.formation.jdbc.application.dto.MissionSummary(" +
+           "m.id, m.destination, m.depart, m.dateHeure, m.etat, m.typeMission, m.instructions, c.nom, c.prenom) " +
+           "FROM Mission m LEFT JOIN m.chauffeur c WHERE m.employe.id = :employeId")
+    List<MissionSummary> findSummariesByEmployeId(@Param("employeId") Long employeId);
+
+    // Mission counts per state (rows are [etat, count])
+    @Query("SELECT m.etat, COUNT(m) FROM Mission m GROUP BY m.etat")
+    List<Object[]> countGroupByEtat();
+
+    // Per-owner state counts for a chunk of drivers / employees (rows are [ownerId, etat, count])
+    @Query("SELECT m.chauffeur.id, m.etat, COUNT(m) FROM Mission m WHERE m.chauffeur.id IN :chauffeurIds GROUP BY m.chauffeur.id, m.etat")
+    List<Object[]> countGroupByChauffeurAndEtat(@Param("chauffeurIds") Collection<Long> chauffeurIds);
+
+    @Query("SELECT m.employe.id, m.etat, COUNT(m) FROM Mission m WHERE m.employe.id IN :employeIds GROUP BY m.employe.id, m.etat")
+    List<Object[]> countGroupByEmployeAndEtat(@Param("employeIds") Collection<Long> employeIds);
+
+    // Narrow read of the columns a state transition depends on
+    @Query("SELECT new ma.formation.jdbc.application.dto.MissionStateView(" +
+           "m.id, m.etat, m.acceptee, m.probleme, m.destination, m.version, c.id, c.nom, c.prenom, m.employe.id, m.vehicule.id, m.dateHeure) " +
+           "FROM Mission m LEFT JOIN m.chauffeur c WHERE m.id = :id")
+    Optional<MissionStateView> findStateById(@Param("id") Long id);
+
+    // Conditional transition: only applies if the mission is still in the state and version that was read
+    @Modifying
+    @Query("UPDATE Mission m SET m.etat = :cible, m.chauffeur = :chauffeur, m.acceptee = :acceptee, " +
+           "m.probleme = :probleme, m.version = m.version + 1 " +
+           "WHERE m.id = :id AND m.etat = :etat AND m.version = :version")
+    int applyTransition(@Param("id") Long id,
+                        @Param("etat") Mission.EtatMission etat,
+                        @Param("version") Long version,
+                        @Param("cible") Mission.EtatMission cible,
+                        @Param("chauffeur") Chauffeur chauffeur,
+                        @Param("acceptee") boolean acceptee,
+                        @Param("probleme") String probleme);
+
     // Find missions with problems that are back in EN_ATTENTE status (for reassignment)
     List<Mission> findByProblemeIsNotNullAndEtat(Mission.EtatMission etat);
 
@@ -40,4 +108,31 @@ public interface MissionRepository extends JpaRepository<Mission, Long> {
     // Check if vehicle is assigned to active missions
     boolean existsByVehiculeAndEtatIn(ma.formation.jdbc.application.model.Vehicule vehicule,
                                      List<Mission.EtatMission> etats);
+
+    // Planned missions with their driver, vehicle and start, for the in-memory availability index
+    // (rows are [id, etat, chauffeurId, vehiculeId, dateHeure])
+    @Query("SELECT m.id, m.etat, m.chauffeur.id, m.vehicule.id, m.dateHeure FROM Mission m WHERE m.etat IN :etats")
+    List<Object[]> findPlanningByEtatIn(@Param("etats") Collection<Mission.EtatMission> etats);
+
+    // The same rows for these drivers, starting in (debut, fin), read as committed rather than from the
+    // transaction's snapshot
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT m.id, m.etat, m.chauffeur.id, m.vehicule.id, m.dateHeure FROM Mission m " +
+           "WHERE m.chauffeur.id IN :chauffeurIds AND m.etat IN :etats AND m.dateHeure > :debut AND m.dateHeure < :fin")
+    List<Object[]> lockPlanningByChauffeurIdIn(@Param("chauffeurIds") Collection<Long> chauffeurIds,
+                                               @Param("etats") Collection<Mission.EtatMission> etats,
+                                               @Param("debut") LocalDateTime debut,
+                                               @Param("fin") LocalDateTime fin);
+
+    // Missions in the given states that hold a vehicle, with their driver, for the fleet view
+    // (rows are [vehiculeId, missionId, etat, chauffeurId, chauffeurNom, chauffeurPrenom])
+    @Query("SELECT m.vehicule.id, m.id, m.etat, c.id, c.nom, c.prenom FROM Mission m LEFT JOIN m.chauffeur c " +
+           "WHERE m.vehicule IS NOT NULL AND m.etat IN :etats ORDER BY m.id")
+    List<Object[]> findVehiculesEnMission(@Param("etats") Collection<Mission.EtatMission> etats);
+
+    // Unassigned missions for the dispatcher, oldest first
+    @Query("SELECT new ma.formation.jdbc.application.dto.DispatchMissionView(" +
+           "m.id, m.version, m.dateHeure, m.typeMission, m.vehicule.id, m.probleme, m.employe.id, m.depart, m.destination) " +
+           "FROM Mission m WHERE m.etat = :etat AND m.chauffeur IS NULL ORDER BY m.dateHeure, m.id")
+    List<DispatchMissionView> findNonAffectees(@Param("etat") Mission.EtatMission etat, Pageable pageable);
 }
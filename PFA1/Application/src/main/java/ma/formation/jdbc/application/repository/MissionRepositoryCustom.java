@@ -0,0 +1,16 @@
+package ma.formation.jdbc.application.repository;
+
+import ma.formation.jdbc.application.dto.MissionResponseDTO;
+import ma.formation.jdbc.application.model.Mission;
+import org.springframework.data.domain.Pageable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Mission queries whose WHERE clause depends on the filters given (see MissionRepositoryImpl)
+public interface MissionRepositoryCustom {
+    // Keyset page ordered by (dateHeure, id) descending; the cursor is the last row of the previous page.
+    // Null filters are left out of the query
+    List<MissionResponseDTO> findPage(Mission.EtatMission etat, Long chauffeurId, Long employeId, Long vehiculeId,
+                                      LocalDateTime from, LocalDateTime to,
+                                      LocalDateTime beforeDate, Long beforeId, Pageable pageable);
+}
@@ -0,0 +1,61 @@
+package ma.formation.jdbc.application.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import ma.formation.jdbc.application.dto.MissionResponseDTO;
+import ma.formation.jdbc.application.model.Mission;
+import org.springframework.data.domain.Pageable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The filtered mission page, built with only the predicates of the filters given. A catch-all
+ * {@code (:x IS NULL OR col = :x)} query has one plan for every combination, so the database cannot pick
+ * the index of the filter actually used; here each combination is its own statement, and each maps
+ * onto one of the (column, dateHeure, id) indexes of {@link Mission}.
+ */
+public class MissionRepositoryImpl implements MissionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<MissionResponseDTO> findPage(Mission.EtatMission etat, Long chauffeurId, Long employeId,
+                                             Long vehiculeId, LocalDateTime from, LocalDateTime to,
+                                             LocalDateTime beforeDate, Long beforeId, Pageable pageable) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+        filtrer(conditions, params, "m.etat = :etat", "etat", etat);
+        filtrer(conditions, params, "m.chauffeur.id = :chauffeurId", "chauffeurId", chauffeurId);
+        filtrer(conditions, params, "m.employe.id = :employeId", "employeId", employeId);
+        filtrer(conditions, params, "m.vehicule.id = :vehiculeId", "vehiculeId", vehiculeId);
+        filtrer(conditions, params, "m.dateHeure >= :from", "from", from);
+        filtrer(conditions, params, "m.dateHeure < :to", "to", to);
+        if (beforeDate != null) {
+            conditions.add("(m.dateHeure < :beforeDate OR (m.dateHeure = :beforeDate AND m.id < :beforeId))");
+            params.put("beforeDate", beforeDate);
+            params.put("beforeId", beforeId);
+        }
+
+        String jpql = MissionRepository.MISSION_RESPONSE_SELECT
+                + (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ")
+                + "ORDER BY m.dateHeure DESC, m.id DESC";
+        TypedQuery<MissionResponseDTO> query = entityManager.createQuery(jpql, MissionResponseDTO.class);
+        params.forEach(query::setParameter);
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        return query.getResultList();
+    }
+
+    private static void filtrer(List<String> conditions, Map<String, Object> params,
+                                String condition, String nom, Object valeur) {
+        if (valeur != null) {
+            conditions.add(condition);
+            params.put(nom, valeur);
+        }
+    }
+}
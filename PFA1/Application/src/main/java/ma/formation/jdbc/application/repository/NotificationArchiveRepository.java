@@ -0,0 +1,50 @@
+package ma.formation.jdbc.application.repository;
+
+import ma.formation.jdbc.application.dto.NotificationDTO;
+import ma.formation.jdbc.application.model.NotificationArchive;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NotificationArchiveRepository extends JpaRepository<NotificationArchive, Long> {
+    // Read notifications of an employee sent before the cutoff, next chunk of ids after afterId. Only
+    // employees can page through their archive, so driver, admin and broadcast rows are never moved
+    @Query("SELECT n.id FROM Notification n WHERE n.id > :afterId AND n.dateEnvoi < :avant " +
+           "AND n.employe IS NOT NULL AND n.chauffeur IS NULL AND n.admin IS NULL " +
+           "AND (n.lue = true OR n.id <= n.curseurLecture) ORDER BY n.id")
+    List<Long> findIdsAArchiver(@Param("afterId") Long afterId, @Param("avant") LocalDateTime avant, Pageable pageable);
+
+    // Copies the chunk's notifications that are still read into the archive, in one statement
+    @Modifying
+    @Query("INSERT INTO NotificationArchive (id, employeId, adminId, chauffeurId, missionId, indisponibiliteId, " +
+           "type, modele, parametres, message, dateEnvoi, dateArchivage) " +
+           "SELECT n.id, n.employe.id, n.admin.id, n.chauffeur.id, n.mission.id, n.indisponibilite.id, " +
+           "n.type, n.modele, n.parametres, n.message, n.dateEnvoi, :maintenant FROM Notification n " +
+           "WHERE n.id IN :ids AND (n.lue = true OR n.id <= n.curseurLecture)")
+    int archiver(@Param("ids") Collection<Long> ids, @Param("maintenant") LocalDateTime maintenant);
+
+    // Deletes the chunk's notifications that made it into the archive
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids " +
+           "AND n.id IN (SELECT a.id FROM NotificationArchive a WHERE a.id IN :ids)")
+    int supprimerArchivees(@Param("ids") Collection<Long> ids);
+
+    // Keyset page of an employee's archived notifications, newest first, read straight into DTOs
+    @Query("SELECT new ma.formation.jdbc.application.dto.NotificationDTO(a.id, a.type, a.modele, a.parametres, " +
+           "a.message, a.dateEnvoi, " +
+           "true, m.id, m.destination, m.depart, e.id, e.nom, e.prenom) " +
+           "FROM NotificationArchive a LEFT JOIN Mission m ON m.id = a.missionId " +
+           "LEFT JOIN Employe e ON e.id = a.employeId " +
+           "WHERE a.employeId = :employeId " +
+           "AND (:beforeDate IS NULL OR a.dateEnvoi < :beforeDate " +
+           "     OR (a.dateEnvoi = :beforeDate AND a.id < :beforeId)) " +
+           "ORDER BY a.dateEnvoi DESC, a.id DESC")
+    List<NotificationDTO> findPageByEmployeId(@Param("employeId") Long employeId,
+                                              @Param("beforeDate") LocalDateTime beforeDate,
+                                              @Param("beforeId") Long beforeId, Pageable pageable);
+}
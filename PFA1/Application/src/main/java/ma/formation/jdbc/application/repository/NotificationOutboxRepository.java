@@ -0,0 +1,38 @@
+package ma.formation.jdbc.application.repository;
+
+import ma.formation.jdbc.application.model.NotificationOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+    // Oldest rows due for delivery, skipping parked ones and those waiting for a retry
+    @Query("SELECT o.id FROM NotificationOutbox o WHERE o.tentatives < :maxTentatives " +
+           "AND (o.prochainEssai IS NULL OR o.prochainEssai <= :now) ORDER BY o.id")
+    List<Long> findIdsADelivrer(@Param("maxTentatives") int maxTentatives, @Param("now") LocalDateTime now,
+                                Pageable pageable);
+
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.id IN :ids")
+    List<NotificationOutbox> findByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM NotificationOutbox o WHERE o.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Gives parked rows a fresh set of attempts
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.tentatives = 0, o.prochainEssai = NULL WHERE o.tentatives >= :maxTentatives")
+    int relancerBloquees(@Param("maxTentatives") int maxTentatives);
+
+    // Backlog of rows still to deliver and of parked rows (rows are [count, oldest dateEnvoi])
+    @Query("SELECT COUNT(o), MIN(o.dateEnvoi) FROM NotificationOutbox o WHERE o.tentatives < :maxTentatives")
+    List<Object[]> statsEnAttente(@Param("maxTentatives") int maxTentatives);
+
+    @Query("SELECT COUNT(o) FROM NotificationOutbox o WHERE o.tentatives >= :maxTentatives")
+    long countBloquees(@Param("maxTentatives") int maxTentatives);
+}
@@ -0,0 +1,36 @@
+package ma.formation.jdbc.application.repository;
+
+import jakarta.persistence.LockModeType;
+import ma.formation.jdbc.application.model.NotificationReadCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface NotificationReadCursorRepository extends JpaRepository<NotificationReadCursor, NotificationReadCursor.Key> {
+    // Lock the cursor before moving it so two "mark all read" of the same recipient apply in order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM NotificationReadCursor c WHERE c.key.scope = :scope AND c.key.scopeId = :scopeId")
+    Optional<NotificationReadCursor> lockByKey(@Param("scope") String scope, @Param("scopeId") Long scopeId);
+
+    // Create the cursor at 0 unless it exists; two first "mark all read" of a recipient both succeed
+    @Modifying
+    @Query(value = "INSERT INTO notification_read_cursors (scope, scope_id, dernier_id_lu) VALUES (:scope, :scopeId, 0) " +
+                   "ON DUPLICATE KEY UPDATE dernier_id_lu = dernier_id_lu", nativeQuery = true)
+    int createIfAbsent(@Param("scope") String scope, @Param("scopeId") Long scopeId);
+
+    // Lock the cursors that can cover notifications of these employees, chauffeurs and admins, in key
+    // order so concurrent inserts take them in the same order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM NotificationReadCursor c WHERE (c.key.scope = 'EMPLOYE' AND c.key.scopeId IN :employeIds) " +
+           "OR (c.key.scope = 'CHAUFFEUR' AND c.key.scopeId IN :chauffeurIds) " +
+           "OR (c.key.scope = 'ADMIN' AND c.key.scopeId IN :adminIds) " +
+           "ORDER BY c.key.scope, c.key.scopeId")
+    List<NotificationReadCursor> lockCouvrant(@Param("employeIds") Collection<Long> employeIds,
+                                              @Param("chauffeurIds") Collection<Long> chauffeurIds,
+                                              @Param("adminIds") Collection<Long> adminIds);
+}
@@ -1,51 +1,160 @@
 package ma.formation.jdbc.application.repository;
 
+import jakarta.persistence.LockModeType;
+import ma.formation.jdbc.application.dto.NotificationDTO;
+import ma.formation.jdbc.application.dto.NotificationResponseDTO;
 import ma.formation.jdbc.application.model.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * "Unread" (LueFalse) means not flagged read and above every read cursor covering the notification (see
+ * NotificationReadCursor). Unread queries of one recipient range over the index on (recipient, id) from
+ * that recipient's cursor; the curseurLecture formula is then only evaluated on the rows in that range.
+ */
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
-    List<Notification> findByEmployeIdAndLueFalse(Long employeId);
+    // Read cursor of one scope
+    String CURSEUR = "COALESCE((SELECT MAX(c.dernierIdLu) FROM NotificationReadCursor c WHERE ";
+    String AU_DELA_DES_CURSEURS = " AND n.lue = false AND (n.curseurLecture IS NULL OR n.id > n.curseurLecture)";
+    String FEED = "(:employeId IS NULL OR n.employe.id = :employeId) " +
+                  "AND (:chauffeurId IS NULL OR n.chauffeur.id = :chauffeurId) " +
+                  "AND (:adminId IS NULL OR n.admin.id = :adminId) " +
+                  "AND (:type IS NULL OR n.type = :type) ";
 
-    List<Notification> findByEmployeId(Long employeId);
+    // Endpoint views, read straight into DTOs: the notification's columns and only the columns of the
+    // rows it points to that the view shows, in one statement with no entity loaded
+    String LUE = "CASE WHEN n.lue = true OR n.id <= n.curseurLecture THEN true ELSE false END";
+    String NOTIFICATION_DTO = "SELECT new ma.formation.jdbc.application.dto.NotificationDTO(n.id, n.type, " +
+            "n.modele, n.parametres, n.message, n.dateEnvoi, " + LUE + ", m.id, m.destination, m.depart, " +
+            "e.id, e.nom, e.prenom) FROM Notification n LEFT JOIN n.mission m LEFT JOIN n.employe e ";
+    String NOTIFICATION_RESPONSE_DTO = "SELECT new ma.formation.jdbc.application.dto.NotificationResponseDTO(" +
+            "n.id, n.type, n.modele, n.parametres, n.message, n.dateEnvoi, " + LUE + ", m.id, m.destination, " +
+            "i.id, i.type, i.dateDebut, i.dateFin) " +
+            "FROM Notification n LEFT JOIN n.mission m LEFT JOIN n.indisponibilite i ";
 
-    // Get notifications ordered by date descending
-    List<Notification> findByEmployeIdOrderByDateEnvoiDesc(Long employeId);
+    @Query(NOTIFICATION_DTO + "WHERE n.employe.id = :employeId AND n.id > " + CURSEUR +
+           "(c.key.scope = 'EMPLOYE' AND c.key.scopeId = :employeId)), 0)" + AU_DELA_DES_CURSEURS +
+           " ORDER BY n.dateEnvoi DESC, n.id DESC")
+    List<NotificationDTO> findByEmployeIdAndLueFalse(@Param("employeId") Long employeId);
 
-    // Count unread notifications for an employee
-    Long countByEmployeIdAndLueFalse(Long employeId);
 
-    // Get recent notifications with limit
-    @Query(value = "SELECT * FROM notifications WHERE employe_id = :employeId ORDER BY date_envoi DESC LIMIT :limit", nativeQuery = true)
-    List<Notification> findTopByEmployeIdOrderByDateEnvoiDesc(@Param("employeId") Long employeId, @Param("limit") int limit);
+    // Count unread notifications for an employee
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.employe.id = :employeId AND n.id > " + CURSEUR +
+           "(c.key.scope = 'EMPLOYE' AND c.key.scopeId = :employeId)), 0)" + AU_DELA_DES_CURSEURS)
+    Long countByEmployeIdAndLueFalse(@Param("employeId") Long employeId);
 
     // Admin notification methods
-    List<Notification> findByAdminIdOrderByDateEnvoiDesc(Long adminId);
-    Long countByAdminIdAndLueFalse(Long adminId);
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.admin.id = :adminId AND n.id > " + CURSEUR +
+           "(c.key.scope = 'ADMIN' AND c.key.scopeId = :adminId)), 0)" + AU_DELA_DES_CURSEURS)
+    Long countByAdminIdAndLueFalse(@Param("adminId") Long adminId);
 
     // Chauffeur notification methods
-    List<Notification> findByChauffeurIdOrderByDateEnvoiDesc(Long chauffeurId);
-    Long countByChauffeurIdAndLueFalse(Long chauffeurId);
-
-    // Global admin notification methods
-    @Query("SELECT n FROM Notification n ORDER BY n.dateEnvoi DESC")
-    List<Notification> findAllByOrderByDateEnvoiDesc();
-    
-    @Query("SELECT COUNT(n) FROM Notification n WHERE n.lue = false")
-    Long countByLueFalse();
-    
-    @Query("SELECT n FROM Notification n WHERE n.lue = false")
-    List<Notification> findByLueFalse();
-    
-    // Admin leave request specific methods
-    @Query("SELECT n FROM Notification n WHERE n.type = ?1 ORDER BY n.dateEnvoi DESC")
-    List<Notification> findByTypeOrderByDateEnvoiDesc(String type);
-    
-    @Query("SELECT COUNT(n) FROM Notification n WHERE n.type = ?1 AND n.lue = false")
-    Long countByTypeAndLueFalse(String type);
-    
-    @Query("SELECT n FROM Notification n WHERE n.type = ?1 AND n.lue = false")
-    List<Notification> findByTypeAndLueFalse(String type);
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.chauffeur.id = :chauffeurId AND n.id > " + CURSEUR +
+           "(c.key.scope = 'CHAUFFEUR' AND c.key.scopeId = :chauffeurId)), 0)" + AU_DELA_DES_CURSEURS)
+    Long countByChauffeurIdAndLueFalse(@Param("chauffeurId") Long chauffeurId);
+
+    // Keyset page of a feed, newest first; the recipient filters that are null are not applied and the
+    // cursor is the last row of the previous page. Served by the (recipient, dateEnvoi, id) indexes.
+    String PAGE = "WHERE " + FEED +
+                  "AND (:beforeDate IS NULL OR n.dateEnvoi < :beforeDate " +
+                  "     OR (n.dateEnvoi = :beforeDate AND n.id < :beforeId)) " +
+                  "ORDER BY n.dateEnvoi DESC, n.id DESC";
+
+    // Notifications newer than the cursor (the first row the client has), oldest first
+    String APRES = "WHERE " + FEED +
+                   "AND (n.dateEnvoi > :afterDate OR (n.dateEnvoi = :afterDate AND n.id > :afterId)) " +
+                   "ORDER BY n.dateEnvoi ASC, n.id ASC";
+
+    @Query(NOTIFICATION_DTO + PAGE)
+    List<NotificationDTO> findFeedPage(@Param("employeId") Long employeId, @Param("chauffeurId") Long chauffeurId,
+                                       @Param("adminId") Long adminId, @Param("type") String type,
+                                       @Param("beforeDate") LocalDateTime beforeDate, @Param("beforeId") Long beforeId,
+                                       Pageable pageable);
+
+    @Query(NOTIFICATION_DTO + APRES)
+    List<NotificationDTO> findFeedAfter(@Param("employeId") Long employeId, @Param("chauffeurId") Long chauffeurId,
+                                        @Param("adminId") Long adminId, @Param("type") String type,
+                                        @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
+    // The same feeds in the driver's view, with the leave request the notification is about
+    @Query(NOTIFICATION_RESPONSE_DTO + PAGE)
+    List<NotificationResponseDTO> findResponseFeedPage(@Param("employeId") Long employeId,
+                                                       @Param("chauffeurId") Long chauffeurId,
+                                                       @Param("adminId") Long adminId, @Param("type") String type,
+                                                       @Param("beforeDate") LocalDateTime beforeDate,
+                                                       @Param("beforeId") Long beforeId, Pageable pageable);
+
+    @Query(NOTIFICATION_RESPONSE_DTO + APRES)
+    List<NotificationResponseDTO> findResponseFeedAfter(@Param("employeId") Long employeId,
+                                                        @Param("chauffeurId") Long chauffeurId,
+                                                        @Param("adminId") Long adminId, @Param("type") String type,
+                                                        @Param("afterDate") LocalDateTime afterDate,
+                                                        @Param("afterId") Long afterId, Pageable pageable);
+
+    // Highest notification id of a read cursor scope, where "mark all read" moves the cursor to
+    @Query("SELECT MAX(n.id) FROM Notification n WHERE n.employe.id = :employeId")
+    Long findMaxIdByEmployeId(@Param("employeId") Long employeId);
+
+    @Query("SELECT MAX(n.id) FROM Notification n WHERE n.chauffeur.id = :chauffeurId")
+    Long findMaxIdByChauffeurId(@Param("chauffeurId") Long chauffeurId);
+
+    @Query("SELECT MAX(n.id) FROM Notification n WHERE n.admin.id = :adminId")
+    Long findMaxIdByAdminId(@Param("adminId") Long adminId);
+
+    // Set-based mark-as-read, one UPDATE per call; returns the number of rows it marked
+    @Modifying
+    @Query("UPDATE Notification n SET n.lue = true WHERE n.id IN :ids" + AU_DELA_DES_CURSEURS)
+    int markReadByIds(@Param("ids") Collection<Long> ids);
+
+    // Recipients of the unread notifications among ids (rows are [employeId, chauffeurId, adminId, count])
+    @Query("SELECT n.employe.id, n.chauffeur.id, n.admin.id, COUNT(n) FROM Notification n " +
+           "WHERE n.id IN :ids" + AU_DELA_DES_CURSEURS + " GROUP BY n.employe.id, n.chauffeur.id, n.admin.id")
+    List<Object[]> findUnreadRecipientsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Flag as read the notifications of a cursor scope in [debut, fin], except those in exclus; used when a
+    // cursor is moved back below a notification that arrived late (see NotificationReadCursorService)
+    @Modifying
+    @Query("UPDATE Notification n SET n.lue = true WHERE n.employe.id = :employeId " +
+           "AND n.id BETWEEN :debut AND :fin AND n.id NOT IN :exclus")
+    int flagReadRangeByEmployeId(@Param("employeId") Long employeId, @Param("debut") Long debut,
+                                 @Param("fin") Long fin, @Param("exclus") Collection<Long> exclus);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.lue = true WHERE n.chauffeur.id = :chauffeurId " +
+           "AND n.id BETWEEN :debut AND :fin AND n.id NOT IN :exclus")
+    int flagReadRangeByChauffeurId(@Param("chauffeurId") Long chauffeurId, @Param("debut") Long debut,
+                                   @Param("fin") Long fin, @Param("exclus") Collection<Long> exclus);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.lue = true WHERE n.admin.id = :adminId " +
+           "AND n.id BETWEEN :debut AND :fin AND n.id NOT IN :exclus")
+    int flagReadRangeByAdminId(@Param("adminId") Long adminId, @Param("debut") Long debut,
+                               @Param("fin") Long fin, @Param("exclus") Collection<Long> exclus);
+
+    // Unread notifications about these missions sent since :depuis, locked: the outbox merges later events
+    // of the same recipient and mission into them (see NotificationOutboxService)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT n FROM Notification n WHERE n.mission.id IN :missionIds AND n.dateEnvoi >= :depuis" +
+           AU_DELA_DES_CURSEURS)
+    List<Notification> findNonLuesAFusionner(@Param("missionIds") Collection<Long> missionIds,
+                                             @Param("depuis") LocalDateTime depuis);
+
+    // Notifications still holding a stored text, next chunk after afterId (rows are [id, type, message])
+    @Query("SELECT n.id, n.type, n.message FROM Notification n WHERE n.id > :afterId " +
+           "AND n.modele IS NULL AND n.message IS NOT NULL ORDER BY n.id")
+    List<Object[]> findTextesAMigrer(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Replaces a stored text by its template; the rendered text is the same, so nothing else moves
+    @Modifying
+    @Query("UPDATE Notification n SET n.modele = :modele, n.parametres = :parametres, n.message = NULL " +
+           "WHERE n.id = :id AND n.modele IS NULL")
+    int migrerVersModele(@Param("id") Long id, @Param("modele") String modele, @Param("parametres") String parametres);
 }
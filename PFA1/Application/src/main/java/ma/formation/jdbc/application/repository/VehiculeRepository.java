@@ -1,13 +1,55 @@
 package ma.formation.jdbc.application.repository;
 
+import ma.formation.jdbc.application.dto.MissionFormDataDTO;
 import ma.formation.jdbc.application.model.Vehicule;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 
 public interface VehiculeRepository extends JpaRepository<Vehicule, Long> {
     List<Vehicule> findByDisponibleTrue();
+
+    // Fleet view: every vehicle with the driver it is assigned to, in one query
+    @EntityGraph(attributePaths = "chauffeurs")
+    @Query("SELECT v FROM Vehicule v ORDER BY v.id")
+    List<Vehicule> findAllWithChauffeur();
     
     long countByDisponible(boolean disponible);
 
+    // Total and available vehicle counts in one scan (row is [total, disponibles])
+    @Query("SELECT COUNT(v), COALESCE(SUM(CASE WHEN v.disponible = true THEN 1 ELSE 0 END), 0) FROM Vehicule v")
+    List<Object[]> countTotalAndDisponible();
+
     Vehicule findByImmatriculation(String immatriculation);
+
+    // Availability of the given vehicles in one IN query (rows are [id, disponible])
+    @Query("SELECT v.id, v.disponible FROM Vehicule v WHERE v.id IN :ids")
+    List<Object[]> findDisponibiliteByIds(@Param("ids") Collection<Long> ids);
+
+    // Create-mission form: every vehicle; only the ones AvailabilityIndex reports free are offered,
+    // so they are all disponible in the form
+    @Query("SELECT new ma.formation.jdbc.application.dto.MissionFormDataDTO$VehiculeDTO(" +
+           "v.id, v.immatriculation, v.marque, v.modele, v.capacite, true) FROM Vehicule v ORDER BY v.id")
+    List<MissionFormDataDTO.VehiculeDTO> findFormOptions();
+
+    // Availability flag of every vehicle, for the in-memory availability index (rows are [id, disponible])
+    @Query("SELECT v.id, v.disponible FROM Vehicule v")
+    List<Object[]> findAllDisponibilites();
+
+    // Flips the availability flag without loading the vehicle, returns 0 when it does not exist
+    @Modifying
+    @Query("UPDATE Vehicule v SET v.disponible = :disponible WHERE v.id = :id")
+    int updateDisponible(@Param("id") Long id, @Param("disponible") boolean disponible);
+
+    // Capacity of the available vehicles, for the dispatcher (rows are [id, capacite])
+    @Query("SELECT v.id, v.capacite FROM Vehicule v WHERE v.disponible = true ORDER BY v.capacite, v.id")
+    List<Object[]> findCapacitesDisponibles();
+
+    @Modifying
+    @Query("UPDATE Vehicule v SET v.disponible = :disponible WHERE v.id IN :ids")
+    int updateDisponibleIn(@Param("ids") Collection<Long> ids, @Param("disponible") boolean disponible);
 }
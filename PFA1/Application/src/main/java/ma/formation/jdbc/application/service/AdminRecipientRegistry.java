@@ -0,0 +1,55 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.repository.AdminRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ids of the admins, the recipients of admin-bound notifications, and the login email of each. Loaded with
+ * one projection query and cached; admin writes clear it after commit through
+ * {@link ma.formation.jdbc.application.config.EntityWriteListener}, and the TTL catches admins written
+ * outside the application.
+ */
+@Service
+public class AdminRecipientRegistry {
+    @Autowired
+    private AdminRepository adminRepository;
+
+    @Value("${notifications.admins.cache-ttl-ms:300000}")
+    private long cacheTtlMs;
+
+    private record Admins(List<Long> ids, Map<String, Long> idsParEmail) {}
+
+    private final ExpiringCache<Admins> admins = new ExpiringCache<>(this::charger, () -> cacheTtlMs);
+
+    public List<Long> getAdminIds() {
+        return admins.get().ids();
+    }
+
+    /** Id of the admin who logs in with {@code email}, or null if no admin does. */
+    public Long getAdminId(String email) {
+        return email == null ? null : admins.get().idsParEmail().get(email);
+    }
+
+    /** Drops the cached admins now and, inside a transaction, again once it has committed. */
+    public void invalidate() {
+        admins.invalidate();
+    }
+
+    private Admins charger() {
+        List<Long> ids = new ArrayList<>();
+        Map<String, Long> idsParEmail = new HashMap<>();
+        for (Object[] row : adminRepository.findAllIdsAndEmails()) {
+            ids.add((Long) row[0]);
+            if (row[1] != null) {
+                idsParEmail.put((String) row[1], (Long) row[0]);
+            }
+        }
+        return new Admins(List.copyOf(ids), Map.copyOf(idsParEmail));
+    }
+}
@@ -3,13 +3,23 @@ package ma.formation.jdbc.application.service;
 import ma.formation.jdbc.application.model.*;
 import ma.formation.jdbc.application.repository.*;
 import ma.formation.jdbc.application.dto.*;
+import ma.formation.jdbc.application.exception.MissionConflictException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.NavigableSet;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import ma.formation.jdbc.application.dto.ChauffeurRegistrationDTO;
@@ -55,6 +65,21 @@ public class AdminService {
     @Autowired
     private AdminRepository adminRepository;
 
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private MissionCounterService missionCounterService;
+
+    @Autowired
+    private MissionStateMachine missionStateMachine;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Value("${missions.bulk.max-size:500}")
+    private int maxBulkMissions;
+
     public List<ChauffeurDTO> getAllChauffeurs() {
         List<Chauffeur> chauffeurs = chauffeurRepository.findAll();
         return chauffeurs.stream()
@@ -84,7 +109,7 @@ public class AdminService {
         return vehiculeRepository.findByDisponibleTrue();
     }
 
-    public List<Mission> getMissionsEnAttente() {
+    public List<MissionResponseDTO> getMissionsEnAttente() {
         return missionService.getMissionsEnAttente();
     }
 
@@ -101,13 +126,14 @@ public class AdminService {
     public void accepterIndisponibilite(Long indisponibiliteId) {
         indisponibiliteRepository.findById(indisponibiliteId)
             .ifPresent(indispo -> {
+                availabilityIndex.reserverConge(indispo);
                 indispo.setAcceptee(true);
                 indisponibiliteRepository.save(indispo);
             });
     }
 
-    public List<Mission> getHistoriqueMissionsParChauffeur(Long chauffeurId) {
-        return missionService.getHistoriqueMissions(chauffeurId);
+    public List<MissionResponseDTO> getHistoriqueMissionsParChauffeur(Long chauffeurId) {
+        return missionService.getMissionResponsesByChauffeurId(chauffeurId);
     }
 
     @Transactional
@@ -183,38 +209,7 @@ public class AdminService {
     
     @Transactional
     public Mission createMission(CreateMissionRequest request) {
-        // Validate required fields
-        if (request.getDestination() == null || request.getDestination().trim().isEmpty()) {
-            throw new RuntimeException("La destination est obligatoire");
-        }
-        if (request.getDepart() == null || request.getDepart().trim().isEmpty()) {
-            throw new RuntimeException("Le point de départ est obligatoire");
-        }
-        if (request.getDateHeure() == null || request.getDateHeure().trim().isEmpty()) {
-            throw new RuntimeException("La date et heure sont obligatoires");
-        }
-        if (request.getTypeMission() == null || request.getTypeMission().trim().isEmpty()) {
-            throw new RuntimeException("Le type de mission est obligatoire");
-        }
-        if (request.getEmployeId() == null) {
-            throw new RuntimeException("L'employé est obligatoire");
-        }
-        
-        // Parse date from ISO string format
-        LocalDateTime dateHeure;
-        try {
-            // Handle ISO format from frontend (e.g., "2025-08-03T17:30:00.000Z")
-            String dateStr = request.getDateHeure();
-            if (dateStr.endsWith("Z")) {
-                dateStr = dateStr.substring(0, dateStr.length() - 1);
-            }
-            if (dateStr.contains(".")) {
-                dateStr = dateStr.substring(0, dateStr.indexOf("."));
-            }
-            dateHeure = LocalDateTime.parse(dateStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        } catch (DateTimeParseException e) {
-            throw new RuntimeException("Format de date invalide. Utilisez le format ISO: YYYY-MM-DDTHH:mm:ss");
-        }
+        LocalDateTime dateHeure = validerMissionRequest(request);
         
         // Find employee
         Employe employe = employeRepository.findById(request.getEmployeId())
@@ -225,6 +220,7 @@ public class AdminService {
         if (request.getChauffeurId() != null) {
             chauffeur = chauffeurRepository.findById(request.getChauffeurId())
                     .orElseThrow(() -> new RuntimeException("Chauffeur non trouvé"));
+            availabilityIndex.reserverChauffeur(chauffeur.getId(), dateHeure, null);
         }
         
         // Find vehicle if provided
@@ -252,51 +248,200 @@ public class AdminService {
         mission.setAcceptee(false);
         
         Mission savedMission = missionRepository.save(mission);
+        missionCounterService.record(null, MissionCounterService.Snapshot.of(savedMission));
         
-        // Create notification for employee (always assigned)
-        creerNotificationPourEmploye(savedMission, employe);
-        
-        // Create notification for chauffeur if assigned
+        // Notify the employee (always assigned) and the chauffeur if assigned
+        notificationService.publier(nouvelleNotificationEmploye(savedMission, employe));
         if (chauffeur != null) {
-            creerNotificationPourChauffeur(savedMission, chauffeur);
+            notificationService.publier(nouvelleNotificationChauffeur(savedMission, chauffeur));
         }
         
         return savedMission;
     }
 
-    // Dashboard Statistics Methods
-    public Map<String, Object> getDashboardStats() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        // Get counts
-        long totalMissions = missionRepository.count();
-        long totalChauffeurs = chauffeurRepository.count();
-        long totalVehicules = vehiculeRepository.count();
-        long totalEmployes = employeRepository.count();
-        
-        // Calculate available vehicles (assuming disponible = true means available)
-        long availableVehicules = vehiculeRepository.countByDisponible(true);
+    /**
+     * Creates many missions at once. Every request is validated; the referenced employees, chauffeurs and
+     * vehicles are resolved with one IN query per type, and the valid missions and their notifications are
+     * inserted as JDBC batches. Invalid items are reported in the result and do not block the others.
+     */
+    @Transactional
+    public List<BulkMissionResultDTO> createMissions(List<CreateMissionRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RuntimeException("La liste des missions est vide");
+        }
+        if (requests.size() > maxBulkMissions) {
+            throw new RuntimeException("Trop de missions dans une seule requête (maximum " + maxBulkMissions + ")");
+        }
+
+        Set<Long> employeIds = new HashSet<>();
+        Set<Long> chauffeurIds = new HashSet<>();
+        Set<Long> vehiculeIds = new HashSet<>();
+        for (CreateMissionRequest request : requests) {
+            if (request == null) {
+                continue;
+            }
+            if (request.getEmployeId() != null) employeIds.add(request.getEmployeId());
+            if (request.getChauffeurId() != null) chauffeurIds.add(request.getChauffeurId());
+            if (request.getVehiculeId() != null) vehiculeIds.add(request.getVehiculeId());
+        }
+        Set<Long> employesExistants = employeIds.isEmpty() ? Set.of() : new HashSet<>(employeRepository.findExistingIds(employeIds));
+        // Locked until commit: assignments of these drivers by other requests wait for this one
+        Set<Long> chauffeursExistants = availabilityIndex.verrouillerChauffeurs(chauffeurIds);
+        Map<Long, Boolean> disponibilites = new HashMap<>();
+        if (!vehiculeIds.isEmpty()) {
+            for (Object[] row : vehiculeRepository.findDisponibiliteByIds(vehiculeIds)) {
+                disponibilites.put((Long) row[0], (Boolean) row[1]);
+            }
+        }
+
+        BulkMissionResultDTO[] results = new BulkMissionResultDTO[requests.size()];
+        LocalDateTime[] dates = new LocalDateTime[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            CreateMissionRequest request = requests.get(i);
+            try {
+                if (request == null) {
+                    throw new RuntimeException("Mission vide");
+                }
+                dates[i] = validerMissionRequest(request);
+                if (!employesExistants.contains(request.getEmployeId())) {
+                    throw new RuntimeException("Employé non trouvé");
+                }
+                if (request.getChauffeurId() != null && !chauffeursExistants.contains(request.getChauffeurId())) {
+                    throw new RuntimeException("Chauffeur non trouvé");
+                }
+                if (request.getVehiculeId() != null) {
+                    Boolean disponible = disponibilites.get(request.getVehiculeId());
+                    if (disponible == null) {
+                        throw new RuntimeException("Véhicule non trouvé");
+                    }
+                    if (!disponible) {
+                        throw new RuntimeException("Le véhicule sélectionné n'est pas disponible");
+                    }
+                }
+            } catch (RuntimeException e) {
+                results[i] = BulkMissionResultDTO.echec(i, e.getMessage());
+            }
+        }
+
+        // Schedules of the drivers of the valid items, as committed, over the span of their start times
+        Set<Long> chauffeursPlanifies = new HashSet<>();
+        LocalDateTime premier = null;
+        LocalDateTime dernier = null;
+        for (int i = 0; i < requests.size(); i++) {
+            if (results[i] == null && requests.get(i).getChauffeurId() != null) {
+                chauffeursPlanifies.add(requests.get(i).getChauffeurId());
+                premier = premier == null || dates[i].isBefore(premier) ? dates[i] : premier;
+                dernier = dernier == null || dates[i].isAfter(dernier) ? dates[i] : dernier;
+            }
+        }
+        AvailabilityIndex.Planning planning = availabilityIndex.planningVerrouille(chauffeursPlanifies, premier, dernier);
+
+        List<Integer> indexes = new ArrayList<>();
+        List<Mission> missions = new ArrayList<>();
+        // Start times already given to each driver by earlier items of this request
+        Map<Long, NavigableSet<LocalDateTime>> planifiees = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            CreateMissionRequest request = requests.get(i);
+            LocalDateTime dateHeure = dates[i];
+            try {
+                if (request.getChauffeurId() != null) {
+                    planning.verifierChauffeurLibre(request.getChauffeurId(), dateHeure, null);
+                    NavigableSet<LocalDateTime> debuts = planifiees.get(request.getChauffeurId());
+                    LocalDateTime precedent = debuts != null ? debuts.floor(dateHeure) : null;
+                    LocalDateTime suivant = debuts != null ? debuts.ceiling(dateHeure) : null;
+                    if ((precedent != null && availabilityIndex.finMission(precedent).isAfter(dateHeure))
+                            || (suivant != null && availabilityIndex.finMission(dateHeure).isAfter(suivant))) {
+                        throw new MissionConflictException("Le chauffeur a déjà une mission sur ce créneau dans cette liste");
+                    }
+                }
+
+                // References only: the rows were checked above, nothing else is loaded
+                Mission mission = new Mission();
+                mission.setDestination(request.getDestination());
+                mission.setDepart(request.getDepart());
+                mission.setDateHeure(dateHeure);
+                mission.setTypeMission(request.getTypeMission());
+                mission.setInstructions(request.getInstructions());
+                mission.setEmploye(employeRepository.getReferenceById(request.getEmployeId()));
+                mission.setChauffeur(request.getChauffeurId() != null ? chauffeurRepository.getReferenceById(request.getChauffeurId()) : null);
+                mission.setVehicule(request.getVehiculeId() != null ? vehiculeRepository.getReferenceById(request.getVehiculeId()) : null);
+                mission.setEtat(Mission.EtatMission.EN_ATTENTE);
+                mission.setAcceptee(false);
+                missions.add(mission);
+                indexes.add(i);
+                if (request.getChauffeurId() != null) {
+                    planifiees.computeIfAbsent(request.getChauffeurId(), k -> new TreeSet<>()).add(dateHeure);
+                }
+            } catch (RuntimeException e) {
+                results[i] = BulkMissionResultDTO.echec(i, e.getMessage());
+            }
+        }
+
+        if (!missions.isEmpty()) {
+            missionRepository.saveAll(missions);
+
+            List<Notification> notifications = new ArrayList<>();
+            List<MissionCounterService.Snapshot> snapshots = new ArrayList<>();
+            for (Mission mission : missions) {
+                notifications.add(nouvelleNotificationEmploye(mission, mission.getEmploye()));
+                if (mission.getChauffeur() != null) {
+                    notifications.add(nouvelleNotificationChauffeur(mission, mission.getChauffeur()));
+                }
+                snapshots.add(MissionCounterService.Snapshot.of(mission));
+            }
+            notificationService.publierTous(notifications);
+            missionCounterService.recordCreated(snapshots);
+
+            for (int k = 0; k < missions.size(); k++) {
+                results[indexes.get(k)] = BulkMissionResultDTO.succes(indexes.get(k), missions.get(k).getId());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // Required fields of a mission request; returns the parsed date
+    private LocalDateTime validerMissionRequest(CreateMissionRequest request) {
+        // Validate required fields
+        if (request.getDestination() == null || request.getDestination().trim().isEmpty()) {
+            throw new RuntimeException("La destination est obligatoire");
+        }
+        if (request.getDepart() == null || request.getDepart().trim().isEmpty()) {
+            throw new RuntimeException("Le point de départ est obligatoire");
+        }
+        if (request.getDateHeure() == null || request.getDateHeure().trim().isEmpty()) {
+            throw new RuntimeException("La date et heure sont obligatoires");
+        }
+        if (request.getTypeMission() == null || request.getTypeMission().trim().isEmpty()) {
+            throw new RuntimeException("Le type de mission est obligatoire");
+        }
+        if (request.getEmployeId() == null) {
+            throw new RuntimeException("L'employé est obligatoire");
+        }
         
-        // Calculate active missions (assuming there's a status field)
-        // You might need to adjust this based on your Mission entity structure
-        long activeMissions = 0;
+        // Parse date from ISO string format
+        LocalDateTime dateHeure;
         try {
-            // If you have a status field in Mission entity, use it
-            // activeMissions = missionRepository.countByStatus(MissionStatus.EN_COURS);
-            // For now, estimate as 30% of total missions
-            activeMissions = Math.round(totalMissions * 0.3);
-        } catch (Exception e) {
-            activeMissions = 0;
+            // Handle ISO format from frontend (e.g., "2025-08-03T17:30:00.000Z")
+            String dateStr = request.getDateHeure();
+            if (dateStr.endsWith("Z")) {
+                dateStr = dateStr.substring(0, dateStr.length() - 1);
+            }
+            if (dateStr.contains(".")) {
+                dateStr = dateStr.substring(0, dateStr.indexOf("."));
+            }
+            dateHeure = LocalDateTime.parse(dateStr, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Format de date invalide. Utilisez le format ISO: YYYY-MM-DDTHH:mm:ss");
         }
-        
-        stats.put("totalMissions", totalMissions);
-        stats.put("totalChauffeurs", totalChauffeurs);
-        stats.put("totalVehicules", totalVehicules);
-        stats.put("totalEmployes", totalEmployes);
-        stats.put("availableVehicules", availableVehicules);
-        stats.put("activeMissions", activeMissions);
-        
-        return stats;
+        return dateHeure;
+    }
+
+    // Dashboard Statistics Methods
+    public Map<String, Object> getDashboardStats() {
+        return statsService.getAdminStats();
     }
 
     public long getMissionsCount() {
@@ -315,56 +460,59 @@ public class AdminService {
         return employeRepository.count();
     }
 
-    // Get all missions for admin dashboard
-    public List<MissionResponseDTO> getAllMissions() {
-        List<Mission> missions = missionRepository.findAllByOrderByDateHeureDesc();
-        return missions.stream()
-                .map(MissionResponseDTO::new)
-                .collect(java.util.stream.Collectors.toList());
-    }
-
-    // Create notification for employee when mission is assigned
-    private void creerNotificationPourEmploye(Mission mission, Employe employe) {
-        try {
-            Notification notification = new Notification();
-            notification.setEmploye(employe);
-            notification.setMission(mission);
-            notification.setType("MISSION_ASSIGNEE");
-            notification.setMessage(String.format("Nouvelle mission assignée par l'admin: %s → %s le %s à %s", 
-                mission.getDepart(),
-                mission.getDestination(),
-                mission.getDateHeure().toLocalDate(),
-                mission.getDateHeure().toLocalTime()));
-            notification.setDateEnvoi(LocalDateTime.now());
-            notification.setLue(false);
-            
-            notificationService.creerNotification(notification);
-        } catch (Exception e) {
-            // Log error but don't fail mission creation
-            System.err.println("Erreur lors de la création de la notification employé: " + e.getMessage());
-        }
-    }
+    // Page sizes for the admin mission listing
+    public static final int DEFAULT_MISSION_PAGE_SIZE = 50;
+    public static final int MAX_MISSION_PAGE_SIZE = 200;
 
-    // Create notification for chauffeur when mission is assigned
-    private void creerNotificationPourChauffeur(Mission mission, Chauffeur chauffeur) {
-        try {
-            Notification notification = new Notification();
-            notification.setChauffeur(chauffeur);
-            notification.setMission(mission);
-            notification.setType("MISSION_ASSIGNEE");
-            notification.setMessage(String.format("Nouvelle mission assignée: %s → %s le %s à %s", 
-                mission.getDepart(),
-                mission.getDestination(),
-                mission.getDateHeure().toLocalDate(),
-                mission.getDateHeure().toLocalTime()));
-            notification.setDateEnvoi(LocalDateTime.now());
-            notification.setLue(false);
-            
-            notificationService.creerNotification(notification);
-        } catch (Exception e) {
-            // Log error but don't fail mission creation
-            System.err.println("Erreur lors de la création de la notification chauffeur: " + e.getMessage());
+    // Get one keyset page of missions for admin dashboard (most recent first)
+    @Transactional(readOnly = true)
+    public MissionPageDTO getMissionsPage(Mission.EtatMission etat, Long chauffeurId, Long employeId, Long vehiculeId,
+                                          LocalDateTime from, LocalDateTime to,
+                                          LocalDateTime beforeDate, Long beforeId, Integer size) {
+        if ((beforeDate == null) != (beforeId == null)) {
+            throw new RuntimeException("Le curseur doit contenir beforeDate et beforeId");
         }
+        int pageSize = size == null ? DEFAULT_MISSION_PAGE_SIZE : Math.max(1, Math.min(size, MAX_MISSION_PAGE_SIZE));
+
+        // Fetch one extra row to know whether another page exists
+        List<MissionResponseDTO> missions = missionRepository.findPage(etat, chauffeurId, employeId, vehiculeId,
+                from, to, beforeDate, beforeId, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = missions.size() > pageSize;
+
+        List<MissionResponseDTO> page = hasMore ? missions.subList(0, pageSize) : missions;
+        return new MissionPageDTO(page, pageSize, hasMore);
+    }
+
+    // Notification for the employee when a mission is assigned
+    private Notification nouvelleNotificationEmploye(Mission mission, Employe employe) {
+        Notification notification = new Notification();
+        notification.setEmploye(employe);
+        notification.setMission(mission);
+        notification.setType("MISSION_ASSIGNEE");
+        notification.rediger(NotificationTemplates.MISSION_ASSIGNEE_ADMIN,
+            mission.getDepart(),
+            mission.getDestination(),
+            mission.getDateHeure().toLocalDate(),
+            mission.getDateHeure().toLocalTime());
+        notification.setDateEnvoi(LocalDateTime.now());
+        notification.setLue(false);
+        return notification;
+    }
+
+    // Notification for the chauffeur when a mission is assigned
+    private Notification nouvelleNotificationChauffeur(Mission mission, Chauffeur chauffeur) {
+        Notification notification = new Notification();
+        notification.setChauffeur(chauffeur);
+        notification.setMission(mission);
+        notification.setType("MISSION_ASSIGNEE");
+        notification.rediger(NotificationTemplates.MISSION_ASSIGNEE_CHAUFFEUR,
+            mission.getDepart(),
+            mission.getDestination(),
+            mission.getDateHeure().toLocalDate(),
+            mission.getDateHeure().toLocalTime());
+        notification.setDateEnvoi(LocalDateTime.now());
+        notification.setLue(false);
+        return notification;
     }
 
 
@@ -378,7 +526,8 @@ public class AdminService {
     public void accepterDemandeConge(Long indisponibiliteId) {
         Indisponibilite indisponibilite = indisponibiliteRepository.findById(indisponibiliteId)
                 .orElseThrow(() -> new RuntimeException("Demande de congé non trouvée"));
-        
+        availabilityIndex.reserverConge(indisponibilite);
+
         // Mark as accepted
         indisponibilite.setAcceptee(true);
         indisponibilite.setStatut("ACCEPTEE");
@@ -404,11 +553,11 @@ public class AdminService {
             notification.setChauffeur(chauffeur);
             notification.setIndisponibilite(indisponibilite);
             notification.setType("CONGE_ACCEPTE");
-            notification.setMessage("Votre demande de congé du " + indisponibilite.getDateDebut().toLocalDate() + 
-                                  " au " + indisponibilite.getDateFin().toLocalDate() + " a été acceptée.");
+            notification.rediger(NotificationTemplates.CONGE_ACCEPTE,
+                    indisponibilite.getDateDebut().toLocalDate(), indisponibilite.getDateFin().toLocalDate());
             notification.setDateEnvoi(LocalDateTime.now());
             notification.setLue(false);
-            notificationService.creerNotification(notification);
+            notificationService.publier(notification);
         }
     }
 
@@ -429,16 +578,17 @@ public class AdminService {
             notification.setChauffeur(chauffeur);
             notification.setIndisponibilite(indisponibilite);
             notification.setType("CONGE_REFUSE");
-            String message = "Votre demande de congé du " + indisponibilite.getDateDebut().toLocalDate() + 
-                           " au " + indisponibilite.getDateFin().toLocalDate() + " a été refusée.";
             if (raisonRefus != null && !raisonRefus.trim().isEmpty()) {
-                message += " Raison: " + raisonRefus;
+                notification.rediger(NotificationTemplates.CONGE_REFUSE_RAISON,
+                        indisponibilite.getDateDebut().toLocalDate(), indisponibilite.getDateFin().toLocalDate(), raisonRefus);
+            } else {
+                notification.rediger(NotificationTemplates.CONGE_REFUSE,
+                        indisponibilite.getDateDebut().toLocalDate(), indisponibilite.getDateFin().toLocalDate());
             }
-            notification.setMessage(message);
             notification.setDateEnvoi(LocalDateTime.now());
             notification.setLue(false);
             
-            notificationService.creerNotification(notification);
+            notificationService.publier(notification);
         }
     }
 
@@ -448,19 +598,14 @@ public class AdminService {
 
     // Helper methods
     private void creerNotificationPourChauffeur(Indisponibilite indisponibilite, String type, String message) {
-        try {
-            Notification notification = new Notification();
-            notification.setChauffeur(indisponibilite.getChauffeur());
-            notification.setIndisponibilite(indisponibilite);
-            notification.setType(type);
-            notification.setMessage(message);
-            notification.setDateEnvoi(LocalDateTime.now());
-            notification.setLue(false);
-            
-            notificationService.creerNotification(notification);
-        } catch (Exception e) {
-            System.err.println("Erreur lors de la création de la notification chauffeur: " + e.getMessage());
-        }
+        Notification notification = new Notification();
+        notification.setChauffeur(indisponibilite.getChauffeur());
+        notification.setIndisponibilite(indisponibilite);
+        notification.setType(type);
+        notification.setMessage(message);
+        notification.setDateEnvoi(LocalDateTime.now());
+        notification.setLue(false);
+        notificationService.publier(notification);
     }
 
     private String getTypeLabel(String type) {
@@ -476,33 +621,14 @@ public class AdminService {
 
     // Reassign mission to new driver after problem reported
     @Transactional
-    public Mission reassignMission(Long missionId, Long newChauffeurId) {
-        Mission mission = missionRepository.findById(missionId)
-                .orElseThrow(() -> new RuntimeException("Mission non trouvée"));
-        
-        Chauffeur newChauffeur = chauffeurRepository.findById(newChauffeurId)
-                .orElseThrow(() -> new RuntimeException("Chauffeur non trouvé"));
-        
-        // Verify mission is in correct state for reassignment
-        // Allow reassignment for:
-        // 1. Missions with problems in EN_ATTENTE status
-        // 2. Missions that have been refused (REFUSEE status)
-        boolean canReassign = 
-            (Mission.EtatMission.EN_ATTENTE.equals(mission.getEtat()) && mission.getProbleme() != null) ||
-            Mission.EtatMission.REFUSEE.equals(mission.getEtat());
-            
-        if (!canReassign) {
-            throw new RuntimeException("Cette mission ne peut pas être réassignée");
+    public void reassignMission(Long missionId, Long newChauffeurId) {
+        if (!chauffeurRepository.existsById(newChauffeurId)) {
+            throw new RuntimeException("Chauffeur non trouvé");
         }
-        
-        // Assign new driver and reset status
-        mission.setChauffeur(newChauffeur);
-        mission.setEtat(Mission.EtatMission.valueOf("EN_ATTENTE"));
-        mission.setAcceptee(false);
-        // Clear the problem since it's been resolved by reassigning a new driver
-        mission.setProbleme(null);
-        
-        return missionRepository.save(mission);
+
+        // Allowed for missions with problems back in EN_ATTENTE and for refused missions (see
+        // MissionStateMachine.Transition.REASSIGNER); the new driver starts from a cleared problem
+        missionStateMachine.apply(missionId, MissionStateMachine.Transition.REASSIGNER, newChauffeurId, null);
     }
 
     // Delete chauffeur and associated user account
@@ -537,8 +663,9 @@ public class AdminService {
                 userRepository.delete(user);
             }
             
-            // Finally delete the chauffeur
+            // Finally delete the chauffeur and its mission counters
             chauffeurRepository.delete(chauffeur);
+            missionCounterService.deleteScope(MissionCounter.Scope.CHAUFFEUR, chauffeurId);
             
         } catch (Exception e) {
             throw new RuntimeException("Erreur lors de la suppression du chauffeur: " + e.getMessage());
@@ -546,7 +673,7 @@ public class AdminService {
     }
 
     public ChauffeurDTO getChauffeurById(Long id) {
-        Chauffeur chauffeur = chauffeurRepository.findById(id)
+        Chauffeur chauffeur = chauffeurRepository.findDetailsById(id)
             .orElseThrow(() -> new RuntimeException("Chauffeur non trouvé avec l'ID: " + id));
         
         String email = chauffeur.getUser() != null ? chauffeur.getUser().getEmail() : "N/A";
@@ -614,7 +741,7 @@ public class AdminService {
     }
 
     public ma.formation.jdbc.application.dto.EmployeeResponseDTO getEmployeeById(Long id) {
-        Employe employee = employeRepository.findById(id)
+        Employe employee = employeRepository.findDetailsById(id)
             .orElseThrow(() -> new RuntimeException("Employé non trouvé avec l'ID: " + id));
         
         return new ma.formation.jdbc.application.dto.EmployeeResponseDTO(
@@ -689,8 +816,9 @@ public class AdminService {
                 userRepository.delete(user);
             }
             
-            // Finally delete the employee
+            // Finally delete the employee and its mission counters
             employeRepository.delete(employee);
+            missionCounterService.deleteScope(MissionCounter.Scope.EMPLOYE, employeeId);
             
         } catch (Exception e) {
             throw new RuntimeException("Erreur lors de la suppression de l'employé: " + e.getMessage());
@@ -699,64 +827,46 @@ public class AdminService {
 
     @Transactional(readOnly = true)
     public List<MissionSummary> getEmployeeMissions(Long employeeId) {
-        List<Mission> missions = missionRepository.findByEmployeId(employeeId);
-        
-        return missions.stream().map(mission -> {
-            MissionSummary summary = new MissionSummary();
-            summary.setId(mission.getId());
-            summary.setDestination(mission.getDestination());
-            summary.setDepart(mission.getDepart());
-            summary.setDateHeure(mission.getDateHeure());
-            summary.setEtat(mission.getEtat().toString());
-            summary.setTypeMission(mission.getTypeMission() != null ? mission.getTypeMission().toString() : "STANDARD");
-            summary.setDescription(mission.getInstructions());
-            
-            // Add chauffeur information if available
-            if (mission.getChauffeur() != null) {
-                summary.setChauffeurNom(mission.getChauffeur().getNom());
-                summary.setChauffeurPrenom(mission.getChauffeur().getPrenom());
-            }
-            
-            return summary;
-        }).collect(Collectors.toList());
+        return missionRepository.findSummariesByEmployeId(employeeId);
     }
 
     // Delete mission
     public MissionResponseDTO getMissionById(Long missionId) {
-        Mission mission = missionRepository.findById(missionId)
+        return missionRepository.findResponseById(missionId)
             .orElseThrow(() -> new RuntimeException("Mission non trouvée avec l'ID: " + missionId));
-        return new MissionResponseDTO(mission);
     }
 
     @Transactional
     public void updateMission(Long missionId, MissionUpdateDTO missionUpdateDTO) {
         Mission mission = missionRepository.findById(missionId)
             .orElseThrow(() -> new RuntimeException("Mission non trouvée avec l'ID: " + missionId));
+        MissionCounterService.Snapshot before = MissionCounterService.Snapshot.of(mission);
+
+        // The state only moves through MissionStateMachine transitions (accept, start, finish...); the
+        // form may send the current state back
+        Mission.EtatMission etat = mission.getEtat();
+        if (missionUpdateDTO.getEtat() != null && !missionUpdateDTO.getEtat().equals(etat.name())) {
+            throw new RuntimeException("L'état de la mission ne peut pas être modifié ici : " + etat
+                    + " vers " + missionUpdateDTO.getEtat());
+        }
+
+        // Chauffeur if provided, reserved before the mission is modified: the schedule is read from the
+        // database, which would flush the pending changes first
+        Chauffeur chauffeur = null;
+        if (missionUpdateDTO.getChauffeurId() != null) {
+            chauffeur = chauffeurRepository.findById(missionUpdateDTO.getChauffeurId())
+                .orElseThrow(() -> new RuntimeException("Chauffeur non trouvé avec l'ID: " + missionUpdateDTO.getChauffeurId()));
+            if (AvailabilityIndex.ETATS_PLANIFIES.contains(etat) && missionUpdateDTO.getDateHeure() != null) {
+                availabilityIndex.reserverChauffeur(chauffeur.getId(), missionUpdateDTO.getDateHeure(), missionId);
+            }
+        }
 
         // Update mission fields
         mission.setDepart(missionUpdateDTO.getDepart());
         mission.setDestination(missionUpdateDTO.getDestination());
         mission.setDateHeure(missionUpdateDTO.getDateHeure());
         mission.setTypeMission(missionUpdateDTO.getTypeMission());
-        
-        // Update state if provided
-        if (missionUpdateDTO.getEtat() != null) {
-            try {
-                Mission.EtatMission etat = Mission.EtatMission.valueOf(missionUpdateDTO.getEtat());
-                mission.setEtat(etat);
-            } catch (IllegalArgumentException e) {
-                throw new RuntimeException("État de mission invalide: " + missionUpdateDTO.getEtat());
-            }
-        }
-
-        // Update chauffeur if provided
-        if (missionUpdateDTO.getChauffeurId() != null) {
-            Chauffeur chauffeur = chauffeurRepository.findById(missionUpdateDTO.getChauffeurId())
-                .orElseThrow(() -> new RuntimeException("Chauffeur non trouvé avec l'ID: " + missionUpdateDTO.getChauffeurId()));
-            mission.setChauffeur(chauffeur);
-        } else {
-            mission.setChauffeur(null);
-        }
+        mission.setChauffeur(chauffeur);
 
         // Update vehicule if provided
         if (missionUpdateDTO.getVehiculeId() != null) {
@@ -776,7 +886,8 @@ public class AdminService {
             mission.setEmploye(null);
         }
 
-        missionRepository.save(mission);
+        saveOrConflict(mission);
+        missionCounterService.record(before, MissionCounterService.Snapshot.of(mission));
     }
 
     @Transactional
@@ -789,7 +900,22 @@ public class AdminService {
             throw new RuntimeException("Impossible de supprimer une mission en cours");
         }
         
-        missionRepository.delete(mission);
+        try {
+            missionRepository.delete(mission);
+            missionRepository.flush();
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new MissionConflictException("La mission a été modifiée entre-temps, veuillez réessayer");
+        }
+        missionCounterService.record(MissionCounterService.Snapshot.of(mission), null);
+    }
+
+    // Flushes now so a concurrent transition (which bumped the version) surfaces as a conflict here
+    private void saveOrConflict(Mission mission) {
+        try {
+            missionRepository.saveAndFlush(mission);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new MissionConflictException("La mission a été modifiée entre-temps, veuillez réessayer");
+        }
     }
 
 }
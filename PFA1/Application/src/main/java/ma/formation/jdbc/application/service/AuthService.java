@@ -49,6 +49,13 @@ public class AuthService {
                 .orElse(AuthResponse.fromUser(user));
         }
 
+        // If user is an admin, fetch the adminId
+        if (user.getRole() == UserRole.ADMIN) {
+            return adminRepository.findByUser(user)
+                .map(admin -> AuthResponse.fromUserWithAdminId(user, admin.getId()))
+                .orElse(AuthResponse.fromUser(user));
+        }
+
         return AuthResponse.fromUser(user);
     }
 }
@@ -0,0 +1,478 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.exception.MissionConflictException;
+import ma.formation.jdbc.application.model.Indisponibilite;
+import ma.formation.jdbc.application.model.Mission;
+import ma.formation.jdbc.application.repository.ChauffeurRepository;
+import ma.formation.jdbc.application.repository.IndisponibiliteRepository;
+import ma.formation.jdbc.application.repository.MissionRepository;
+import ma.formation.jdbc.application.repository.VehiculeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Process-local view of driver and vehicle availability: vehicle {@code disponible} and driver
+ * {@code actif} flags as id-keyed bitsets, the drivers and vehicles held by COMMENCEE/EN_COURS missions,
+ * and each driver's schedule (the windows of their planned missions and their accepted leave) as an
+ * {@link IntervalTree}, so schedule conflicts are found in O(log n) without reading the driver's history.
+ * Built before the server accepts requests, updated after commit by every write
+ * (entity writes through {@link ma.formation.jdbc.application.config.EntityWriteListener}, bulk updates
+ * by their callers) and rebuilt periodically from the database to repair drift, e.g. from writes made
+ * by another instance.
+ */
+@Service
+public class AvailabilityIndex implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    // A driver or vehicle on a mission in one of these states is busy
+    public static final List<Mission.EtatMission> ETATS_ACTIFS =
+            List.of(Mission.EtatMission.COMMENCEE, Mission.EtatMission.EN_COURS);
+
+    // A mission in one of these states takes its window in the driver's schedule
+    public static final List<Mission.EtatMission> ETATS_PLANIFIES =
+            List.of(Mission.EtatMission.EN_ATTENTE, Mission.EtatMission.COMMENCEE, Mission.EtatMission.EN_COURS);
+
+    @Autowired
+    private VehiculeRepository vehiculeRepository;
+
+    @Autowired
+    private ChauffeurRepository chauffeurRepository;
+
+    @Autowired
+    private MissionRepository missionRepository;
+
+    @Autowired
+    private IndisponibiliteRepository indisponibiliteRepository;
+
+    // Missions only have a start, every mission is assumed to take this long
+    @Value("${planning.duree-mission-minutes:120}")
+    private long dureeMissionMinutes;
+
+    private final TransactionTemplate readOnly;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+
+    // Events applied while a rebuild is reading the database, replayed on the rebuilt state
+    private List<Consumer<State>> journal;
+
+    public AvailabilityIndex(PlatformTransactionManager transactionManager) {
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    /** An entry of a driver's schedule: a mission window or an accepted leave. */
+    public record Creneau(Type type, Long id) implements Comparable<Creneau> {
+        public enum Type { MISSION, CONGE }
+
+        @Override
+        public int compareTo(Creneau other) {
+            int c = type.compareTo(other.type);
+            return c != 0 ? c : id.compareTo(other.id);
+        }
+    }
+
+    private record Affectation(Long chauffeurId, Long vehiculeId) {}
+
+    private record Placement(Long chauffeurId, LocalDateTime debut, LocalDateTime fin) {}
+
+    private static final class State {
+        final BitSet vehiculesConnus = new BitSet();
+        final BitSet vehiculesDisponibles = new BitSet();
+        final BitSet chauffeursConnus = new BitSet();
+        final BitSet chauffeursActifs = new BitSet();
+        // Active missions and how many of them hold each driver / vehicle
+        final Map<Long, Affectation> missionsActives = new HashMap<>();
+        final Map<Long, Integer> missionsParChauffeur = new HashMap<>();
+        final Map<Long, Integer> missionsParVehicule = new HashMap<>();
+        // Where each planned mission and accepted leave sits, and the schedule of each driver
+        final Map<Long, Placement> missionsPlanifiees = new HashMap<>();
+        final Map<Long, Placement> conges = new HashMap<>();
+        final Map<Long, IntervalTree<Creneau>> planning = new HashMap<>();
+
+        void setVehicule(Long id, boolean disponible) {
+            vehiculesConnus.set(bit(id));
+            vehiculesDisponibles.set(bit(id), disponible);
+        }
+
+        void removeVehicule(Long id) {
+            vehiculesConnus.clear(bit(id));
+            vehiculesDisponibles.clear(bit(id));
+        }
+
+        void setChauffeur(Long id, boolean actif) {
+            chauffeursConnus.set(bit(id));
+            chauffeursActifs.set(bit(id), actif);
+        }
+
+        void removeChauffeur(Long id) {
+            chauffeursConnus.clear(bit(id));
+            chauffeursActifs.clear(bit(id));
+        }
+
+        // Replaces whatever was known about the mission; only active and planned missions are kept
+        void setMission(Long id, Mission.EtatMission etat, Long chauffeurId, Long vehiculeId,
+                        LocalDateTime debut, LocalDateTime fin) {
+            Affectation previous = missionsActives.remove(id);
+            if (previous != null) {
+                count(missionsParChauffeur, previous.chauffeurId(), -1);
+                count(missionsParVehicule, previous.vehiculeId(), -1);
+            }
+            if (etat != null && ETATS_ACTIFS.contains(etat)) {
+                missionsActives.put(id, new Affectation(chauffeurId, vehiculeId));
+                count(missionsParChauffeur, chauffeurId, 1);
+                count(missionsParVehicule, vehiculeId, 1);
+            }
+            Creneau creneau = new Creneau(Creneau.Type.MISSION, id);
+            unplan(missionsPlanifiees.remove(id), creneau);
+            if (etat != null && ETATS_PLANIFIES.contains(etat) && chauffeurId != null && debut != null) {
+                Placement placement = new Placement(chauffeurId, debut, fin);
+                missionsPlanifiees.put(id, placement);
+                plan(placement, creneau);
+            }
+        }
+
+        void setConge(Long id, Long chauffeurId, boolean acceptee, LocalDateTime debut, LocalDateTime fin) {
+            Creneau creneau = new Creneau(Creneau.Type.CONGE, id);
+            unplan(conges.remove(id), creneau);
+            if (acceptee && chauffeurId != null && debut != null && fin != null) {
+                Placement placement = new Placement(chauffeurId, debut, fin);
+                conges.put(id, placement);
+                plan(placement, creneau);
+            }
+        }
+
+        private void plan(Placement placement, Creneau creneau) {
+            planning.computeIfAbsent(placement.chauffeurId(), k -> new IntervalTree<>())
+                    .add(placement.debut(), placement.fin(), creneau);
+        }
+
+        private void unplan(Placement placement, Creneau creneau) {
+            if (placement == null) {
+                return;
+            }
+            IntervalTree<Creneau> tree = planning.get(placement.chauffeurId());
+            tree.remove(placement.debut(), creneau);
+            if (tree.isEmpty()) {
+                planning.remove(placement.chauffeurId());
+            }
+        }
+
+        Creneau conflit(Long chauffeurId, LocalDateTime debut, LocalDateTime fin, Long missionIgnoree) {
+            IntervalTree<Creneau> tree = planning.get(chauffeurId);
+            if (tree == null) {
+                return null;
+            }
+            return tree.firstOverlap(debut, fin,
+                    c -> c.type() == Creneau.Type.MISSION && c.id().equals(missionIgnoree));
+        }
+
+        // A planned mission of the driver overlapping [debut, fin); other leave does not count
+        Creneau missionPendant(Long chauffeurId, LocalDateTime debut, LocalDateTime fin) {
+            IntervalTree<Creneau> tree = planning.get(chauffeurId);
+            return tree == null ? null : tree.firstOverlap(debut, fin, c -> c.type() == Creneau.Type.CONGE);
+        }
+
+        private static void count(Map<Long, Integer> counts, Long id, int delta) {
+            if (id != null) {
+                counts.merge(id, delta, (a, b) -> a + b == 0 ? null : a + b);
+            }
+        }
+    }
+
+    private static int bit(Long id) {
+        return Math.toIntExact(id);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${availability-index.reconcile.delay-ms:300000}",
+               initialDelayString = "${availability-index.reconcile.delay-ms:300000}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    // ---- queries (answered from memory) ----
+
+    /** The vehicle's {@code disponible} flag, or null when the vehicle is unknown to the index. */
+    public Boolean isVehiculeDisponible(Long vehiculeId) {
+        return read(s -> s.vehiculesConnus.get(bit(vehiculeId)) ? s.vehiculesDisponibles.get(bit(vehiculeId)) : null);
+    }
+
+    /** Disponible and not held by an active mission. */
+    public boolean isVehiculeLibre(Long vehiculeId) {
+        return read(s -> s.vehiculesDisponibles.get(bit(vehiculeId)) && !s.missionsParVehicule.containsKey(vehiculeId));
+    }
+
+    public boolean isChauffeurActif(Long chauffeurId) {
+        return read(s -> s.chauffeursActifs.get(bit(chauffeurId)));
+    }
+
+    /** True when the driver has a COMMENCEE or EN_COURS mission. */
+    public boolean isChauffeurEnMission(Long chauffeurId) {
+        return read(s -> s.missionsParChauffeur.containsKey(chauffeurId));
+    }
+
+    /** End of the window of a mission starting at {@code dateHeure}. */
+    public LocalDateTime finMission(LocalDateTime dateHeure) {
+        return dateHeure.plusMinutes(dureeMissionMinutes);
+    }
+
+    /**
+     * A planned mission (other than {@code missionIgnoree}) or accepted leave of the driver that overlaps
+     * the window of a mission starting at {@code dateHeure}, or null when the driver is free.
+     */
+    public Creneau conflit(Long chauffeurId, LocalDateTime dateHeure, Long missionIgnoree) {
+        LocalDateTime fin = finMission(dateHeure);
+        return read(s -> s.conflit(chauffeurId, dateHeure, fin, missionIgnoree));
+    }
+
+    /**
+     * Throws a {@link MissionConflictException} when the driver is not free for a mission at
+     * {@code dateHeure}. Checked against the database under the driver's row lock, as for
+     * {@link #verrouillerChauffeurs}, so two transactions cannot both give the driver the same slot.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserverChauffeur(Long chauffeurId, LocalDateTime dateHeure, Long missionIgnoree) {
+        verrouillerChauffeurs(List.of(chauffeurId));
+        planningVerrouille(List.of(chauffeurId), dateHeure, dateHeure).verifierChauffeurLibre(chauffeurId, dateHeure, missionIgnoree);
+    }
+
+    /**
+     * Throws a {@link MissionConflictException} when the driver has a planned mission during the leave,
+     * before it is accepted. Checked under the driver's row lock like {@link #reserverChauffeur}, so a
+     * leave being approved and a mission being assigned in its window cannot both go through.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserverConge(Indisponibilite conge) {
+        if (conge.getChauffeur() == null || conge.getDateDebut() == null || conge.getDateFin() == null) {
+            return;
+        }
+        Long chauffeurId = conge.getChauffeur().getId();
+        verrouillerChauffeurs(List.of(chauffeurId));
+        planningVerrouille(List.of(chauffeurId), conge.getDateDebut(), conge.getDateFin())
+                .verifierCongePossible(chauffeurId, conge.getDateDebut(), conge.getDateFin());
+    }
+
+    /**
+     * Locks the rows of these drivers, in id order, until the caller's transaction ends; returns the ids
+     * that exist. Every assignment of a driver takes this lock before checking the driver's schedule, so
+     * two of them run one after the other. The index cannot decide on its own: it only learns of an
+     * assignment once that one has committed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<Long> verrouillerChauffeurs(Collection<Long> chauffeurIds) {
+        return chauffeurIds.isEmpty() ? Set.of() : new HashSet<>(chauffeurRepository.lockByIdIn(chauffeurIds));
+    }
+
+    /**
+     * Schedules of drivers locked by {@link #verrouillerChauffeurs}, for missions starting between
+     * {@code premier} and {@code dernier}, read from the database as committed: two queries, whatever
+     * the number of drivers.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Planning planningVerrouille(Collection<Long> chauffeurIds, LocalDateTime premier, LocalDateTime dernier) {
+        State s = new State();
+        if (!chauffeurIds.isEmpty()) {
+            LocalDateTime debut = premier.minusMinutes(dureeMissionMinutes);
+            LocalDateTime fin = finMission(dernier);
+            for (Object[] row : missionRepository.lockPlanningByChauffeurIdIn(chauffeurIds, ETATS_PLANIFIES, debut, fin)) {
+                LocalDateTime dateHeure = (LocalDateTime) row[4];
+                s.setMission((Long) row[0], (Mission.EtatMission) row[1], (Long) row[2], (Long) row[3],
+                        dateHeure, finMission(dateHeure));
+            }
+            for (Object[] row : indisponibiliteRepository.lockAccepteesByChauffeurIdIn(chauffeurIds, premier, fin)) {
+                s.setConge((Long) row[0], (Long) row[1], true, (LocalDateTime) row[2], (LocalDateTime) row[3]);
+            }
+        }
+        return new Planning(s);
+    }
+
+    /** Driver schedules read by {@link #planningVerrouille}. */
+    public final class Planning {
+        private final State state;
+
+        private Planning(State state) {
+            this.state = state;
+        }
+
+        /** Throws a {@link MissionConflictException} when the driver is not free for a mission at {@code dateHeure}. */
+        public void verifierChauffeurLibre(Long chauffeurId, LocalDateTime dateHeure, Long missionIgnoree) {
+            Creneau conflit = state.conflit(chauffeurId, dateHeure, finMission(dateHeure), missionIgnoree);
+            if (conflit != null) {
+                throw new MissionConflictException(conflit.type() == Creneau.Type.CONGE
+                        ? "Le chauffeur est en congé à cette date"
+                        : "Le chauffeur a déjà une mission sur ce créneau (mission " + conflit.id() + ")");
+            }
+        }
+
+        /** Throws a {@link MissionConflictException} when the driver has a planned mission in {@code [debut, fin)}. */
+        public void verifierCongePossible(Long chauffeurId, LocalDateTime debut, LocalDateTime fin) {
+            Creneau conflit = state.missionPendant(chauffeurId, debut, fin);
+            if (conflit != null) {
+                throw new MissionConflictException(
+                        "Le chauffeur a une mission planifiée pendant ce congé (mission " + conflit.id() + ")");
+            }
+        }
+    }
+
+    /** True when the driver has no planned mission nor accepted leave overlapping {@code [debut, fin)}. */
+    public boolean isChauffeurLibre(Long chauffeurId, LocalDateTime debut, LocalDateTime fin) {
+        return read(s -> s.conflit(chauffeurId, debut, fin, null) == null);
+    }
+
+    /** Active drivers with nothing in their schedule overlapping {@code [debut, fin)}, by id. */
+    public List<Long> chauffeursLibres(LocalDateTime debut, LocalDateTime fin) {
+        return read(s -> s.chauffeursActifs.stream()
+                .mapToObj(Long::valueOf)
+                .filter(id -> s.conflit(id, debut, fin, null) == null)
+                .collect(Collectors.toList()));
+    }
+
+    // ---- updates (call after commit, see afterCommit) ----
+
+    public void vehiculeWritten(Long id, boolean disponible) {
+        apply(s -> s.setVehicule(id, disponible));
+    }
+
+    public void vehiculeDeleted(Long id) {
+        apply(s -> s.removeVehicule(id));
+    }
+
+    public void chauffeurWritten(Long id, boolean actif) {
+        apply(s -> s.setChauffeur(id, actif));
+    }
+
+    public void chauffeurDeleted(Long id) {
+        apply(s -> s.removeChauffeur(id));
+    }
+
+    public void missionWritten(Long id, Mission.EtatMission etat, Long chauffeurId, Long vehiculeId, LocalDateTime dateHeure) {
+        LocalDateTime fin = dateHeure != null ? finMission(dateHeure) : null;
+        apply(s -> s.setMission(id, etat, chauffeurId, vehiculeId, dateHeure, fin));
+    }
+
+    public void missionDeleted(Long id) {
+        apply(s -> s.setMission(id, null, null, null, null, null));
+    }
+
+    public void congeWritten(Long id, Long chauffeurId, boolean acceptee, LocalDateTime debut, LocalDateTime fin) {
+        apply(s -> s.setConge(id, chauffeurId, acceptee, debut, fin));
+    }
+
+    public void congeDeleted(Long id) {
+        apply(s -> s.setConge(id, null, false, null, null));
+    }
+
+    /** Runs {@code update} once the current transaction commits, or now outside a transaction. */
+    public void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    private <T> T read(Function<State, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(state);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<State> event) {
+        lock.writeLock().lock();
+        try {
+            event.accept(state);
+            if (journal != null) {
+                journal.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            journal = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State rebuilt;
+        try {
+            rebuilt = readOnly.execute(status -> load());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            journal.forEach(event -> event.accept(rebuilt));
+            replayed = journal.size();
+            journal = null;
+            state = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Availability index rebuilt: {} vehicles, {} drivers, {} planned missions ({} active), {} leaves ({} events replayed) in {} ms",
+                rebuilt.vehiculesConnus.cardinality(), rebuilt.chauffeursConnus.cardinality(), rebuilt.missionsPlanifiees.size(),
+                rebuilt.missionsActives.size(), rebuilt.conges.size(), replayed, System.currentTimeMillis() - start);
+    }
+
+    private State load() {
+        State s = new State();
+        for (Object[] row : vehiculeRepository.findAllDisponibilites()) {
+            s.setVehicule((Long) row[0], (Boolean) row[1]);
+        }
+        for (Object[] row : chauffeurRepository.findAllActifs()) {
+            s.setChauffeur((Long) row[0], (Boolean) row[1]);
+        }
+        for (Object[] row : missionRepository.findPlanningByEtatIn(ETATS_PLANIFIES)) {
+            LocalDateTime dateHeure = (LocalDateTime) row[4];
+            s.setMission((Long) row[0], (Mission.EtatMission) row[1], (Long) row[2], (Long) row[3],
+                    dateHeure, dateHeure != null ? finMission(dateHeure) : null);
+        }
+        for (Object[] row : indisponibiliteRepository.findAccepteesEndingAfter(LocalDateTime.now())) {
+            s.setConge((Long) row[0], (Long) row[1], true, (LocalDateTime) row[2], (LocalDateTime) row[3]);
+        }
+        return s;
+    }
+}
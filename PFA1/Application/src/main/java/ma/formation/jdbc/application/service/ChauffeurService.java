@@ -1,6 +1,7 @@
 package ma.formation.jdbc.application.service;
 
 import ma.formation.jdbc.application.model.*;
+import ma.formation.jdbc.application.dto.NotificationPageDTO;
 import ma.formation.jdbc.application.dto.NotificationResponseDTO;
 import ma.formation.jdbc.application.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,7 +25,7 @@ public class ChauffeurService {
     private NotificationService notificationService;
 
     @Autowired
-    private AdminRepository adminRepository;
+    private AvailabilityIndex availabilityIndex;
 
     @Transactional
     public Chauffeur creerChauffeur(Chauffeur chauffeur) {
@@ -36,7 +37,7 @@ public class ChauffeurService {
     }
 
     public Chauffeur getChauffeurById(Long id) {
-        return chauffeurRepository.findById(id)
+        return chauffeurRepository.findDetailsById(id)
                 .orElseThrow(() -> new RuntimeException("Chauffeur non trouvé"));
     }
 
@@ -77,41 +78,30 @@ public class ChauffeurService {
     public void marquerIndisponibiliteAcceptee(Long indisponibiliteId) {
         indisponibiliteRepository.findById(indisponibiliteId)
             .ifPresent(indispo -> {
+                availabilityIndex.reserverConge(indispo);
                 indispo.setAcceptee(true);
                 indisponibiliteRepository.save(indispo);
             });
     }
 
-    // Create notification for admin when driver submits leave request
+    // Create notification for the admins when driver submits leave request
     private void creerNotificationPourAdmin(Indisponibilite indisponibilite) {
-        try {
-            // Get the first admin (assuming single admin system)
-            List<Admin> admins = adminRepository.findAll();
-            if (!admins.isEmpty()) {
-                Admin admin = admins.get(0);
-                
-                Chauffeur chauffeur = indisponibilite.getChauffeur();
-                String chauffeurName = chauffeur.getNom() + " " + chauffeur.getPrenom();
-                
-                Notification notification = new Notification();
-                notification.setAdmin(admin);
-                notification.setIndisponibilite(indisponibilite);
-                notification.setType("DEMANDE_CONGE");
-                notification.setMessage(String.format("Nouvelle demande de congé de %s (%s) du %s au %s. Raison: %s", 
-                    chauffeurName,
-                    getTypeLabel(indisponibilite.getType()),
-                    indisponibilite.getDateDebut().toLocalDate(),
-                    indisponibilite.getDateFin().toLocalDate(),
-                    indisponibilite.getRaison() != null ? indisponibilite.getRaison() : "Non spécifiée"));
-                notification.setDateEnvoi(LocalDateTime.now());
-                notification.setLue(false);
-                
-                notificationService.creerNotification(notification);
-            }
-        } catch (Exception e) {
-            // Log error but don't fail the leave request creation
-            System.err.println("Erreur lors de la création de la notification admin: " + e.getMessage());
-        }
+        Chauffeur chauffeur = indisponibilite.getChauffeur();
+        String chauffeurName = chauffeur.getNom() + " " + chauffeur.getPrenom();
+
+        Notification notification = new Notification();
+        notification.setIndisponibilite(indisponibilite);
+        notification.setType("DEMANDE_CONGE");
+        notification.rediger(NotificationTemplates.DEMANDE_CONGE,
+            chauffeurName,
+            getTypeLabel(indisponibilite.getType()),
+            indisponibilite.getDateDebut().toLocalDate(),
+            indisponibilite.getDateFin().toLocalDate(),
+            indisponibilite.getRaison() != null ? indisponibilite.getRaison() : "Non spécifiée");
+        notification.setDateEnvoi(LocalDateTime.now());
+        notification.setLue(false);
+
+        notificationService.publierPourAdmins(notification);
     }
 
     // Chauffeur notification methods
@@ -119,6 +109,13 @@ public class ChauffeurService {
         return notificationService.getNotificationsByChauffeurId(chauffeurId);
     }
 
+    public NotificationPageDTO<NotificationResponseDTO> getChauffeurNotificationFeed(Long chauffeurId,
+                                                                                   LocalDateTime beforeDate, Long beforeId,
+                                                                                   LocalDateTime afterDate, Long afterId,
+                                                                                   Integer size) {
+        return notificationService.getChauffeurFeed(chauffeurId, beforeDate, beforeId, afterDate, afterId, size);
+    }
+
     public Long getChauffeurUnreadNotificationsCount(Long chauffeurId) {
         return notificationService.getUnreadNotificationsCountByChauffeurId(chauffeurId);
     }
@@ -128,6 +125,10 @@ public class ChauffeurService {
         notificationService.markAsRead(notificationId);
     }
 
+    public int markAllChauffeurNotificationsAsRead(Long chauffeurId) {
+        return notificationService.markAllChauffeurAsRead(chauffeurId);
+    }
+
     // Helper method for leave type labels
     private String getTypeLabel(String type) {
         switch (type) {
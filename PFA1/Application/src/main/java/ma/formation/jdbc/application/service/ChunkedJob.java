@@ -0,0 +1,75 @@
+package ma.formation.jdbc.application.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Background pass over a table in ascending id chunks: reads the rows after the last id seen, processes
+ * them, then pauses. The read and the processing of a chunk are each one short transaction, so live
+ * inserts and reads never wait long on the job's locks. Stops after a short chunk or once stopped.
+ */
+final class ChunkedJob {
+    private final TransactionTemplate chunkTransaction;
+    private final IntSupplier chunkSize;
+    // Pause between two chunks
+    private final LongSupplier pauseMs;
+
+    private volatile boolean arret;
+
+    ChunkedJob(PlatformTransactionManager transactionManager, IntSupplier chunkSize, LongSupplier pauseMs) {
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.pauseMs = pauseMs;
+    }
+
+    /**
+     * Runs the pass: {@code lecture} reads the chunk after an id, {@code id} gives a row's id and
+     * {@code traitement} processes a chunk in its transaction. Returns the sum of what {@code traitement}
+     * returned.
+     */
+    <T> int run(BiFunction<Long, Pageable, List<T>> lecture, ToLongFunction<T> id,
+                ToIntFunction<List<T>> traitement) {
+        int taille = chunkSize.getAsInt();
+        long afterId = 0;
+        int total = 0;
+        List<T> chunk;
+        do {
+            long depuis = afterId;
+            chunk = chunkTransaction.execute(status -> lecture.apply(depuis, PageRequest.of(0, taille)));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<T> lignes = chunk;
+            total += chunkTransaction.execute(status -> traitement.applyAsInt(lignes));
+            afterId = id.applyAsLong(chunk.get(chunk.size() - 1));
+            pause();
+        } while (chunk.size() == taille && !arret);
+        return total;
+    }
+
+    /** Ends a running pass after its current chunk, and every later one; for shutdown. */
+    void stop() {
+        arret = true;
+    }
+
+    private void pause() {
+        long ms = pauseMs.getAsLong();
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            arret = true;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package ma.formation.jdbc.application.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import ma.formation.jdbc.application.dto.DispatchMissionView;
+import ma.formation.jdbc.application.dto.DispatchResultDTO;
+import ma.formation.jdbc.application.exception.MissionConflictException;
+import ma.formation.jdbc.application.model.Mission;
+import ma.formation.jdbc.application.model.MissionCounter;
+import ma.formation.jdbc.application.model.Notification;
+import ma.formation.jdbc.application.model.NotificationTemplates;
+import ma.formation.jdbc.application.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Assigns unassigned EN_ATTENTE missions to drivers and vehicles in batches, on a schedule or on demand.
+ * A run reads the pending missions and the candidate drivers and vehicles once, filters and ranks the
+ * candidates of every mission in parallel on a fork/join pool, picks assignments greedily in mission date
+ * order, then writes them all in one transaction. The chosen drivers are locked and their schedules
+ * checked again in that transaction, and each write is guarded like a state transition, so a mission or
+ * driver taken by someone else since it was read is skipped and left for the next run.
+ */
+@Service
+public class DispatchService {
+    private static final Logger log = LoggerFactory.getLogger(DispatchService.class);
+
+    // Dispatcher assignment: only applies if the mission is still unassigned in the state and version that was read.
+    // The mission then waits for the driver to accept or refuse it, as after an admin assignment
+    private static final String AFFECTER =
+            "UPDATE missions SET chauffeur_id = ?, vehicule_id = ?, acceptee = FALSE, probleme = NULL, version = version + 1 " +
+            "WHERE id = ? AND etat = ? AND version = ? AND chauffeur_id IS NULL";
+
+    @Autowired
+    private MissionRepository missionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChauffeurRepository chauffeurRepository;
+
+    @Autowired
+    private VehiculeRepository vehiculeRepository;
+
+    @Autowired
+    private EmployeRepository employeRepository;
+
+    @Autowired
+    private MissionCounterRepository missionCounterRepository;
+
+    @Autowired
+    private MissionCounterService missionCounterService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private RecipientVersionService recipientVersionService;
+
+    @Value("${dispatch.batch-size:200}")
+    private int batchSize;
+
+    // Threads scoring candidates, 0 for one per processor
+    @Value("${dispatch.parallelism:0}")
+    private int parallelism;
+
+    // Missions carry no load, so capacity is required per type: "materiel" missions need at least this (kg)
+    @Value("${dispatch.capacite-minimale-materiel:0}")
+    private int capaciteMinimaleMateriel;
+
+    @Value("${dispatch.schedule.enabled:false}")
+    private boolean scheduleEnabled;
+
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnly;
+
+    // One run at a time, whether scheduled or requested
+    private final ReentrantLock running = new ReentrantLock();
+
+    private ForkJoinPool pool;
+
+    public DispatchService(PlatformTransactionManager transactionManager) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    private record Candidat(Long id, String nom, String prenom, Long vehiculeId, long charge) {}
+
+    private record VehiculeLibre(Long id, int capacite) {}
+
+    // Everything a run decides on, read once before scoring
+    private record Etat(List<DispatchMissionView> missions, List<Candidat> chauffeurs, List<VehiculeLibre> vehicules) {}
+
+    // A driver who can take the mission, and whether their own vehicle fits it
+    private record Candidature(Candidat chauffeur, boolean vehiculePropre) {}
+
+    private record Choix(DispatchMissionView mission, Candidat chauffeur, Long vehiculeId, boolean nouveauVehicule) {}
+
+    @PostConstruct
+    public void startPool() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stopPool() {
+        pool.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${dispatch.schedule.delay-ms:60000}",
+               initialDelayString = "${dispatch.schedule.delay-ms:60000}")
+    public void dispatchPeriodically() {
+        if (!scheduleEnabled || !running.tryLock()) {
+            return;
+        }
+        try {
+            DispatchResultDTO result = run();
+            if (result.getMissionsAffectees() > 0 || result.getConflits() > 0) {
+                log.info("Dispatch: {} of {} missions assigned, {} conflicts, in {} ms", result.getMissionsAffectees(),
+                        result.getMissionsExaminees(), result.getConflits(), result.getDureeMs());
+            }
+        } catch (RuntimeException e) {
+            log.error("Dispatch run failed", e);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /** Runs one dispatch batch now. */
+    public DispatchResultDTO dispatch() {
+        if (!running.tryLock()) {
+            throw new RuntimeException("Une répartition des missions est déjà en cours");
+        }
+        try {
+            return run();
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private DispatchResultDTO run() {
+        long start = System.currentTimeMillis();
+        DispatchResultDTO result = new DispatchResultDTO();
+        Etat etat = readOnly.execute(status -> charger());
+        result.setMissionsExaminees(etat.missions().size());
+
+        if (!etat.missions().isEmpty() && !etat.chauffeurs().isEmpty()) {
+            List<List<Candidature>> candidatures = pool.submit(() -> etat.missions().parallelStream()
+                    .map(mission -> candidatures(mission, etat))
+                    .collect(Collectors.toList())).join();
+            List<Choix> choix = choisir(etat, candidatures);
+            if (!choix.isEmpty()) {
+                transaction.executeWithoutResult(status -> enregistrer(choix, result));
+            }
+        }
+        result.setDureeMs(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private Etat charger() {
+        List<DispatchMissionView> missions = missionRepository.findNonAffectees(
+                Mission.EtatMission.EN_ATTENTE, PageRequest.of(0, batchSize));
+        if (missions.isEmpty()) {
+            return new Etat(missions, List.of(), List.of());
+        }
+
+        List<Object[]> profils = chauffeurRepository.findDispatchProfiles().stream()
+                .filter(row -> availabilityIndex.isChauffeurActif((Long) row[0])
+                        && !availabilityIndex.isChauffeurEnMission((Long) row[0]))
+                .collect(Collectors.toList());
+        Map<Long, Long> charges = new HashMap<>();
+        if (!profils.isEmpty()) {
+            Set<Long> ids = profils.stream().map(row -> (Long) row[0]).collect(Collectors.toSet());
+            for (MissionCounter counter : missionCounterRepository.findByScope(MissionCounter.Scope.CHAUFFEUR, ids)) {
+                charges.put(counter.getKey().getScopeId(),
+                        counter.getEnAttente() + counter.getCommencee() + counter.getEnCours());
+            }
+        }
+        List<Candidat> chauffeurs = profils.stream()
+                .map(row -> new Candidat((Long) row[0], (String) row[1], (String) row[2], (Long) row[3],
+                        charges.getOrDefault((Long) row[0], 0L)))
+                .collect(Collectors.toList());
+
+        // Smallest first, so the first vehicle that fits is the best fit
+        List<VehiculeLibre> vehicules = vehiculeRepository.findCapacitesDisponibles().stream()
+                .filter(row -> availabilityIndex.isVehiculeLibre((Long) row[0]))
+                .map(row -> new VehiculeLibre((Long) row[0], (Integer) row[1]))
+                .collect(Collectors.toList());
+        return new Etat(missions, chauffeurs, vehicules);
+    }
+
+    // Runs on the fork/join pool: only reads the run state and the availability index
+    private List<Candidature> candidatures(DispatchMissionView mission, Etat etat) {
+        int capaciteRequise = capaciteRequise(mission);
+        List<Candidature> candidatures = new ArrayList<>();
+        for (Candidat chauffeur : etat.chauffeurs()) {
+            // Planned missions and accepted leave, from the driver's schedule in the index
+            if (availabilityIndex.conflit(chauffeur.id(), mission.dateHeure(), null) != null) {
+                continue;
+            }
+            boolean vehiculePropre = mission.vehiculeId() == null && chauffeur.vehiculeId() != null
+                    && etat.vehicules().stream().anyMatch(v -> v.id().equals(chauffeur.vehiculeId()) && v.capacite() >= capaciteRequise);
+            candidatures.add(new Candidature(chauffeur, vehiculePropre));
+        }
+        return candidatures;
+    }
+
+    // Greedy pass in mission date order: least loaded driver first, then one whose own vehicle fits
+    private List<Choix> choisir(Etat etat, List<List<Candidature>> candidatures) {
+        Map<Long, NavigableSet<LocalDateTime>> ajouts = new HashMap<>();
+        Set<Long> vehiculesPris = new HashSet<>();
+        List<Choix> choix = new ArrayList<>();
+
+        for (int i = 0; i < etat.missions().size(); i++) {
+            DispatchMissionView mission = etat.missions().get(i);
+            int capaciteRequise = capaciteRequise(mission);
+            Comparator<Candidature> ordre = Comparator
+                    .comparingLong((Candidature c) -> c.chauffeur().charge() + ajouts.getOrDefault(c.chauffeur().id(), Collections.emptyNavigableSet()).size())
+                    .thenComparing(c -> !(c.vehiculePropre() && !vehiculesPris.contains(c.chauffeur().vehiculeId())))
+                    .thenComparing(c -> c.chauffeur().id());
+            Optional<Candidature> meilleure = candidatures.get(i).stream()
+                    .filter(c -> !enConflit(ajouts.get(c.chauffeur().id()), mission.dateHeure()))
+                    .min(ordre);
+            if (meilleure.isEmpty()) {
+                continue;
+            }
+            Candidat chauffeur = meilleure.get().chauffeur();
+
+            Long vehiculeId = mission.vehiculeId();
+            boolean nouveauVehicule = vehiculeId == null;
+            if (nouveauVehicule) {
+                if (meilleure.get().vehiculePropre() && !vehiculesPris.contains(chauffeur.vehiculeId())) {
+                    vehiculeId = chauffeur.vehiculeId();
+                } else {
+                    vehiculeId = etat.vehicules().stream()
+                            .filter(v -> v.capacite() >= capaciteRequise && !vehiculesPris.contains(v.id()))
+                            .map(VehiculeLibre::id)
+                            .findFirst().orElse(null);
+                }
+                if (vehiculeId == null) {
+                    continue;
+                }
+                vehiculesPris.add(vehiculeId);
+            }
+            ajouts.computeIfAbsent(chauffeur.id(), k -> new TreeSet<>()).add(mission.dateHeure());
+            choix.add(new Choix(mission, chauffeur, vehiculeId, nouveauVehicule));
+        }
+        return choix;
+    }
+
+    // Unassigned missions are handled like an admin assignment, problem missions like a reassignment
+    private void enregistrer(List<Choix> tentes, DispatchResultDTO result) {
+        List<Choix> choix = reserver(tentes, result);
+        if (choix.isEmpty()) {
+            return;
+        }
+        List<MissionCounterService.Snapshot> avant = new ArrayList<>();
+        List<MissionCounterService.Snapshot> apres = new ArrayList<>();
+        List<Notification> notifications = new ArrayList<>();
+        List<Long> vehiculesAffectes = new ArrayList<>();
+        List<Choix> appliques = new ArrayList<>();
+
+        // All the assignments go in one JDBC batch; each reports whether its guard still matched
+        int[] updated = jdbcTemplate.batchUpdate(AFFECTER, choix, choix.size(), (statement, c) -> {
+            statement.setLong(1, c.chauffeur().id());
+            statement.setLong(2, c.vehiculeId());
+            statement.setLong(3, c.mission().id());
+            statement.setString(4, Mission.EtatMission.EN_ATTENTE.name());
+            statement.setLong(5, c.mission().version());
+        })[0];
+
+        for (int i = 0; i < choix.size(); i++) {
+            Choix c = choix.get(i);
+            DispatchMissionView mission = c.mission();
+            if (updated[i] == 0) {
+                result.setConflits(result.getConflits() + 1);
+                continue;
+            }
+
+            avant.add(new MissionCounterService.Snapshot(null, mission.employeId(), Mission.EtatMission.EN_ATTENTE));
+            apres.add(new MissionCounterService.Snapshot(c.chauffeur().id(), mission.employeId(), Mission.EtatMission.EN_ATTENTE));
+            notifications.addAll(nouvellesNotifications(mission, c.chauffeur()));
+            if (c.nouveauVehicule()) {
+                vehiculesAffectes.add(c.vehiculeId());
+            }
+            appliques.add(c);
+        }
+
+        if (!vehiculesAffectes.isEmpty()) {
+            // Vehicles are held from assignment, as for missions created with a vehicle; the admin dashboard
+            // counts available vehicles
+            vehiculeRepository.updateDisponibleIn(vehiculesAffectes, false);
+            recipientVersionService.changedAfterCommit(List.of(NotificationPushService.Destinataire.ADMIN));
+        }
+        missionCounterService.recordAll(avant, apres);
+        notificationService.publierTous(notifications);
+
+        // The bulk UPDATEs bypass the entity write listener
+        availabilityIndex.afterCommit(() -> {
+            vehiculesAffectes.forEach(id -> availabilityIndex.vehiculeWritten(id, false));
+            appliques.forEach(c -> availabilityIndex.missionWritten(c.mission().id(), Mission.EtatMission.EN_ATTENTE,
+                    c.chauffeur().id(), c.vehiculeId(), c.mission().dateHeure()));
+        });
+        result.setMissionsAffectees(appliques.size());
+        result.setAffectations(appliques.stream()
+                .map(c -> new DispatchResultDTO.Affectation(c.mission().id(), c.chauffeur().id(), c.vehiculeId()))
+                .collect(Collectors.toList()));
+    }
+
+    // The candidates were picked from the index, which only knows committed assignments: the chosen drivers
+    // are locked and their schedules re-read from the database, as for any other assignment
+    // (AvailabilityIndex.reserverChauffeur), and a choice that now conflicts is left for the next run
+    private List<Choix> reserver(List<Choix> choix, DispatchResultDTO result) {
+        Set<Long> chauffeurIds = choix.stream().map(c -> c.chauffeur().id()).collect(Collectors.toCollection(TreeSet::new));
+        availabilityIndex.verrouillerChauffeurs(chauffeurIds);
+        LocalDateTime premier = choix.stream().map(c -> c.mission().dateHeure()).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime dernier = choix.stream().map(c -> c.mission().dateHeure()).max(Comparator.naturalOrder()).orElseThrow();
+        AvailabilityIndex.Planning planning = availabilityIndex.planningVerrouille(chauffeurIds, premier, dernier);
+
+        List<Choix> libres = new ArrayList<>();
+        for (Choix c : choix) {
+            try {
+                planning.verifierChauffeurLibre(c.chauffeur().id(), c.mission().dateHeure(), c.mission().id());
+                libres.add(c);
+            } catch (MissionConflictException e) {
+                result.setConflits(result.getConflits() + 1);
+            }
+        }
+        return libres;
+    }
+
+    private List<Notification> nouvellesNotifications(DispatchMissionView mission, Candidat chauffeur) {
+        List<Notification> notifications = new ArrayList<>();
+
+        Notification pourChauffeur = nouvelleNotification(mission, "MISSION_ASSIGNEE");
+        pourChauffeur.rediger(NotificationTemplates.MISSION_ASSIGNEE_CHAUFFEUR, mission.depart(), mission.destination(),
+                mission.dateHeure().toLocalDate(), mission.dateHeure().toLocalTime());
+        pourChauffeur.setChauffeur(chauffeurRepository.getReferenceById(chauffeur.id()));
+        notifications.add(pourChauffeur);
+
+        if (mission.employeId() != null) {
+            Notification pourEmploye = nouvelleNotification(mission, "MISSION_ASSIGNEE");
+            pourEmploye.rediger(NotificationTemplates.MISSION_ASSIGNEE_DISPATCH, mission.depart(), mission.destination(),
+                    mission.dateHeure().toLocalDate(), mission.dateHeure().toLocalTime(),
+                    chauffeur.nom() + " " + chauffeur.prenom());
+            pourEmploye.setEmploye(employeRepository.getReferenceById(mission.employeId()));
+            notifications.add(pourEmploye);
+        }
+        return notifications;
+    }
+
+    private Notification nouvelleNotification(DispatchMissionView mission, String type) {
+        Notification notification = new Notification();
+        notification.setMission(missionRepository.getReferenceById(mission.id()));
+        notification.setType(type);
+        notification.setDateEnvoi(LocalDateTime.now());
+        notification.setLue(false);
+        return notification;
+    }
+
+    private int capaciteRequise(DispatchMissionView mission) {
+        return "materiel".equalsIgnoreCase(mission.typeMission()) ? capaciteMinimaleMateriel : 0;
+    }
+
+    // True when a mission at dateHeure overlaps one of the start times given to the driver in this run
+    private boolean enConflit(NavigableSet<LocalDateTime> debuts, LocalDateTime dateHeure) {
+        if (debuts == null || debuts.isEmpty()) {
+            return false;
+        }
+        LocalDateTime avant = debuts.floor(dateHeure);
+        LocalDateTime apres = debuts.ceiling(dateHeure);
+        return (avant != null && availabilityIndex.finMission(avant).isAfter(dateHeure))
+                || (apres != null && availabilityIndex.finMission(dateHeure).isAfter(apres));
+    }
+}
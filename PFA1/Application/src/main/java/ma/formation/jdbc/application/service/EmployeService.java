@@ -1,8 +1,11 @@
 package ma.formation.jdbc.application.service;
 
+import ma.formation.jdbc.application.dto.MissionResponseDTO;
+import ma.formation.jdbc.application.dto.NotificationDTO;
 import ma.formation.jdbc.application.model.*;
 import ma.formation.jdbc.application.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
@@ -38,7 +41,12 @@ public class EmployeService {
         return missionRepository.findByEmployeId(employeId);
     }
 
-    public List<Notification> getNotificationsNonLues(Long employeId) {
+    // Mission list for the employee views, projected straight into DTOs
+    public List<MissionResponseDTO> getMissionResponsesParEmploye(Long employeId) {
+        return missionRepository.findResponsesByEmployeId(employeId);
+    }
+
+    public List<NotificationDTO> getNotificationsNonLues(Long employeId) {
         return notificationRepository.findByEmployeIdAndLueFalse(employeId);
     }
 
@@ -50,7 +58,8 @@ public class EmployeService {
         notificationRepository.save(notification);
     }
 
-    public List<Notification> getHistoriqueNotifications(Long employeId) {
-        return notificationRepository.findByEmployeId(employeId);
+    public List<NotificationDTO> getHistoriqueNotifications(Long employeId) {
+        return notificationRepository.findFeedPage(employeId, null, null, null, null, null,
+                PageRequest.of(0, NotificationService.DEFAULT_FEED_SIZE));
     }
 }
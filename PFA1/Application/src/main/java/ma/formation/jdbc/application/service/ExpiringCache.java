@@ -0,0 +1,65 @@
+package ma.formation.jdbc.application.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * One value loaded on first use and kept for a time to live. Writes drop it with {@link #invalidate()};
+ * a load that raced with an invalidation is returned but not kept, so the cache never holds data read
+ * before the last write it was told about.
+ */
+final class ExpiringCache<T> {
+    private record Cached<T>(T value, long loadedAt) {}
+
+    private final Supplier<T> loader;
+    private final LongSupplier ttlMs;
+
+    private volatile Cached<T> cached;
+
+    // Bumped by every invalidation so a load that raced with a write is not cached
+    private long generation;
+
+    ExpiringCache(Supplier<T> loader, LongSupplier ttlMs) {
+        this.loader = loader;
+        this.ttlMs = ttlMs;
+    }
+
+    T get() {
+        Cached<T> current = cached;
+        if (current != null && System.currentTimeMillis() - current.loadedAt() < ttlMs.getAsLong()) {
+            return current.value();
+        }
+
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        T value = loader.get();
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                cached = new Cached<>(value, System.currentTimeMillis());
+            }
+        }
+        return value;
+    }
+
+    /** Drops the value now and, inside a transaction, again once it has committed. */
+    void invalidate() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+        }
+    }
+
+    private synchronized void clear() {
+        generation++;
+        cached = null;
+    }
+}
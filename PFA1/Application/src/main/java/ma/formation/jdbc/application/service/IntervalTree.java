@@ -0,0 +1,184 @@
+package ma.formation.jdbc.application.service;
+
+import java.time.LocalDateTime;
+import java.util.function.Predicate;
+
+/**
+ * Augmented interval tree: an AVL tree of half-open intervals {@code [debut, fin)} ordered by start then
+ * value, each node also holding the latest end of its subtree. Insert, remove and "first overlapping
+ * interval" are O(log n). Not thread-safe; {@link AvailabilityIndex} guards it with its lock.
+ */
+final class IntervalTree<V extends Comparable<V>> {
+
+    private static final class Node<V> {
+        final LocalDateTime debut;
+        final LocalDateTime fin;
+        final V value;
+        LocalDateTime maxFin;
+        int height = 1;
+        Node<V> left;
+        Node<V> right;
+
+        Node(LocalDateTime debut, LocalDateTime fin, V value) {
+            this.debut = debut;
+            this.fin = fin;
+            this.value = value;
+            this.maxFin = fin;
+        }
+    }
+
+    private Node<V> root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(LocalDateTime debut, LocalDateTime fin, V value) {
+        root = insert(root, new Node<>(debut, fin, value));
+        size++;
+    }
+
+    /** Removes the interval starting at {@code debut} with this value; false when there is none. */
+    boolean remove(LocalDateTime debut, V value) {
+        int before = size;
+        root = delete(root, debut, value);
+        return size < before;
+    }
+
+    /**
+     * The value of one interval overlapping {@code [debut, fin)} that {@code ignore} does not match,
+     * or null when there is none.
+     */
+    V firstOverlap(LocalDateTime debut, LocalDateTime fin, Predicate<V> ignore) {
+        return search(root, debut, fin, ignore);
+    }
+
+    private V search(Node<V> node, LocalDateTime debut, LocalDateTime fin, Predicate<V> ignore) {
+        // Nothing in this subtree ends after the query starts
+        if (node == null || !node.maxFin.isAfter(debut)) {
+            return null;
+        }
+        V found = search(node.left, debut, fin, ignore);
+        if (found != null) {
+            return found;
+        }
+        // This node and everything to its right start at or after the query end
+        if (!node.debut.isBefore(fin)) {
+            return null;
+        }
+        if (node.fin.isAfter(debut) && !ignore.test(node.value)) {
+            return node.value;
+        }
+        return search(node.right, debut, fin, ignore);
+    }
+
+    private int compare(LocalDateTime debut, V value, Node<V> node) {
+        int c = debut.compareTo(node.debut);
+        return c != 0 ? c : value.compareTo(node.value);
+    }
+
+    private Node<V> insert(Node<V> node, Node<V> added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.debut, added.value, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private Node<V> delete(Node<V> node, LocalDateTime debut, V value) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(debut, value, node);
+        if (c < 0) {
+            node.left = delete(node.left, debut, value);
+        } else if (c > 0) {
+            node.right = delete(node.right, debut, value);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node<V> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = detachMin(node.right);
+            successor.left = node.left;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private Node<V> detachMin(Node<V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = detachMin(node.left);
+        return balance(node);
+    }
+
+    private Node<V> balance(Node<V> node) {
+        update(node);
+        int skew = height(node.left) - height(node.right);
+        if (skew > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (skew < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<V> rotateRight(Node<V> node) {
+        Node<V> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<V> rotateLeft(Node<V> node) {
+        Node<V> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(Node<V> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime maxFin = node.fin;
+        if (node.left != null && node.left.maxFin.isAfter(maxFin)) {
+            maxFin = node.left.maxFin;
+        }
+        if (node.right != null && node.right.maxFin.isAfter(maxFin)) {
+            maxFin = node.right.maxFin;
+        }
+        node.maxFin = maxFin;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+}
@@ -0,0 +1,305 @@
+package ma.formation.jdbc.application.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import ma.formation.jdbc.application.model.Mission;
+import ma.formation.jdbc.application.model.MissionCounter;
+import ma.formation.jdbc.application.repository.*;
+import ma.formation.jdbc.application.service.NotificationPushService.Destinataire;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Per-state mission counters kept per chauffeur, per employe and globally, so dashboards read one row
+ * instead of scanning missions. Every mission write calls {@link #record} inside its own transaction;
+ * {@link #reconcile} recomputes all rows from the missions table to repair drift.
+ */
+@Service
+public class MissionCounterService {
+    private static final Logger log = LoggerFactory.getLogger(MissionCounterService.class);
+
+    private static final Long GLOBAL_ID = 0L;
+
+    // Adds the deltas to one counter row, creating it with them on the first mission of its scope. One
+    // statement, so no gap lock is held between a missed update and a separate insert (MySQL syntax, which
+    // H2 accepts in MySQL mode)
+    private static final String INCREMENT =
+            "INSERT INTO mission_counters (scope, scope_id, en_attente, commencee, en_cours, terminee, refusee) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE en_attente = en_attente + VALUES(en_attente), " +
+            "commencee = commencee + VALUES(commencee), en_cours = en_cours + VALUES(en_cours), " +
+            "terminee = terminee + VALUES(terminee), refusee = refusee + VALUES(refusee)";
+
+    // Rows are written in key order, so two transactions touching the same rows lock them in the same order
+    private static final Comparator<MissionCounter.Key> KEY_ORDER =
+            Comparator.comparing(MissionCounter.Key::getScope).thenComparing(MissionCounter.Key::getScopeId);
+
+    @Autowired
+    private MissionCounterRepository counterRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MissionRepository missionRepository;
+
+    @Autowired
+    private ChauffeurRepository chauffeurRepository;
+
+    @Autowired
+    private EmployeRepository employeRepository;
+
+    @Autowired
+    private RecipientVersionService recipientVersionService;
+
+    @Value("${mission-counters.reconcile.chunk-size:500}")
+    private int chunkSize;
+
+    private final TransactionTemplate chunkTransaction;
+
+    public MissionCounterService(PlatformTransactionManager transactionManager) {
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /** The counted attributes of a mission at one point in time. */
+    public record Snapshot(Long chauffeurId, Long employeId, Mission.EtatMission etat) {
+        public static Snapshot of(Mission mission) {
+            return new Snapshot(
+                mission.getChauffeur() != null ? mission.getChauffeur().getId() : null,
+                mission.getEmploye() != null ? mission.getEmploye().getId() : null,
+                mission.getEtat() != null ? mission.getEtat() : Mission.EtatMission.EN_ATTENTE);
+        }
+    }
+
+    /**
+     * Applies one mission change to the counters. {@code before} is null for a creation and
+     * {@code after} is null for a deletion. Must run in the transaction that writes the mission.
+     */
+    @Transactional
+    public void record(Snapshot before, Snapshot after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        Map<MissionCounter.Key, long[]> deltas = new LinkedHashMap<>();
+        if (before != null) {
+            addDelta(deltas, before, -1);
+        }
+        if (after != null) {
+            addDelta(deltas, after, 1);
+        }
+        applyDeltas(deltas);
+    }
+
+    /** Counts a batch of created missions, all the affected counter rows in one JDBC batch. */
+    @Transactional
+    public void recordCreated(Collection<Snapshot> created) {
+        recordAll(List.of(), created);
+    }
+
+    /**
+     * Applies a batch of mission changes, {@code before} and {@code after} holding the old and new
+     * snapshots of the changed missions, all the affected counter rows in one JDBC batch.
+     */
+    @Transactional
+    public void recordAll(Collection<Snapshot> before, Collection<Snapshot> after) {
+        Map<MissionCounter.Key, long[]> deltas = new LinkedHashMap<>();
+        for (Snapshot snapshot : before) {
+            addDelta(deltas, snapshot, -1);
+        }
+        for (Snapshot snapshot : after) {
+            addDelta(deltas, snapshot, 1);
+        }
+        applyDeltas(deltas);
+    }
+
+    /** Drops the counter row of a deleted chauffeur or employe. */
+    @Transactional
+    public void deleteScope(MissionCounter.Scope scope, Long scopeId) {
+        counterRepository.deleteByScope(scope, scopeId);
+    }
+
+    @Transactional(readOnly = true)
+    public MissionCounter getGlobal() {
+        return get(MissionCounter.Scope.GLOBAL, GLOBAL_ID);
+    }
+
+    @Transactional(readOnly = true)
+    public MissionCounter getForChauffeur(Long chauffeurId) {
+        return get(MissionCounter.Scope.CHAUFFEUR, chauffeurId);
+    }
+
+    @Transactional(readOnly = true)
+    public MissionCounter getForEmploye(Long employeId) {
+        return get(MissionCounter.Scope.EMPLOYE, employeId);
+    }
+
+    // A missing row means no mission was ever counted for that scope
+    private MissionCounter get(MissionCounter.Scope scope, Long scopeId) {
+        MissionCounter.Key key = new MissionCounter.Key(scope, scopeId);
+        return counterRepository.findById(key).orElseGet(() -> emptyCounter(key));
+    }
+
+    private void addDelta(Map<MissionCounter.Key, long[]> deltas, Snapshot snapshot, int sign) {
+        int index = snapshot.etat().ordinal();
+        deltas.computeIfAbsent(new MissionCounter.Key(MissionCounter.Scope.GLOBAL, GLOBAL_ID), k -> new long[5])[index] += sign;
+        if (snapshot.chauffeurId() != null) {
+            deltas.computeIfAbsent(new MissionCounter.Key(MissionCounter.Scope.CHAUFFEUR, snapshot.chauffeurId()), k -> new long[5])[index] += sign;
+        }
+        if (snapshot.employeId() != null) {
+            deltas.computeIfAbsent(new MissionCounter.Key(MissionCounter.Scope.EMPLOYE, snapshot.employeId()), k -> new long[5])[index] += sign;
+        }
+    }
+
+    // All the changed rows are written with one JDBC batch, however many missions and scopes changed
+    private void applyDeltas(Map<MissionCounter.Key, long[]> deltas) {
+        List<MissionCounter.Key> keys = deltas.entrySet().stream()
+                .filter(entry -> Arrays.stream(entry.getValue()).anyMatch(d -> d != 0))
+                .map(Map.Entry::getKey)
+                .sorted(KEY_ORDER)
+                .toList();
+        if (keys.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(INCREMENT, keys, keys.size(), (statement, key) -> {
+            long[] delta = deltas.get(key);
+            statement.setString(1, key.getScope().name());
+            statement.setLong(2, key.getScopeId());
+            statement.setLong(3, delta[Mission.EtatMission.EN_ATTENTE.ordinal()]);
+            statement.setLong(4, delta[Mission.EtatMission.COMMENCEE.ordinal()]);
+            statement.setLong(5, delta[Mission.EtatMission.EN_COURS.ordinal()]);
+            statement.setLong(6, delta[Mission.EtatMission.TERMINEE.ordinal()]);
+            statement.setLong(7, delta[Mission.EtatMission.REFUSEE.ordinal()]);
+        })[0];
+        // Rewritten batches report SUCCESS_NO_INFO; 0 is the only count that means a row was not written
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new RuntimeException("Compteur de missions non mis à jour : " + keys.get(i));
+            }
+        }
+
+        Set<Destinataire> changed = new HashSet<>();
+        for (MissionCounter.Key key : keys) {
+            changed.add(switch (key.getScope()) {
+                case GLOBAL -> Destinataire.ADMIN;
+                case CHAUFFEUR -> Destinataire.chauffeur(key.getScopeId());
+                case EMPLOYE -> Destinataire.employe(key.getScopeId());
+            });
+        }
+        // The dashboards of these recipients show the counters
+        recipientVersionService.changedAfterCommit(changed);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    /**
+     * Recomputes every counter from the missions table, one chunk of owners per transaction. Each chunk
+     * locks its counter rows before counting, so transitions running concurrently either commit before
+     * the count (and are included) or wait and apply their delta on top of the rebuilt row.
+     */
+    @Scheduled(fixedDelayString = "${mission-counters.reconcile.delay-ms:3600000}",
+               initialDelayString = "${mission-counters.reconcile.delay-ms:3600000}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        chunkTransaction.executeWithoutResult(status ->
+            rebuild(MissionCounter.Scope.GLOBAL, List.of(GLOBAL_ID), ids -> prefixRows(GLOBAL_ID, missionRepository.countGroupByEtat())));
+
+        int chauffeurs = reconcileScope(MissionCounter.Scope.CHAUFFEUR,
+                afterId -> chauffeurRepository.findIdsAfter(afterId, PageRequest.of(0, chunkSize)),
+                missionRepository::countGroupByChauffeurAndEtat);
+        int employes = reconcileScope(MissionCounter.Scope.EMPLOYE,
+                afterId -> employeRepository.findIdsAfter(afterId, PageRequest.of(0, chunkSize)),
+                missionRepository::countGroupByEmployeAndEtat);
+
+        chunkTransaction.executeWithoutResult(status -> {
+            counterRepository.deleteOrphanChauffeurCounters(MissionCounter.Scope.CHAUFFEUR);
+            counterRepository.deleteOrphanEmployeCounters(MissionCounter.Scope.EMPLOYE);
+        });
+        recipientVersionService.allChanged();
+        log.info("Mission counters reconciled for {} chauffeurs and {} employes in {} ms",
+                chauffeurs, employes, System.currentTimeMillis() - start);
+    }
+
+    private int reconcileScope(MissionCounter.Scope scope, Function<Long, List<Long>> nextIds,
+                               Function<Collection<Long>, List<Object[]>> countRows) {
+        int total = 0;
+        Long afterId = 0L;
+        while (true) {
+            List<Long> ids = nextIds.apply(afterId);
+            if (ids.isEmpty()) {
+                return total;
+            }
+            try {
+                chunkTransaction.executeWithoutResult(status -> rebuild(scope, ids, countRows));
+            } catch (PersistenceException | DataIntegrityViolationException e) {
+                // A transition created one of the rows meanwhile; the next run picks this chunk up again
+                log.warn("Mission counter chunk {} after id {} skipped: {}", scope, afterId, e.getMessage());
+            }
+            total += ids.size();
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    // Rows from countRows are [scopeId, etat, count]
+    private void rebuild(MissionCounter.Scope scope, List<Long> ids, Function<Collection<Long>, List<Object[]>> countRows) {
+        Map<Long, MissionCounter> existing = new HashMap<>();
+        for (MissionCounter counter : counterRepository.lockByScope(scope, ids)) {
+            existing.put(counter.getKey().getScopeId(), counter);
+        }
+
+        Map<Long, long[]> counts = new HashMap<>();
+        for (Object[] row : countRows.apply(ids)) {
+            Mission.EtatMission etat = row[1] != null ? (Mission.EtatMission) row[1] : Mission.EtatMission.EN_ATTENTE;
+            counts.computeIfAbsent((Long) row[0], k -> new long[5])[etat.ordinal()] += ((Number) row[2]).longValue();
+        }
+
+        for (Long id : ids) {
+            MissionCounter counter = existing.get(id);
+            if (counter == null) {
+                counter = emptyCounter(new MissionCounter.Key(scope, id));
+                entityManager.persist(counter);
+            }
+            long[] c = counts.getOrDefault(id, new long[5]);
+            counter.setEnAttente(c[Mission.EtatMission.EN_ATTENTE.ordinal()]);
+            counter.setCommencee(c[Mission.EtatMission.COMMENCEE.ordinal()]);
+            counter.setEnCours(c[Mission.EtatMission.EN_COURS.ordinal()]);
+            counter.setTerminee(c[Mission.EtatMission.TERMINEE.ordinal()]);
+            counter.setRefusee(c[Mission.EtatMission.REFUSEE.ordinal()]);
+        }
+    }
+
+    // Adapts [etat, count] rows to the [scopeId, etat, count] shape used by rebuild
+    private List<Object[]> prefixRows(Long scopeId, List<Object[]> rows) {
+        List<Object[]> prefixed = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            prefixed.add(new Object[] { scopeId, row[0], row[1] });
+        }
+        return prefixed;
+    }
+
+    private MissionCounter emptyCounter(MissionCounter.Key key) {
+        MissionCounter counter = new MissionCounter();
+        counter.setKey(key);
+        return counter;
+    }
+}
@@ -0,0 +1,85 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.dto.MissionFormDataDTO;
+import ma.formation.jdbc.application.repository.ChauffeurRepository;
+import ma.formation.jdbc.application.repository.EmployeRepository;
+import ma.formation.jdbc.application.repository.VehiculeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.stream.Collectors;
+
+/**
+ * Options of the create-mission form: employees, free drivers and free vehicles. The employee, driver
+ * and vehicle lists are loaded with three projection queries and cached for a short time (entity writes
+ * clear them after commit through {@link ma.formation.jdbc.application.config.EntityWriteListener});
+ * which drivers and vehicles are free is answered per request by the {@link AvailabilityIndex}.
+ */
+@Service
+public class MissionFormDataService {
+    @Autowired
+    private EmployeRepository employeRepository;
+
+    @Autowired
+    private ChauffeurRepository chauffeurRepository;
+
+    @Autowired
+    private VehiculeRepository vehiculeRepository;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Value("${mission-form-data.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+
+    private final ExpiringCache<MissionFormDataDTO> cache = new ExpiringCache<>(this::chargerCatalogue, () -> cacheTtlMs);
+
+    private final TransactionTemplate readOnly;
+
+    public MissionFormDataService(PlatformTransactionManager transactionManager) {
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    public MissionFormDataDTO getFormData() {
+        return getFormData(null);
+    }
+
+    /**
+     * Form options for a mission starting at {@code dateHeure}: only drivers whose schedule is free for
+     * the mission window are offered. Without a date, drivers on a COMMENCEE/EN_COURS mission are left out.
+     */
+    public MissionFormDataDTO getFormData(LocalDateTime dateHeure) {
+        MissionFormDataDTO catalogue = cache.get();
+        MissionFormDataDTO formData = new MissionFormDataDTO();
+        formData.setEmployes(catalogue.getEmployes());
+        // Vehicles that are taken are not offered either
+        formData.setChauffeurs(catalogue.getChauffeurs().stream()
+                .filter(chauffeur -> dateHeure != null
+                        ? availabilityIndex.conflit(chauffeur.getId(), dateHeure, null) == null
+                        : !availabilityIndex.isChauffeurEnMission(chauffeur.getId()))
+                .collect(Collectors.toList()));
+        formData.setVehicules(catalogue.getVehicules().stream()
+                .filter(vehicule -> availabilityIndex.isVehiculeLibre(vehicule.getId()))
+                .collect(Collectors.toList()));
+        return formData;
+    }
+
+    private MissionFormDataDTO chargerCatalogue() {
+        return readOnly.execute(status -> {
+            MissionFormDataDTO loaded = new MissionFormDataDTO();
+            loaded.setEmployes(employeRepository.findFormOptions());
+            loaded.setChauffeurs(chauffeurRepository.findFormOptions());
+            loaded.setVehicules(vehiculeRepository.findFormOptions());
+            return loaded;
+        });
+    }
+
+    /** Drops the cached lists now and, inside a transaction, again once it has committed. */
+    public void invalidate() {
+        cache.invalidate();
+    }
+}
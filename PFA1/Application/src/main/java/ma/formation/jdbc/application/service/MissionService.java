@@ -1,5 +1,7 @@
 package ma.formation.jdbc.application.service;
 
+import ma.formation.jdbc.application.dto.MissionResponseDTO;
+import ma.formation.jdbc.application.dto.MissionStateView;
 import ma.formation.jdbc.application.model.*;
 import ma.formation.jdbc.application.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +27,15 @@ public class MissionService {
     @Autowired
     private VehicleService vehicleService;
 
+    @Autowired
+    private MissionCounterService missionCounterService;
+
+    @Autowired
+    private MissionStateMachine missionStateMachine;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
     @Transactional
     public Mission creerMission(Mission mission, Long employeId) {
         Employe employe = employeRepository.findById(employeId)
@@ -39,137 +50,84 @@ public class MissionService {
             vehicleService.markVehicleAsUnavailable(mission.getVehicule().getId());
         }
         
+        if (mission.getChauffeur() != null && mission.getDateHeure() != null) {
+            availabilityIndex.reserverChauffeur(mission.getChauffeur().getId(), mission.getDateHeure(), null);
+        }
+
         mission.setEmploye(employe);
         mission.setAcceptee(false);
         mission.setEtat(Mission.EtatMission.EN_ATTENTE);
-        return missionRepository.save(mission);
+        Mission savedMission = missionRepository.save(mission);
+        missionCounterService.record(null, MissionCounterService.Snapshot.of(savedMission));
+        return savedMission;
     }
 
     @Transactional
-    public Mission accepterMission(Long missionId, Long chauffeurId) {
-        Mission mission = missionRepository.findById(missionId)
-                .orElseThrow(() -> new RuntimeException("Mission non trouvée"));
-        
+    public void accepterMission(Long missionId, Long chauffeurId) {
         Chauffeur chauffeur = chauffeurRepository.findById(chauffeurId)
                 .orElseThrow(() -> new RuntimeException("Chauffeur non trouvé"));
+        MissionStateView mission = missionStateMachine.apply(missionId, MissionStateMachine.Transition.ACCEPTER, chauffeurId, null);
 
-        if (!mission.isAcceptee()) {
-            mission.setChauffeur(chauffeur);
-            mission.setAcceptee(true);
-            mission.setEtat(Mission.EtatMission.EN_ATTENTE);
-            
-            // Créer notification pour l'employé
-            Notification notification = new Notification();
-            notification.setEmploye(mission.getEmploye());
-            notification.setMission(mission);
-            notification.setType("MISSION_ACCEPTEE");
-            notification.setDateEnvoi(LocalDateTime.now());
-            String chauffeurNom = chauffeur.getNom() + " " + chauffeur.getPrenom();
-            String destination = mission.getDestination();
-            notification.setMessage("Mission vers " + destination + " acceptée par " + chauffeurNom);
-            notification.setLue(false);
-            notificationService.creerNotification(notification);
-        }
-        
-        return missionRepository.save(mission);
+        // Créer notification pour l'employé
+        String chauffeurNom = chauffeur.getNom() + " " + chauffeur.getPrenom();
+        notifierEmploye(mission, "MISSION_ACCEPTEE", NotificationTemplates.MISSION_ACCEPTEE, mission.destination(), chauffeurNom);
     }
 
     @Transactional
-    public Mission commencerMission(Long missionId) {
-        Mission mission = missionRepository.findById(missionId)
-                .orElseThrow(() -> new RuntimeException("Mission non trouvée"));
-        
-        if (mission.getEtat() == Mission.EtatMission.EN_ATTENTE) {
-            mission.setEtat(Mission.EtatMission.COMMENCEE);
-            
-            // Créer notification pour l'employé
-            Notification notification = new Notification();
-            notification.setEmploye(mission.getEmploye());
-            notification.setMission(mission);
-            notification.setType("MISSION_COMMENCEE");
-            notification.setDateEnvoi(LocalDateTime.now());
-            String chauffeurNom = mission.getChauffeur().getNom() + " " + mission.getChauffeur().getPrenom();
-            String destination = mission.getDestination();
-            notification.setMessage("Mission vers " + destination + " commencée par " + chauffeurNom);
-            notification.setLue(false);
-            notificationService.creerNotification(notification);
-        }
-        
-        return missionRepository.save(mission);
+    public void commencerMission(Long missionId) {
+        MissionStateView mission = missionStateMachine.apply(missionId, MissionStateMachine.Transition.COMMENCER, null, null);
+
+        // Créer notification pour l'employé
+        notifierEmploye(mission, "MISSION_COMMENCEE", NotificationTemplates.MISSION_COMMENCEE,
+                mission.destination(), mission.chauffeurNomComplet());
     }
 
     @Transactional
-    public Mission terminerMission(Long missionId) {
-        Mission mission = missionRepository.findById(missionId)
-                .orElseThrow(() -> new RuntimeException("Mission non trouvée"));
-        
-        if (mission.getEtat() == Mission.EtatMission.COMMENCEE) {
-            mission.setEtat(Mission.EtatMission.TERMINEE);
-            
-            // Mark vehicle as available when mission is completed
-            if (mission.getVehicule() != null) {
-                vehicleService.markVehicleAsAvailable(mission.getVehicule().getId());
-            }
-            
-            // Créer notification pour l'employé
-            Notification notification = new Notification();
-            notification.setEmploye(mission.getEmploye());
-            notification.setMission(mission);
-            notification.setType("MISSION_TERMINEE");
-            notification.setDateEnvoi(LocalDateTime.now());
-            String chauffeurNom = mission.getChauffeur().getNom() + " " + mission.getChauffeur().getPrenom();
-            String destination = mission.getDestination();
-            notification.setMessage("Mission vers " + destination + " terminée par " + chauffeurNom);
-            notification.setLue(false);
-            notificationService.creerNotification(notification);
+    public void terminerMission(Long missionId) {
+        MissionStateView mission = missionStateMachine.apply(missionId, MissionStateMachine.Transition.TERMINER, null, null);
+
+        // Mark vehicle as available when mission is completed
+        if (mission.vehiculeId() != null) {
+            vehicleService.markVehicleAsAvailable(mission.vehiculeId());
         }
-        
-        return missionRepository.save(mission);
+
+        // Créer notification pour l'employé
+        notifierEmploye(mission, "MISSION_TERMINEE", NotificationTemplates.MISSION_TERMINEE,
+                mission.destination(), mission.chauffeurNomComplet());
     }
 
     @Transactional
-    public Mission refuserMission(Long missionId, String raison) {
-        Mission mission = missionRepository.findById(missionId)
-                .orElseThrow(() -> new RuntimeException("Mission non trouvée"));
-        
-        if (!mission.isAcceptee()) {
-            mission.setEtat(Mission.EtatMission.REFUSEE);
-            mission.setProbleme(raison);
-            
-            // Mark vehicle as available when mission is refused
-            if (mission.getVehicule() != null) {
-                vehicleService.markVehicleAsAvailable(mission.getVehicule().getId());
-            }
-            
-            // Créer notification pour l'employé
-            Notification notification = new Notification();
-            notification.setEmploye(mission.getEmploye());
-            notification.setMission(mission);
-            notification.setType("MISSION_REFUSEE");
-            notification.setDateEnvoi(LocalDateTime.now());
-            String destination = mission.getDestination();
-            notification.setMessage("Mission vers " + destination + " refusée. Raison: " + raison);
-            notification.setLue(false);
-            notificationService.creerNotification(notification);
+    public void refuserMission(Long missionId, String raison) {
+        MissionStateView mission = missionStateMachine.apply(missionId, MissionStateMachine.Transition.REFUSER, null, raison);
+
+        // Mark vehicle as available when mission is refused
+        if (mission.vehiculeId() != null) {
+            vehicleService.markVehicleAsAvailable(mission.vehiculeId());
         }
-        
-        return missionRepository.save(mission);
+
+        // Créer notification pour l'employé
+        notifierEmploye(mission, "MISSION_REFUSEE", NotificationTemplates.MISSION_REFUSEE, mission.destination(), raison);
     }
 
-    public List<Mission> getMissionsEnAttente() {
-        return missionRepository.findByEtat(Mission.EtatMission.EN_ATTENTE);
+    public List<MissionResponseDTO> getMissionsEnAttente() {
+        return missionRepository.findResponsesByEtat(Mission.EtatMission.EN_ATTENTE);
     }
 
-    public List<Mission> getMissionsParChauffeur(Long chauffeurId) {
-        return missionRepository.findByChauffeurId(chauffeurId);
+    public List<MissionResponseDTO> getMissionsParChauffeur(Long chauffeurId) {
+        return missionRepository.findResponsesByChauffeurId(chauffeurId);
     }
 
-    public List<Mission> getHistoriqueMissions(Long chauffeurId) {
+    public List<MissionResponseDTO> getHistoriqueMissions(Long chauffeurId) {
         // Return ALL missions for the chauffeur to allow proper statistics calculation
         // The frontend will filter by status as needed for display purposes
-        return missionRepository.findByChauffeurId(chauffeurId);
+        return missionRepository.findResponsesByChauffeurId(chauffeurId);
     }
     
+    // Mission list for the driver views, projected straight into DTOs
+    public List<MissionResponseDTO> getMissionResponsesByChauffeurId(Long chauffeurId) {
+        return missionRepository.findResponsesByChauffeurId(chauffeurId);
+    }
+
     // Additional methods for driver dashboard
     public List<Mission> getMissionsByChauffeurId(Long chauffeurId) {
         return missionRepository.findByChauffeurId(chauffeurId);
@@ -177,70 +135,42 @@ public class MissionService {
     
     @Transactional
     public void updateMissionStatus(Long missionId, Mission.EtatMission status) {
-        Mission mission = missionRepository.findById(missionId)
-                .orElseThrow(() -> new RuntimeException("Mission non trouvée"));
-        
-        Mission.EtatMission oldStatus = mission.getEtat();
-        mission.setEtat(status);
-        
+        MissionStateMachine.Transition transition = MissionStateMachine.Transition.toward(status);
+        if (transition == MissionStateMachine.Transition.TERMINER) {
+            terminerMission(missionId);
+            return;
+        }
+        if (transition == MissionStateMachine.Transition.REFUSER) {
+            refuserMission(missionId, null);
+            return;
+        }
+
+        MissionStateView mission = missionStateMachine.apply(missionId, transition, null, null);
+
         // Handle vehicle availability based on status change
-        if (mission.getVehicule() != null) {
-            if (status == Mission.EtatMission.COMMENCEE && oldStatus == Mission.EtatMission.EN_ATTENTE) {
-                // Mark vehicle as unavailable when mission starts (accepted by chauffeur)
-                vehicleService.markVehicleAsUnavailable(mission.getVehicule().getId());
-                
-                // Create notification for employee
-                Notification notification = new Notification();
-                notification.setEmploye(mission.getEmploye());
-                notification.setMission(mission);
-                notification.setType("MISSION_COMMENCEE");
-                notification.setDateEnvoi(LocalDateTime.now());
-                String chauffeurNom = mission.getChauffeur().getNom() + " " + mission.getChauffeur().getPrenom();
-                String destination = mission.getDestination();
-                notification.setMessage("Mission vers " + destination + " acceptée et commencée par " + chauffeurNom);
-                notification.setLue(false);
-                notificationService.creerNotification(notification);
-            }
+        if (transition == MissionStateMachine.Transition.COMMENCER && mission.vehiculeId() != null) {
+            // Mark vehicle as unavailable when mission starts (accepted by chauffeur)
+            vehicleService.markVehicleAsUnavailable(mission.vehiculeId());
+
+            // Create notification for employee
+            notifierEmploye(mission, "MISSION_COMMENCEE", NotificationTemplates.MISSION_ACCEPTEE_COMMENCEE,
+                    mission.destination(), mission.chauffeurNomComplet());
         }
-        
-        missionRepository.save(mission);
     }
 
     @Transactional
-    public Mission signalerProbleme(Long missionId, String probleme) {
-        Mission mission = missionRepository.findById(missionId)
-                .orElseThrow(() -> new RuntimeException("Mission non trouvée"));
-        
-        // Sauvegarder les informations du chauffeur avant désassignation
-        String chauffeurNom = mission.getChauffeur().getNom() + " " + mission.getChauffeur().getPrenom();
-        String destination = mission.getDestination();
-        
-        // Mettre à jour le problème dans la mission
-        mission.setProbleme(probleme);
-        
+    public void signalerProbleme(Long missionId, String probleme) {
+        // Désassigner le chauffeur et remettre la mission en attente
+        MissionStateView mission = missionStateMachine.apply(missionId, MissionStateMachine.Transition.SIGNALER_PROBLEME, null, probleme);
+
         // Mark vehicle as available when mission has problems and is cancelled
-        if (mission.getVehicule() != null) {
-            vehicleService.markVehicleAsAvailable(mission.getVehicule().getId());
+        if (mission.vehiculeId() != null) {
+            vehicleService.markVehicleAsAvailable(mission.vehiculeId());
         }
-        
-        // Désassigner le chauffeur et remettre la mission en attente
-        mission.setChauffeur(null);
-        mission.setEtat(Mission.EtatMission.valueOf("EN_ATTENTE"));
-        mission.setAcceptee(false);
-        
+
         // Créer notification pour l'employé avec détails du problème
-        Notification notification = new Notification();
-        notification.setEmploye(mission.getEmploye());
-        notification.setMission(mission);
-        notification.setType("MISSION_PROBLEME");
-        notification.setDateEnvoi(LocalDateTime.now());
-        notification.setMessage("🚨 PROBLÈME SIGNALÉ - Mission vers " + destination + 
-                               " abandonnée par " + chauffeurNom + ". Raison: " + probleme + 
-                               ". Mission remise en attente pour réassignation.");
-        notification.setLue(false);
-        notificationService.creerNotification(notification);
-        
-        return missionRepository.save(mission);
+        notifierEmploye(mission, "MISSION_PROBLEME", NotificationTemplates.MISSION_ABANDONNEE,
+                mission.destination(), mission.chauffeurNomComplet(), probleme);
     }
     
     @Transactional
@@ -255,10 +185,24 @@ public class MissionService {
         notification.setMission(mission);
         notification.setType("MISSION_PROBLEME");
         notification.setDateEnvoi(LocalDateTime.now());
-        notification.setMessage("Problème signalé : " + problem);
+        notification.rediger(NotificationTemplates.MISSION_PROBLEME, problem);
         notification.setLue(false);
-        notificationService.creerNotification(notification);
+        notificationService.publier(notification);
         
         missionRepository.save(mission);
     }
+
+    // Employee notification for a transition, built on references so neither the mission nor the employee is loaded
+    private void notifierEmploye(MissionStateView mission, String type, String modele, Object... parametres) {
+        Notification notification = new Notification();
+        if (mission.employeId() != null) {
+            notification.setEmploye(employeRepository.getReferenceById(mission.employeId()));
+        }
+        notification.setMission(missionRepository.getReferenceById(mission.id()));
+        notification.setType(type);
+        notification.setDateEnvoi(LocalDateTime.now());
+        notification.rediger(modele, parametres);
+        notification.setLue(false);
+        notificationService.publier(notification);
+    }
 }
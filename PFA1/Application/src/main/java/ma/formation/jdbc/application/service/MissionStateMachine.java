@@ -0,0 +1,130 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.dto.MissionStateView;
+import ma.formation.jdbc.application.exception.MissionConflictException;
+import ma.formation.jdbc.application.model.Mission;
+import ma.formation.jdbc.application.repository.ChauffeurRepository;
+import ma.formation.jdbc.application.repository.MissionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Central table of mission state transitions. A transition is checked against a narrow read of the
+ * mission, then written as one UPDATE guarded by the state and version that were read, so concurrent
+ * driver and admin actions cannot overwrite each other: the loser gets a {@link MissionConflictException}.
+ * Assigning a driver is also refused when the mission window clashes with the driver's schedule.
+ */
+@Service
+public class MissionStateMachine {
+
+    public enum Transition {
+        ACCEPTER(Mission.EtatMission.EN_ATTENTE, Mission.EtatMission.EN_ATTENTE),
+        COMMENCER(Mission.EtatMission.COMMENCEE, Mission.EtatMission.EN_ATTENTE),
+        DEMARRER(Mission.EtatMission.EN_COURS, Mission.EtatMission.COMMENCEE),
+        TERMINER(Mission.EtatMission.TERMINEE, Mission.EtatMission.COMMENCEE, Mission.EtatMission.EN_COURS),
+        REFUSER(Mission.EtatMission.REFUSEE, Mission.EtatMission.EN_ATTENTE),
+        SIGNALER_PROBLEME(Mission.EtatMission.EN_ATTENTE,
+                Mission.EtatMission.EN_ATTENTE, Mission.EtatMission.COMMENCEE, Mission.EtatMission.EN_COURS),
+        REASSIGNER(Mission.EtatMission.EN_ATTENTE, Mission.EtatMission.EN_ATTENTE, Mission.EtatMission.REFUSEE);
+
+        private final Mission.EtatMission cible;
+        private final Set<Mission.EtatMission> sources;
+
+        Transition(Mission.EtatMission cible, Mission.EtatMission source, Mission.EtatMission... autres) {
+            this.cible = cible;
+            this.sources = EnumSet.of(source, autres);
+        }
+
+        public Mission.EtatMission getCible() {
+            return cible;
+        }
+
+        // Source state plus the guard on the other columns
+        public boolean allows(MissionStateView mission) {
+            if (!sources.contains(mission.etat())) {
+                return false;
+            }
+            return switch (this) {
+                case ACCEPTER, REFUSER -> !mission.acceptee();
+                case COMMENCER, SIGNALER_PROBLEME -> mission.chauffeurId() != null;
+                // Problem missions put back in EN_ATTENTE, or refused ones
+                case REASSIGNER -> mission.etat() == Mission.EtatMission.REFUSEE || mission.probleme() != null;
+                default -> true;
+            };
+        }
+
+        /** The transition that moves a mission to {@code cible} on the driver status endpoint. */
+        public static Transition toward(Mission.EtatMission cible) {
+            return switch (cible) {
+                case COMMENCEE -> COMMENCER;
+                case EN_COURS -> DEMARRER;
+                case TERMINEE -> TERMINER;
+                case REFUSEE -> REFUSER;
+                default -> throw new MissionConflictException("Transition vers l'état " + cible + " non autorisée");
+            };
+        }
+    }
+
+    @Autowired
+    private MissionRepository missionRepository;
+
+    @Autowired
+    private ChauffeurRepository chauffeurRepository;
+
+    @Autowired
+    private MissionCounterService missionCounterService;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    /**
+     * Applies {@code transition} to the mission and returns its state as read before the update.
+     * {@code chauffeurId} is the driver assigned by ACCEPTER and REASSIGNER, {@code probleme} the
+     * reason stored by REFUSER and SIGNALER_PROBLEME; both are ignored by the other transitions.
+     */
+    @Transactional
+    public MissionStateView apply(Long missionId, Transition transition, Long chauffeurId, String probleme) {
+        MissionStateView mission = missionRepository.findStateById(missionId)
+                .orElseThrow(() -> new RuntimeException("Mission non trouvée"));
+        if (!transition.allows(mission)) {
+            throw new MissionConflictException("Transition " + transition + " impossible pour une mission à l'état " + mission.etat());
+        }
+
+        Long nouveauChauffeurId = switch (transition) {
+            case ACCEPTER, REASSIGNER -> chauffeurId;
+            case SIGNALER_PROBLEME -> null;
+            default -> mission.chauffeurId();
+        };
+        if ((transition == Transition.ACCEPTER || transition == Transition.REASSIGNER) && nouveauChauffeurId != null) {
+            availabilityIndex.reserverChauffeur(nouveauChauffeurId, mission.dateHeure(), missionId);
+        }
+        boolean acceptee = switch (transition) {
+            case ACCEPTER -> true;
+            case SIGNALER_PROBLEME, REASSIGNER -> false;
+            default -> mission.acceptee();
+        };
+        String nouveauProbleme = switch (transition) {
+            case REFUSER, SIGNALER_PROBLEME -> probleme;
+            case REASSIGNER -> null;
+            default -> mission.probleme();
+        };
+
+        int updated = missionRepository.applyTransition(missionId, mission.etat(), mission.version(), transition.getCible(),
+                nouveauChauffeurId != null ? chauffeurRepository.getReferenceById(nouveauChauffeurId) : null,
+                acceptee, nouveauProbleme);
+        if (updated == 0) {
+            throw new MissionConflictException("La mission a été modifiée entre-temps, veuillez réessayer");
+        }
+
+        missionCounterService.record(
+                new MissionCounterService.Snapshot(mission.chauffeurId(), mission.employeId(), mission.etat()),
+                new MissionCounterService.Snapshot(nouveauChauffeurId, mission.employeId(), transition.getCible()));
+        // The bulk UPDATE bypasses the entity write listener
+        availabilityIndex.afterCommit(() -> availabilityIndex.missionWritten(
+                missionId, transition.getCible(), nouveauChauffeurId, mission.vehiculeId(), mission.dateHeure()));
+        return mission;
+    }
+}
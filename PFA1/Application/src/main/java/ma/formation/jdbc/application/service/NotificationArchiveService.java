@@ -0,0 +1,89 @@
+package ma.formation.jdbc.application.service;
+
+import jakarta.annotation.PreDestroy;
+import ma.formation.jdbc.application.repository.NotificationArchiveRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.time.LocalDateTime;
+
+/**
+ * Retention job: moves read employee notifications older than {@code age-jours} to
+ * {@code notifications_archive}, where the employee's archive page reads them; the other recipients have
+ * no archive view, so their notifications stay where their feeds read them.
+ * It walks the ids in ascending chunks (see ChunkedJob); each chunk is copied, then what was copied is
+ * deleted, in one short transaction. Only rows already read are moved, so unread counts and their cache
+ * are unchanged.
+ */
+@Service
+public class NotificationArchiveService {
+    private static final Logger log = LoggerFactory.getLogger(NotificationArchiveService.class);
+
+    @Autowired
+    private NotificationArchiveRepository archiveRepository;
+
+    @Autowired
+    private RecipientVersionService recipientVersionService;
+
+    @Value("${notifications.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notifications.archive.age-jours:30}")
+    private int ageJours;
+
+    @Value("${notifications.archive.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${notifications.archive.pause-ms:200}")
+    private long pauseMs;
+
+    private final ChunkedJob job;
+
+    public NotificationArchiveService(PlatformTransactionManager transactionManager) {
+        this.job = new ChunkedJob(transactionManager, () -> chunkSize, () -> pauseMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        job.stop();
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.archive.delay-ms:3600000}",
+               initialDelayString = "${notifications.archive.delay-ms:3600000}")
+    public void archiverPeriodiquement() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archiver();
+        } catch (RuntimeException e) {
+            log.error("Notification archival failed", e);
+        }
+    }
+
+    /** Archives the read employee notifications older than the retention age; returns how many were moved. */
+    public int archiver() {
+        long start = System.currentTimeMillis();
+        LocalDateTime avant = LocalDateTime.now().minusDays(ageJours);
+        int archivees = job.run((afterId, page) -> archiveRepository.findIdsAArchiver(afterId, avant, page),
+                Long::longValue, chunk -> {
+                    archiveRepository.archiver(chunk, LocalDateTime.now());
+                    int deplacees = archiveRepository.supprimerArchivees(chunk);
+                    if (deplacees > 0) {
+                        // The archived rows left the feeds
+                        recipientVersionService.allChangedAfterCommit();
+                    }
+                    return deplacees;
+                });
+
+        if (archivees > 0) {
+            log.info("Archived {} notifications older than {} days in {} ms",
+                    archivees, ageJours, System.currentTimeMillis() - start);
+        }
+        return archivees;
+    }
+}
@@ -0,0 +1,217 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.dto.NotificationCountCacheStatsDTO;
+import ma.formation.jdbc.application.model.Notification;
+import ma.formation.jdbc.application.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Unread notification counts by recipient, kept in memory so polls and stream count pushes do not run a
+ * count query each. A count is loaded on its first read and then moved by the committed writes: +1 for a
+ * new unread notification, -1 when one is read or deleted (see
+ * {@link ma.formation.jdbc.application.config.EntityWriteListener}), reset or shifted by the bulk updates
+ * of {@link NotificationService}. Writes to counts that are not loaded are ignored.
+ * <p>
+ * Counts are spread over lock stripes. Every write bumps its stripe's version, and a load only stores its
+ * result if the version did not move while it queried, so a count read before a concurrent write committed
+ * is never kept. Counts expire after {@code ttl-ms} in case a write escaped (another instance, manual SQL).
+ */
+@Service
+public class NotificationCountCache {
+
+    /** The unread counts the application shows, one per recipient. */
+    public record Compteur(Portee portee, Long id) {
+        public enum Portee { EMPLOYE, CHAUFFEUR, ADMIN }
+
+        public static Compteur employe(Long id) {
+            return new Compteur(Portee.EMPLOYE, id);
+        }
+
+        public static Compteur chauffeur(Long id) {
+            return new Compteur(Portee.CHAUFFEUR, id);
+        }
+
+        public static Compteur admin(Long id) {
+            return new Compteur(Portee.ADMIN, id);
+        }
+    }
+
+    private record Entree(long valeur, long expireA) {}
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Value("${notifications.count-cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    private final Map<Compteur, Entree> comptes = new ConcurrentHashMap<>();
+
+    private final Object[] verrous;
+    private final long[] versions;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder ajustements = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public NotificationCountCache(@Value("${notifications.count-cache.stripes:64}") int stripes) {
+        // Power of two, so a stripe is a mask of the hash
+        int taille = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        verrous = new Object[taille];
+        for (int i = 0; i < taille; i++) {
+            verrous[i] = new Object();
+        }
+        versions = new long[taille];
+    }
+
+    public long nonLues(Compteur compteur) {
+        Entree entree = comptes.get(compteur);
+        if (entree != null && entree.expireA() - System.nanoTime() > 0) {
+            hits.increment();
+            return entree.valeur();
+        }
+        misses.increment();
+        int stripe = stripe(compteur);
+        long version;
+        synchronized (verrous[stripe]) {
+            version = versions[stripe];
+        }
+        long valeur = charger(compteur);
+        synchronized (verrous[stripe]) {
+            if (versions[stripe] == version) {
+                comptes.put(compteur, new Entree(valeur, expiration()));
+            }
+        }
+        return valeur;
+    }
+
+    /** Committed insert: counts the notification if it arrived unread. */
+    public void notificationCreee(Notification notification) {
+        if (!notification.isLue()) {
+            ajuster(compteurs(notification), 1);
+        }
+    }
+
+    /** Committed single-row update: {@code etaitLue} is the read state the row had before it. */
+    public void notificationModifiee(Notification notification, boolean etaitLue) {
+        if (etaitLue != notification.isLue()) {
+            ajuster(compteurs(notification), etaitLue ? 1 : -1);
+        }
+    }
+
+    /** Committed delete: uncounts the notification if it was still unread. */
+    public void notificationSupprimee(Notification notification) {
+        if (!notification.isLue()) {
+            ajuster(compteurs(notification), -1);
+        }
+    }
+
+    /** Adds {@code delta} to the counts the notifications with these recipient columns are part of. */
+    public void ajuster(Long employeId, Long chauffeurId, Long adminId, long delta) {
+        ajuster(compteurs(employeId, chauffeurId, adminId), delta);
+    }
+
+    public void ajuster(Compteur compteur, long delta) {
+        ajuster(Set.of(compteur), delta);
+    }
+
+    /** All notifications of {@code compteur} were marked read. */
+    public void remettreAZero(Compteur compteur) {
+        int stripe = stripe(compteur);
+        synchronized (verrous[stripe]) {
+            versions[stripe]++;
+            comptes.put(compteur, new Entree(0, expiration()));
+        }
+        ajustements.increment();
+    }
+
+    /** Drops counts a write changed by an unknown amount; they are reloaded on their next read. */
+    public void invalider(Compteur compteur) {
+        int stripe = stripe(compteur);
+        synchronized (verrous[stripe]) {
+            versions[stripe]++;
+            comptes.remove(compteur);
+        }
+        invalidations.increment();
+    }
+
+    /** Drops the counts the notifications with these recipient columns are part of. */
+    public void invalider(Notification notification) {
+        compteurs(notification).forEach(this::invalider);
+    }
+
+    public void invalider(Long employeId, Long chauffeurId, Long adminId) {
+        compteurs(employeId, chauffeurId, adminId).forEach(this::invalider);
+    }
+
+    public NotificationCountCacheStatsDTO getStats() {
+        NotificationCountCacheStatsDTO stats = new NotificationCountCacheStatsDTO();
+        stats.setHits(hits.sum());
+        stats.setMisses(misses.sum());
+        long lectures = stats.getHits() + stats.getMisses();
+        stats.setHitRatio(lectures == 0 ? 0 : (double) stats.getHits() / lectures);
+        stats.setAjustements(ajustements.sum());
+        stats.setInvalidations(invalidations.sum());
+        stats.setComptes(comptes.size());
+        stats.setTtlMs(ttlMs);
+        return stats;
+    }
+
+    private void ajuster(Set<Compteur> compteurs, long delta) {
+        for (Compteur compteur : compteurs) {
+            int stripe = stripe(compteur);
+            synchronized (verrous[stripe]) {
+                versions[stripe]++;
+                comptes.computeIfPresent(compteur,
+                        (cle, entree) -> new Entree(Math.max(0, entree.valeur() + delta), entree.expireA()));
+            }
+        }
+        ajustements.increment();
+    }
+
+    private long charger(Compteur compteur) {
+        return switch (compteur.portee()) {
+            case EMPLOYE -> notificationRepository.countByEmployeIdAndLueFalse(compteur.id());
+            case CHAUFFEUR -> notificationRepository.countByChauffeurIdAndLueFalse(compteur.id());
+            case ADMIN -> notificationRepository.countByAdminIdAndLueFalse(compteur.id());
+        };
+    }
+
+    private static Set<Compteur> compteurs(Notification notification) {
+        return compteurs(notification.getEmploye() != null ? notification.getEmploye().getId() : null,
+                notification.getChauffeur() != null ? notification.getChauffeur().getId() : null,
+                notification.getAdmin() != null ? notification.getAdmin().getId() : null);
+    }
+
+    private static Set<Compteur> compteurs(Long employeId, Long chauffeurId, Long adminId) {
+        Set<Compteur> compteurs = new HashSet<>();
+        if (employeId != null) {
+            compteurs.add(Compteur.employe(employeId));
+        }
+        if (chauffeurId != null) {
+            compteurs.add(Compteur.chauffeur(chauffeurId));
+        }
+        if (adminId != null) {
+            compteurs.add(Compteur.admin(adminId));
+        }
+        return compteurs;
+    }
+
+    private int stripe(Compteur compteur) {
+        int hash = compteur.hashCode();
+        return (hash ^ (hash >>> 16)) & (verrous.length - 1);
+    }
+
+    private long expiration() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+}
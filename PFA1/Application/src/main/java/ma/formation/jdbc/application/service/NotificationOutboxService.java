@@ -0,0 +1,382 @@
+package ma.formation.jdbc.application.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import ma.formation.jdbc.application.dto.NotificationOutboxStatsDTO;
+import ma.formation.jdbc.application.model.Notification;
+import ma.formation.jdbc.application.model.NotificationOutbox;
+import ma.formation.jdbc.application.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox of notifications. Business transactions only insert a compact
+ * {@link NotificationOutbox} row; once they commit, a dispatcher thread reads the due rows in batches and
+ * hands chunks of them to a bounded worker pool, each chunk inserting its notifications and deleting its
+ * rows in one transaction. The notification insert is what reaches the event streams (see
+ * {@link NotificationPushService}). Delivery is at-least-once: a row is only deleted with its notification,
+ * and the unique {@code outbox_id} of a notification turns a second delivery of the same row into a
+ * failure instead of a duplicate. A failing chunk is retried row by row; failing rows back off and are
+ * parked after {@code max-tentatives}.
+ * <p>
+ * Delivery also coalesces bursts: the events of one recipient about one mission are merged into a single
+ * notification carrying the latest state, as long as that notification is unread and its last event is
+ * less than {@code coalescing.window-ms} old. A merge updates the row in place, so unread counts do not move.
+ */
+@Service
+public class NotificationOutboxService {
+    private static final Logger log = LoggerFactory.getLogger(NotificationOutboxService.class);
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private EmployeRepository employeRepository;
+
+    @Autowired
+    private AdminRepository adminRepository;
+
+    @Autowired
+    private ChauffeurRepository chauffeurRepository;
+
+    @Autowired
+    private MissionRepository missionRepository;
+
+    @Autowired
+    private IndisponibiliteRepository indisponibiliteRepository;
+
+    @Autowired
+    private NotificationReadCursorService readCursorService;
+
+    // Rows read per dispatcher pass, and rows per delivery transaction
+    @Value("${notifications.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notifications.outbox.chunk-size:50}")
+    private int chunkSize;
+
+    @Value("${notifications.outbox.workers:2}")
+    private int workerCount;
+
+    @Value("${notifications.outbox.max-tentatives:10}")
+    private int maxTentatives;
+
+    // First retry delay, doubled on each further failure
+    @Value("${notifications.outbox.retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    // Events of one recipient about one mission this close to each other share a notification; 0 disables
+    @Value("${notifications.coalescing.window-ms:60000}")
+    private long fenetreFusionMs;
+
+    private static final Comparator<NotificationOutbox> ORDRE_EVENEMENTS =
+            Comparator.comparing(NotificationOutbox::getDateEnvoi).thenComparing(NotificationOutbox::getId);
+    private static final Comparator<Notification> ORDRE_NOTIFICATIONS =
+            Comparator.comparing(Notification::getDateEnvoi).thenComparing(Notification::getId);
+
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnly;
+
+    private ExecutorService dispatcher;
+    private ThreadPoolExecutor workers;
+
+    // A dispatcher pass is queued and has not started yet
+    private final AtomicBoolean reveil = new AtomicBoolean();
+
+    private final AtomicLong livrees = new AtomicLong();
+    private final AtomicLong echecs = new AtomicLong();
+    private final AtomicLong fusionnees = new AtomicLong();
+    private volatile long dureeDerniereVidangeMs;
+    private volatile LocalDateTime derniereVidange;
+
+    public NotificationOutboxService(PlatformTransactionManager transactionManager) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void startWorkers() {
+        dispatcher = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "notification-outbox"));
+        // Bounded queue; when it is full the dispatcher delivers the chunk itself, which slows its reads down
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerCount * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void stopWorkers() throws InterruptedException {
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(10, TimeUnit.SECONDS);
+        workers.shutdown();
+    }
+
+    /** Queues a notification for delivery once the current transaction commits. */
+    @Transactional
+    public void publier(Notification notification) {
+        publierTous(List.of(notification));
+    }
+
+    /** Queues notifications for delivery once the current transaction commits; one JDBC batch. */
+    @Transactional
+    public void publierTous(List<Notification> notifications) {
+        enfiler(notifications.stream().map(NotificationOutbox::of).toList());
+    }
+
+    /** Queues one copy of {@code notification} per admin of {@code adminIds}, addressed to that admin; one JDBC batch. */
+    @Transactional
+    public void publierPourAdmins(Notification notification, Collection<Long> adminIds) {
+        enfiler(adminIds.stream().map(adminId -> {
+            NotificationOutbox event = NotificationOutbox.of(notification);
+            event.setAdminId(adminId);
+            return event;
+        }).toList());
+    }
+
+    private void enfiler(List<NotificationOutbox> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        outboxRepository.saveAll(events);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reveiller();
+                }
+            });
+        }
+    }
+
+    // Rows whose wake-up was lost (restart, other instance, retry delay) are picked up here
+    @Scheduled(fixedDelayString = "${notifications.outbox.poll-delay-ms:5000}")
+    public void reveiller() {
+        if (reveil.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(this::vider);
+            } catch (RejectedExecutionException e) {
+                // Shutting down: the rows stay in the outbox for the next start
+            }
+        }
+    }
+
+    /** Gives the parked rows a new set of attempts and returns how many there were. */
+    @Transactional
+    public int relancerBloquees() {
+        int relancees = outboxRepository.relancerBloquees(maxTentatives);
+        if (relancees > 0) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reveiller();
+                }
+            });
+        }
+        return relancees;
+    }
+
+    public NotificationOutboxStatsDTO getStats() {
+        NotificationOutboxStatsDTO stats = readOnly.execute(status -> {
+            NotificationOutboxStatsDTO dto = new NotificationOutboxStatsDTO();
+            Object[] enAttente = outboxRepository.statsEnAttente(maxTentatives).get(0);
+            dto.setEnAttente(((Number) enAttente[0]).longValue());
+            if (enAttente[1] != null) {
+                dto.setRetardMaxSecondes(Math.max(0,
+                        Duration.between((LocalDateTime) enAttente[1], LocalDateTime.now()).toSeconds()));
+            }
+            dto.setBloquees(outboxRepository.countBloquees(maxTentatives));
+            return dto;
+        });
+        stats.setLivrees(livrees.get());
+        stats.setEchecs(echecs.get());
+        stats.setFusionnees(fusionnees.get());
+        stats.setDureeDerniereVidangeMs(dureeDerniereVidangeMs);
+        stats.setDerniereVidange(derniereVidange);
+        stats.setWorkers(workerCount);
+        return stats;
+    }
+
+    // Dispatcher pass: delivers due rows until a read returns less than a full batch
+    private void vider() {
+        reveil.set(false);
+        long debut = System.nanoTime();
+        List<Long> ids;
+        int livreesPasse;
+        do {
+            ids = readOnly.execute(status ->
+                    outboxRepository.findIdsADelivrer(maxTentatives, LocalDateTime.now(), PageRequest.of(0, batchSize)));
+            List<CompletableFuture<Integer>> lots = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i += chunkSize) {
+                List<Long> lot = ids.subList(i, Math.min(i + chunkSize, ids.size()));
+                lots.add(CompletableFuture.supplyAsync(() -> livrer(lot), workers));
+            }
+            livreesPasse = lots.stream().mapToInt(CompletableFuture::join).sum();
+        // Stop when nothing could be delivered, e.g. the database is down
+        } while (ids.size() == batchSize && livreesPasse > 0 && !dispatcher.isShutdown());
+
+        if (!ids.isEmpty()) {
+            dureeDerniereVidangeMs = (System.nanoTime() - debut) / 1_000_000;
+            derniereVidange = LocalDateTime.now();
+        }
+    }
+
+    private int livrer(List<Long> ids) {
+        try {
+            return transaction.execute(status -> inserer(ids));
+        } catch (RuntimeException e) {
+            // Find the failing rows so they do not hold back the others
+            int livres = 0;
+            for (Long id : ids) {
+                try {
+                    livres += transaction.execute(status -> inserer(List.of(id)));
+                } catch (RuntimeException ex) {
+                    echec(id, ex);
+                }
+            }
+            return livres;
+        }
+    }
+
+    // Inserts the notifications of the rows still in the outbox and deletes those rows
+    private int inserer(List<Long> ids) {
+        List<NotificationOutbox> events = outboxRepository.findByIdIn(ids);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<NotificationOutbox> aInserer = fenetreFusionMs > 0 ? fusionner(events) : events;
+        List<Notification> notifications = notificationRepository.saveAll(aInserer.stream().map(this::notification).toList());
+        readCursorService.notificationsInserees(notifications);
+        outboxRepository.deleteByIdIn(events.stream().map(NotificationOutbox::getId).toList());
+        livrees.addAndGet(events.size());
+        fusionnees.addAndGet(events.size() - aInserer.size());
+        return events.size();
+    }
+
+    // Keeps the latest event of each (recipient, mission) of the chunk and merges it into the recipient's
+    // unread notification about the mission when that one is recent enough; returns the events to insert.
+    // The candidates are locked so concurrent chunks and "mark read" apply one after the other.
+    private List<NotificationOutbox> fusionner(List<NotificationOutbox> events) {
+        List<NotificationOutbox> aInserer = new ArrayList<>();
+        Map<CleFusion, NotificationOutbox> derniers = new LinkedHashMap<>();
+        for (NotificationOutbox event : events) {
+            if (event.getMissionId() == null) {
+                aInserer.add(event);
+            } else {
+                derniers.merge(CleFusion.of(event), event, (a, b) -> ORDRE_EVENEMENTS.compare(a, b) >= 0 ? a : b);
+            }
+        }
+        if (derniers.isEmpty()) {
+            return aInserer;
+        }
+
+        Duration fenetre = Duration.ofMillis(fenetreFusionMs);
+        LocalDateTime depuis = derniers.values().stream().map(NotificationOutbox::getDateEnvoi)
+                .min(Comparator.naturalOrder()).orElseThrow().minus(fenetre);
+        Map<CleFusion, Notification> nonLues = new HashMap<>();
+        for (Notification notification : notificationRepository.findNonLuesAFusionner(
+                derniers.values().stream().map(NotificationOutbox::getMissionId).distinct().toList(), depuis)) {
+            nonLues.merge(CleFusion.of(notification), notification,
+                    (a, b) -> ORDRE_NOTIFICATIONS.compare(a, b) >= 0 ? a : b);
+        }
+
+        for (NotificationOutbox event : derniers.values()) {
+            Notification notification = nonLues.get(CleFusion.of(event));
+            if (notification == null || notification.getDateEnvoi().isBefore(event.getDateEnvoi().minus(fenetre))) {
+                aInserer.add(event);
+            } else if (!notification.getDateEnvoi().isAfter(event.getDateEnvoi())) {
+                // Written at commit; otherwise the notification already shows a later event
+                notification.setType(event.getType());
+                notification.setModele(event.getModele());
+                notification.setParametres(event.getParametres());
+                notification.setMessage(event.getMessage());
+                notification.setDateEnvoi(event.getDateEnvoi());
+            }
+        }
+        aInserer.sort(Comparator.comparing(NotificationOutbox::getId));
+        return aInserer;
+    }
+
+    private record CleFusion(Long employeId, Long adminId, Long chauffeurId, Long missionId) {
+        static CleFusion of(NotificationOutbox event) {
+            return new CleFusion(event.getEmployeId(), event.getAdminId(), event.getChauffeurId(), event.getMissionId());
+        }
+
+        static CleFusion of(Notification notification) {
+            return new CleFusion(notification.getEmploye() != null ? notification.getEmploye().getId() : null,
+                    notification.getAdmin() != null ? notification.getAdmin().getId() : null,
+                    notification.getChauffeur() != null ? notification.getChauffeur().getId() : null,
+                    notification.getMission().getId());
+        }
+    }
+
+    private void echec(Long id, RuntimeException cause) {
+        echecs.incrementAndGet();
+        try {
+            transaction.executeWithoutResult(status -> outboxRepository.findById(id).ifPresent(event -> {
+                int tentatives = event.getTentatives() + 1;
+                event.setTentatives(tentatives);
+                event.setProchainEssai(LocalDateTime.now().plus(
+                        Duration.ofMillis(retryDelayMs).multipliedBy(1L << Math.min(tentatives - 1, 10))));
+                String erreur = String.valueOf(cause.getMessage());
+                event.setDerniereErreur(erreur.length() > 500 ? erreur.substring(0, 500) : erreur);
+                if (tentatives >= maxTentatives) {
+                    log.warn("Notification outbox row {} parked after {} attempts: {}", id, tentatives, erreur);
+                }
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Could not record the failed delivery of notification outbox row {}", id, e);
+        }
+    }
+
+    // Built on references: none of the recipients or subjects is loaded
+    private Notification notification(NotificationOutbox event) {
+        Notification notification = new Notification();
+        if (event.getEmployeId() != null) {
+            notification.setEmploye(employeRepository.getReferenceById(event.getEmployeId()));
+        }
+        if (event.getAdminId() != null) {
+            notification.setAdmin(adminRepository.getReferenceById(event.getAdminId()));
+        }
+        if (event.getChauffeurId() != null) {
+            notification.setChauffeur(chauffeurRepository.getReferenceById(event.getChauffeurId()));
+        }
+        if (event.getMissionId() != null) {
+            notification.setMission(missionRepository.getReferenceById(event.getMissionId()));
+        }
+        if (event.getIndisponibiliteId() != null) {
+            notification.setIndisponibilite(indisponibiliteRepository.getReferenceById(event.getIndisponibiliteId()));
+        }
+        notification.setType(event.getType());
+        notification.setModele(event.getModele());
+        notification.setParametres(event.getParametres());
+        notification.setMessage(event.getMessage());
+        notification.setDateEnvoi(event.getDateEnvoi());
+        notification.setLue(false);
+        notification.setOutboxId(event.getId());
+        return notification;
+    }
+}
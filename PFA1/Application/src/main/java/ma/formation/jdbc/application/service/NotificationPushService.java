@@ -0,0 +1,293 @@
+package ma.formation.jdbc.application.service;
+
+import jakarta.annotation.PreDestroy;
+import ma.formation.jdbc.application.dto.NotificationEventDTO;
+import ma.formation.jdbc.application.model.Notification;
+import ma.formation.jdbc.application.service.NotificationCountCache.Compteur;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Server-sent event streams of notifications, one per connected employee, chauffeur or admin screen.
+ * Committed notifications (see {@link ma.formation.jdbc.application.config.EntityWriteListener}) are
+ * pushed with the recipient's new unread count, so clients no longer poll. Streams are async requests
+ * and hold no thread; every send runs on a single push thread, which keeps each stream ordered and
+ * keeps slow clients off the request threads. Unread counts, which may need a query, are computed on a
+ * count thread of their own and handed to the push thread ready to send, so a slow count never holds
+ * back the other streams. Recent events are kept in a bounded buffer so a client
+ * reconnecting with {@code Last-Event-ID} gets what it missed, or a {@code resync} event when it is
+ * too far behind (or the server restarted) and must reload its list.
+ */
+@Service
+public class NotificationPushService {
+    /**
+     * Who a stream belongs to. {@link #ADMIN} (id 0) stands for the data all admin screens share
+     * (dashboards, lists); the notifications of an admin go to {@link #admin}.
+     */
+    public record Destinataire(Type type, Long id) {
+        public enum Type { EMPLOYE, CHAUFFEUR, ADMIN }
+
+        public static final Destinataire ADMIN = new Destinataire(Type.ADMIN, 0L);
+
+        public static Destinataire admin(Long id) {
+            return new Destinataire(Type.ADMIN, id);
+        }
+
+        public static Destinataire employe(Long id) {
+            return new Destinataire(Type.EMPLOYE, id);
+        }
+
+        public static Destinataire chauffeur(Long id) {
+            return new Destinataire(Type.CHAUFFEUR, id);
+        }
+    }
+
+    private record Evenement(long sequence, Set<Destinataire> destinataires, NotificationEventDTO notification) {}
+
+    // One open stream and the last notification sequence it was sent
+    private static final class Abonnement {
+        final SseEmitter emitter;
+        long dernierEnvoye;
+
+        Abonnement(SseEmitter emitter, long dernierEnvoye) {
+            this.emitter = emitter;
+            this.dernierEnvoye = dernierEnvoye;
+        }
+    }
+
+    @Autowired
+    private NotificationCountCache countCache;
+
+    @Value("${notifications.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${notifications.stream.replay-size:1000}")
+    private int replaySize;
+
+    // Streams by recipient; only changed from the push thread, the count thread only looks up who has one
+    private final Map<Destinataire, List<Abonnement>> abonnements = new ConcurrentHashMap<>();
+
+    // Event ids are "<epoch>-<sequence>": ids from before a restart are recognised and answered with a resync
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private long sequence;
+    private final Deque<Evenement> recents = new ArrayDeque<>();
+
+    private final ExecutorService pushThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notification-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Runs the count queries in order, so a recipient's counts reach the push thread oldest first
+    private final ExecutorService countThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notification-count");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Number of open streams, readable from any thread
+    private final Map<Destinataire.Type, Integer> ouverts = new ConcurrentHashMap<>();
+
+    // Recipients with a count push queued: marking a whole list read queues one count query, not one per row
+    private final Set<Destinataire> comptesEnAttente = ConcurrentHashMap.newKeySet();
+
+    /** Opens a stream for {@code destinataire}, resuming after {@code lastEventId} when given. */
+    public SseEmitter subscribe(Destinataire destinataire, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Runnable remove = () -> pushThread.execute(() -> retirer(destinataire, emitter));
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        pushThread.execute(() -> {
+            long reprise = parseSequence(lastEventId);
+            long dernier;
+            List<Evenement> manques = new ArrayList<>();
+            synchronized (recents) {
+                dernier = sequence;
+                boolean resumable = reprise >= 0 && reprise <= sequence
+                        && (recents.isEmpty() || reprise >= recents.peekFirst().sequence() - 1);
+                if (resumable) {
+                    for (Evenement evenement : recents) {
+                        if (evenement.sequence() > reprise && evenement.destinataires().contains(destinataire)) {
+                            manques.add(evenement);
+                        }
+                    }
+                } else if (lastEventId != null) {
+                    manques = null;
+                }
+            }
+
+            Abonnement abonnement = new Abonnement(emitter, dernier);
+            abonnements.computeIfAbsent(destinataire, k -> new ArrayList<>()).add(abonnement);
+            ouverts.merge(destinataire.type(), 1, Integer::sum);
+            if (manques == null) {
+                envoyer(destinataire, abonnement, SseEmitter.event().name("resync").data(""));
+            } else {
+                for (Evenement evenement : manques) {
+                    envoyer(destinataire, abonnement, notificationEvent(evenement));
+                }
+            }
+            unreadCountChanged(destinataire);
+        });
+        return emitter;
+    }
+
+    /** Pushes a committed notification to its recipients, with their new unread counts. */
+    public void notificationCreated(Notification notification) {
+        Set<Destinataire> destinataires = destinataires(notification);
+        if (destinataires.isEmpty()) {
+            return;
+        }
+        Evenement evenement;
+        synchronized (recents) {
+            evenement = new Evenement(++sequence, destinataires, NotificationEventDTO.of(notification));
+            recents.addLast(evenement);
+            while (recents.size() > replaySize) {
+                recents.removeFirst();
+            }
+        }
+        pushThread.execute(() -> {
+            for (Destinataire destinataire : destinataires) {
+                List<Abonnement> streams = abonnements.get(destinataire);
+                if (streams == null) {
+                    continue;
+                }
+                for (Abonnement abonnement : List.copyOf(streams)) {
+                    if (evenement.sequence() > abonnement.dernierEnvoye) {
+                        abonnement.dernierEnvoye = evenement.sequence();
+                        envoyer(destinataire, abonnement, notificationEvent(evenement));
+                    }
+                }
+                unreadCountChanged(destinataire);
+            }
+        });
+    }
+
+    /** Pushes the current unread count of the notification's recipients, e.g. after it was read or deleted. */
+    public void notificationChanged(Notification notification) {
+        destinataires(notification).forEach(this::unreadCountChanged);
+    }
+
+    /** Pushes the current unread count of {@code destinataire} if it has an open stream. */
+    public void unreadCountChanged(Destinataire destinataire) {
+        if (comptesEnAttente.add(destinataire)) {
+            countThread.execute(() -> {
+                comptesEnAttente.remove(destinataire);
+                if (abonnements.containsKey(destinataire)) {
+                    SseEmitter.SseEventBuilder event = unreadCountEvent(compterNonLues(destinataire));
+                    pushThread.execute(() -> pousserNonLues(destinataire, event));
+                }
+            });
+        }
+    }
+
+    public Map<Destinataire.Type, Integer> getStreamsOuverts() {
+        return Map.copyOf(ouverts);
+    }
+
+    // Comment lines keep proxies from closing idle streams and reveal dead ones
+    @Scheduled(fixedRateString = "${notifications.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        pushThread.execute(() -> abonnements.forEach((destinataire, streams) -> {
+            for (Abonnement abonnement : List.copyOf(streams)) {
+                envoyer(destinataire, abonnement, SseEmitter.event().comment("heartbeat"));
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void close() {
+        countThread.shutdownNow();
+        pushThread.shutdownNow();
+        abonnements.values().forEach(streams -> streams.forEach(abonnement -> abonnement.emitter.complete()));
+    }
+
+    private void pousserNonLues(Destinataire destinataire, SseEmitter.SseEventBuilder event) {
+        List<Abonnement> streams = abonnements.get(destinataire);
+        if (streams == null || streams.isEmpty()) {
+            return;
+        }
+        for (Abonnement abonnement : List.copyOf(streams)) {
+            envoyer(destinataire, abonnement, event);
+        }
+    }
+
+    private long compterNonLues(Destinataire destinataire) {
+        return switch (destinataire.type()) {
+            case EMPLOYE -> countCache.nonLues(Compteur.employe(destinataire.id()));
+            case CHAUFFEUR -> countCache.nonLues(Compteur.chauffeur(destinataire.id()));
+            case ADMIN -> countCache.nonLues(Compteur.admin(destinataire.id()));
+        };
+    }
+
+    private void envoyer(Destinataire destinataire, Abonnement abonnement, SseEmitter.SseEventBuilder event) {
+        try {
+            abonnement.emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Client gone: drop the stream, the browser reconnects with its Last-Event-ID
+            retirer(destinataire, abonnement.emitter);
+        }
+    }
+
+    private void retirer(Destinataire destinataire, SseEmitter emitter) {
+        List<Abonnement> streams = abonnements.get(destinataire);
+        if (streams != null && streams.removeIf(abonnement -> abonnement.emitter == emitter)) {
+            ouverts.merge(destinataire.type(), -1, Integer::sum);
+            if (streams.isEmpty()) {
+                abonnements.remove(destinataire);
+            }
+        }
+    }
+
+    private SseEmitter.SseEventBuilder notificationEvent(Evenement evenement) {
+        return SseEmitter.event().id(epoch + "-" + evenement.sequence()).name("notification").data(evenement.notification());
+    }
+
+    private SseEmitter.SseEventBuilder unreadCountEvent(long count) {
+        return SseEmitter.event().name("unread-count").data(count);
+    }
+
+    // Sequence of an event id from this run of the server, -1 otherwise
+    private long parseSequence(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(epoch + "-")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** The streams {@code notification} shows up in. */
+    public static Set<Destinataire> destinataires(Notification notification) {
+        return destinataires(notification.getEmploye() != null ? notification.getEmploye().getId() : null,
+                notification.getChauffeur() != null ? notification.getChauffeur().getId() : null,
+                notification.getAdmin() != null ? notification.getAdmin().getId() : null);
+    }
+
+    /** The streams a notification with these recipient columns shows up in. */
+    public static Set<Destinataire> destinataires(Long employeId, Long chauffeurId, Long adminId) {
+        Set<Destinataire> destinataires = new HashSet<>();
+        if (employeId != null) {
+            destinataires.add(Destinataire.employe(employeId));
+        }
+        if (chauffeurId != null) {
+            destinataires.add(Destinataire.chauffeur(chauffeurId));
+        }
+        if (adminId != null) {
+            destinataires.add(Destinataire.admin(adminId));
+        }
+        return destinataires;
+    }
+}
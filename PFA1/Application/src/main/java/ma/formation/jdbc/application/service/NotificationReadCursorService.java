@@ -0,0 +1,114 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.model.Notification;
+import ma.formation.jdbc.application.model.NotificationReadCursor;
+import ma.formation.jdbc.application.repository.NotificationReadCursorRepository;
+import ma.formation.jdbc.application.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the notification read cursors. "Mark all read" moves a cursor up to the highest notification id of
+ * its scope: one locked row read and one row write, whatever the number of notifications. The cursor is
+ * locked before that id is read, and inserts lock the cursors covering their notifications, so a
+ * notification still being inserted is never passed by a cursor that did not see it.
+ * <p>
+ * Ids come from a pooled table generator, so a notification can be inserted with an id below a cursor
+ * that has already moved past it (another instance's block, or a slower concurrent transaction). It would
+ * show up as read; {@link #notificationsInserees} moves such a cursor back below it and flags the
+ * notifications in between as read one by one instead, so their read state does not change.
+ */
+@Service
+public class NotificationReadCursorService {
+
+    @Autowired
+    private NotificationReadCursorRepository cursorRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    /**
+     * Locks the cursor of a scope, creating it at 0 when missing. Call it before reading the scope's
+     * notifications: a transaction inserting notifications the cursor covers holds this lock until it
+     * commits (see {@link #notificationsInserees}), so the counts and ids read afterwards include them.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public NotificationReadCursor verrouiller(String scope, Long scopeId) {
+        cursorRepository.createIfAbsent(scope, scopeId);
+        return cursorRepository.lockByKey(scope, scopeId)
+                .orElseThrow(() -> new RuntimeException("Curseur de lecture non trouvé : " + scope + " " + scopeId));
+    }
+
+    /** Moves a cursor locked by {@link #verrouiller} up to {@code jusquA}; it never moves down. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void avancer(NotificationReadCursor cursor, Long jusquA) {
+        if (jusquA != null && jusquA > cursor.getDernierIdLu()) {
+            cursor.setDernierIdLu(jusquA);
+            cursorRepository.save(cursor);
+        }
+    }
+
+    /** Called in the transaction that inserted {@code notifications}, once their ids are assigned. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void notificationsInserees(List<Notification> notifications) {
+        Set<Long> employeIds = new HashSet<>();
+        Set<Long> chauffeurIds = new HashSet<>();
+        Set<Long> adminIds = new HashSet<>();
+        for (Notification notification : notifications) {
+            if (notification.getEmploye() != null) {
+                employeIds.add(notification.getEmploye().getId());
+            }
+            if (notification.getChauffeur() != null) {
+                chauffeurIds.add(notification.getChauffeur().getId());
+            }
+            if (notification.getAdmin() != null) {
+                adminIds.add(notification.getAdmin().getId());
+            }
+        }
+        // -1 matches no one: keeps the IN lists non-empty. The cursors stay locked until commit, so a
+        // "mark all read" of the same scope waits and then sees these notifications
+        List<NotificationReadCursor> cursors = cursorRepository.lockCouvrant(
+                employeIds.isEmpty() ? List.of(-1L) : employeIds, chauffeurIds.isEmpty() ? List.of(-1L) : chauffeurIds,
+                adminIds.isEmpty() ? List.of(-1L) : adminIds);
+        if (cursors.isEmpty()) {
+            return;
+        }
+
+        List<Long> nouvelles = notifications.stream().map(Notification::getId).collect(Collectors.toList());
+        for (NotificationReadCursor cursor : cursors) {
+            OptionalLong premiere = notifications.stream()
+                    .filter(notification -> couvre(cursor.getKey(), notification))
+                    .mapToLong(Notification::getId)
+                    .min();
+            if (premiere.isEmpty() || premiere.getAsLong() > cursor.getDernierIdLu()) {
+                continue;
+            }
+            long debut = premiere.getAsLong();
+            long fin = cursor.getDernierIdLu();
+            Long scopeId = cursor.getKey().getScopeId();
+            switch (cursor.getKey().getScope()) {
+                case NotificationReadCursor.EMPLOYE -> notificationRepository.flagReadRangeByEmployeId(scopeId, debut, fin, nouvelles);
+                case NotificationReadCursor.CHAUFFEUR -> notificationRepository.flagReadRangeByChauffeurId(scopeId, debut, fin, nouvelles);
+                case NotificationReadCursor.ADMIN -> notificationRepository.flagReadRangeByAdminId(scopeId, debut, fin, nouvelles);
+            }
+            cursor.setDernierIdLu(debut - 1);
+        }
+    }
+
+    // Same coverage as the Notification.curseurLecture formula
+    private boolean couvre(NotificationReadCursor.Key key, Notification notification) {
+        return switch (key.getScope()) {
+            case NotificationReadCursor.EMPLOYE ->
+                    notification.getEmploye() != null && key.getScopeId().equals(notification.getEmploye().getId());
+            case NotificationReadCursor.CHAUFFEUR ->
+                    notification.getChauffeur() != null && key.getScopeId().equals(notification.getChauffeur().getId());
+            case NotificationReadCursor.ADMIN ->
+                    notification.getAdmin() != null && key.getScopeId().equals(notification.getAdmin().getId());
+            default -> false;
+        };
+    }
+}
@@ -1,25 +1,78 @@
 package ma.formation.jdbc.application.service;
 
 import ma.formation.jdbc.application.model.Notification;
+import ma.formation.jdbc.application.model.NotificationReadCursor;
+import ma.formation.jdbc.application.dto.NotificationDTO;
+import ma.formation.jdbc.application.dto.NotificationPageDTO;
 import ma.formation.jdbc.application.dto.NotificationResponseDTO;
+import ma.formation.jdbc.application.repository.NotificationArchiveRepository;
 import ma.formation.jdbc.application.repository.NotificationRepository;
+import ma.formation.jdbc.application.service.NotificationCountCache.Compteur;
+import ma.formation.jdbc.application.service.NotificationPushService.Destinataire;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.List;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class NotificationService {
+    public static final int DEFAULT_FEED_SIZE = 50;
+    public static final int MAX_FEED_SIZE = 200;
+
     @Autowired
     private NotificationRepository notificationRepository;
 
+    @Autowired
+    private NotificationOutboxService notificationOutboxService;
+
+    @Autowired
+    private NotificationPushService notificationPushService;
+
+    @Autowired
+    private NotificationReadCursorService readCursorService;
+
+    @Autowired
+    private NotificationCountCache countCache;
+
+    @Autowired
+    private NotificationArchiveRepository archiveRepository;
+
+    @Autowired
+    private RecipientVersionService recipientVersionService;
+
+    @Autowired
+    private AdminRecipientRegistry adminRecipientRegistry;
+
     @Transactional
     public Notification creerNotification(Notification notification) {
         return notificationRepository.save(notification);
     }
 
-    public List<Notification> getNotificationsNonLues(Long employeId) {
+    // Written to the outbox with the caller's transaction, inserted and pushed after it commits
+    public void publier(Notification notification) {
+        notificationOutboxService.publier(notification);
+    }
+
+    public void publierTous(List<Notification> notifications) {
+        notificationOutboxService.publierTous(notifications);
+    }
+
+    /**
+     * Queues a copy of the notification for each admin, so each has their own inbox, stream and read
+     * state. The copies go to the outbox in one JDBC batch; nothing is queued while there is no admin.
+     */
+    public void publierPourAdmins(Notification notification) {
+        notificationOutboxService.publierPourAdmins(notification, adminRecipientRegistry.getAdminIds());
+    }
+
+    public List<NotificationDTO> getNotificationsNonLues(Long employeId) {
         return notificationRepository.findByEmployeIdAndLueFalse(employeId);
     }
 
@@ -31,18 +84,43 @@ public class NotificationService {
         notificationRepository.save(notification);
     }
 
-    public List<Notification> getHistoriqueNotifications(Long employeId) {
-        return notificationRepository.findByEmployeId(employeId);
+    // First page of the employee feed
+    public List<NotificationDTO> getHistoriqueNotifications(Long employeId) {
+        return getEmployeeFeed(employeId, null, null, null, null, null).getNotifications();
+    }
+
+    // Get the newest notifications of an employee (first page of the feed)
+    public List<NotificationDTO> getNotificationsByEmployeId(Long employeId) {
+        return getEmployeeFeed(employeId, null, null, null, null, null).getNotifications();
+    }
+
+    // Keyset-paginated feeds on (dateEnvoi, id), newest first: a first page, the page before the last row
+    // of a previous one (before*), or what arrived since its first row (after*)
+    @Transactional(readOnly = true)
+    public NotificationPageDTO<NotificationDTO> getEmployeeFeed(Long employeId, LocalDateTime beforeDate, Long beforeId,
+                                                                LocalDateTime afterDate, Long afterId, Integer size) {
+        return feed(employeId, null, null, null, beforeDate, beforeId, afterDate, afterId, size);
+    }
+
+    @Transactional(readOnly = true)
+    public NotificationPageDTO<NotificationResponseDTO> getChauffeurFeed(Long chauffeurId, LocalDateTime beforeDate,
+                                                                         Long beforeId, LocalDateTime afterDate,
+                                                                         Long afterId, Integer size) {
+        return feedPage(beforeDate, beforeId, afterDate, afterId, size,
+                (date, id, page) -> notificationRepository.findResponseFeedPage(null, chauffeurId, null, null, date, id, page),
+                (date, id, page) -> notificationRepository.findResponseFeedAfter(null, chauffeurId, null, null, date, id, page),
+                NotificationResponseDTO::getDateEnvoi, NotificationResponseDTO::getId);
     }
 
-    // Get all notifications for an employee (ordered by date desc)
-    public List<Notification> getNotificationsByEmployeId(Long employeId) {
-        return notificationRepository.findByEmployeIdOrderByDateEnvoiDesc(employeId);
+    @Transactional(readOnly = true)
+    public NotificationPageDTO<NotificationDTO> getAdminFeed(Long adminId, LocalDateTime beforeDate, Long beforeId,
+                                                             LocalDateTime afterDate, Long afterId, Integer size) {
+        return feed(null, null, adminId, null, beforeDate, beforeId, afterDate, afterId, size);
     }
 
     // Get unread notifications count for an employee
     public Long getUnreadNotificationsCount(Long employeId) {
-        return notificationRepository.countByEmployeIdAndLueFalse(employeId);
+        return countCache.nonLues(Compteur.employe(employeId));
     }
 
     // Mark notification as read
@@ -54,14 +132,59 @@ public class NotificationService {
         notificationRepository.save(notification);
     }
 
-    // Mark all notifications as read for an employee
+    // Mark all notifications as read for an employee by moving their read cursor (see NotificationReadCursor);
+    // returns the number of notifications that were unread
+    @Transactional
+    public int markAllAsRead(Long employeId) {
+        NotificationReadCursor cursor = readCursorService.verrouiller(NotificationReadCursor.EMPLOYE, employeId);
+        int updated = notificationRepository.countByEmployeIdAndLueFalse(employeId).intValue();
+        readCursorService.avancer(cursor, notificationRepository.findMaxIdByEmployeId(employeId));
+        nonLuesModifiees(updated, () -> countCache.remettreAZero(Compteur.employe(employeId)), Set.of(Destinataire.employe(employeId)));
+        return updated;
+    }
+
+    @Transactional
+    public int markAllChauffeurAsRead(Long chauffeurId) {
+        NotificationReadCursor cursor = readCursorService.verrouiller(NotificationReadCursor.CHAUFFEUR, chauffeurId);
+        int updated = notificationRepository.countByChauffeurIdAndLueFalse(chauffeurId).intValue();
+        readCursorService.avancer(cursor, notificationRepository.findMaxIdByChauffeurId(chauffeurId));
+        nonLuesModifiees(updated, () -> countCache.remettreAZero(Compteur.chauffeur(chauffeurId)), Set.of(Destinataire.chauffeur(chauffeurId)));
+        return updated;
+    }
+
+    @Transactional
+    public int markAllAdminAsRead(Long adminId) {
+        NotificationReadCursor cursor = readCursorService.verrouiller(NotificationReadCursor.ADMIN, adminId);
+        int updated = notificationRepository.countByAdminIdAndLueFalse(adminId).intValue();
+        readCursorService.avancer(cursor, notificationRepository.findMaxIdByAdminId(adminId));
+        nonLuesModifiees(updated, () -> countCache.remettreAZero(Compteur.admin(adminId)), Set.of(Destinataire.admin(adminId)));
+        return updated;
+    }
+
+    // Mark the given notifications as read, whoever they belong to; unknown or already read ids are ignored
     @Transactional
-    public void markAllAsRead(Long employeId) {
-        List<Notification> unreadNotifications = notificationRepository.findByEmployeIdAndLueFalse(employeId);
-        for (Notification notification : unreadNotifications) {
-            notification.setLue(true);
+    public int markAsRead(Collection<Long> notificationIds) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return 0;
         }
-        notificationRepository.saveAll(unreadNotifications);
+        Set<Destinataire> destinataires = new HashSet<>();
+        List<Object[]> rows = notificationRepository.findUnreadRecipientsByIdIn(notificationIds);
+        long attendues = 0;
+        for (Object[] row : rows) {
+            destinataires.addAll(NotificationPushService.destinataires((Long) row[0], (Long) row[1], (Long) row[2]));
+            attendues += (Long) row[3];
+        }
+        int updated = notificationRepository.markReadByIds(notificationIds);
+        // A concurrent read changed the rows between the two statements: the per-recipient split is unknown
+        boolean exact = updated == attendues;
+        nonLuesModifiees(updated, () -> rows.forEach(row -> {
+            if (exact) {
+                countCache.ajuster((Long) row[0], (Long) row[1], (Long) row[2], -(Long) row[3]);
+            } else {
+                countCache.invalider((Long) row[0], (Long) row[1], (Long) row[2]);
+            }
+        }), destinataires);
+        return updated;
     }
 
     // Delete notification
@@ -71,67 +194,129 @@ public class NotificationService {
     }
 
     // Get recent notifications (limited number)
-    public List<Notification> getRecentNotifications(Long employeId, int limit) {
-        return notificationRepository.findTopByEmployeIdOrderByDateEnvoiDesc(employeId, limit);
+    public List<NotificationDTO> getRecentNotifications(Long employeId, int limit) {
+        return getEmployeeFeed(employeId, null, null, null, null, limit).getNotifications();
     }
 
     // Admin notification methods
-    public List<Notification> getNotificationsByAdminId(Long adminId) {
-        return notificationRepository.findByAdminIdOrderByDateEnvoiDesc(adminId);
+    public List<NotificationDTO> getNotificationsByAdminId(Long adminId) {
+        return getAdminFeed(adminId, null, null, null, null, null).getNotifications();
     }
 
     public Long getUnreadNotificationsCountByAdminId(Long adminId) {
-        return notificationRepository.countByAdminIdAndLueFalse(adminId);
+        return countCache.nonLues(Compteur.admin(adminId));
     }
 
     // Chauffeur notification methods
     public List<NotificationResponseDTO> getNotificationsByChauffeurId(Long chauffeurId) {
-        List<Notification> notifications = notificationRepository.findByChauffeurIdOrderByDateEnvoiDesc(chauffeurId);
-        return notifications.stream()
-                .map(NotificationResponseDTO::new)
-                .collect(Collectors.toList());
+        return getChauffeurFeed(chauffeurId, null, null, null, null, null).getNotifications();
     }
 
     public Long getUnreadNotificationsCountByChauffeurId(Long chauffeurId) {
-        return notificationRepository.countByChauffeurIdAndLueFalse(chauffeurId);
+        return countCache.nonLues(Compteur.chauffeur(chauffeurId));
     }
 
-    // Admin notification methods
-    public List<Notification> getAllNotifications() {
-        return notificationRepository.findAllByOrderByDateEnvoiDesc();
+    // Archived notifications of an employee, newest first (see NotificationArchiveService)
+    @Transactional(readOnly = true)
+    public NotificationPageDTO<NotificationDTO> getArchivesNotifications(Long employeId, LocalDateTime beforeDate,
+                                                                         Long beforeId, Integer size) {
+        if ((beforeDate == null) != (beforeId == null)) {
+            throw new RuntimeException("Le curseur doit contenir la date et l'id");
+        }
+        int pageSize = size == null ? DEFAULT_FEED_SIZE : Math.max(1, Math.min(size, MAX_FEED_SIZE));
+        List<NotificationDTO> notifications = archiveRepository.findPageByEmployeId(employeId, beforeDate, beforeId,
+                PageRequest.of(0, pageSize + 1));
+        boolean hasMore = notifications.size() > pageSize;
+        List<NotificationDTO> page = hasMore ? notifications.subList(0, pageSize) : notifications;
+
+        NotificationPageDTO<NotificationDTO> dto = new NotificationPageDTO<>(page, pageSize, hasMore);
+        if (!page.isEmpty()) {
+            dto.setNewestDate(page.get(0).getDateEnvoi());
+            dto.setNewestId(page.get(0).getId());
+            if (hasMore) {
+                dto.setNextBeforeDate(page.get(page.size() - 1).getDateEnvoi());
+                dto.setNextBeforeId(page.get(page.size() - 1).getId());
+            }
+        }
+        return dto;
     }
 
-    // Admin-specific methods for leave requests only
-    public List<Notification> getAdminLeaveRequestNotifications() {
-        // Only return leave request notifications (DEMANDE_CONGE type)
-        return notificationRepository.findByTypeOrderByDateEnvoiDesc("DEMANDE_CONGE");
+    // One feed page in the list view; the recipient filters that are null are not applied
+    private NotificationPageDTO<NotificationDTO> feed(Long employeId, Long chauffeurId, Long adminId, String type,
+                                                      LocalDateTime beforeDate, Long beforeId,
+                                                      LocalDateTime afterDate, Long afterId, Integer size) {
+        return feedPage(beforeDate, beforeId, afterDate, afterId, size,
+                (date, id, page) -> notificationRepository.findFeedPage(employeId, chauffeurId, adminId, type, date, id, page),
+                (date, id, page) -> notificationRepository.findFeedAfter(employeId, chauffeurId, adminId, type, date, id, page),
+                NotificationDTO::getDateEnvoi, NotificationDTO::getId);
     }
 
-    public Long getAdminUnreadLeaveRequestCount() {
-        // Count only unread leave request notifications
-        return notificationRepository.countByTypeAndLueFalse("DEMANDE_CONGE");
+    // Reads the rows before a cursor (null: the first page) or after one
+    private interface FeedQuery<T> {
+        List<T> find(LocalDateTime date, Long id, Pageable pageable);
     }
 
-    public void markAllAdminLeaveRequestsAsRead() {
-        // Mark only leave request notifications as read
-        List<Notification> unreadLeaveRequests = notificationRepository.findByTypeAndLueFalse("DEMANDE_CONGE");
-        for (Notification notification : unreadLeaveRequests) {
-            notification.setLue(true);
-            notificationRepository.save(notification);
+    private <T> NotificationPageDTO<T> feedPage(LocalDateTime beforeDate, Long beforeId,
+                                                LocalDateTime afterDate, Long afterId, Integer size,
+                                                FeedQuery<T> avant, FeedQuery<T> apres,
+                                                Function<T, LocalDateTime> dateEnvoi, Function<T, Long> id) {
+        if ((beforeDate == null) != (beforeId == null) || (afterDate == null) != (afterId == null)) {
+            throw new RuntimeException("Le curseur doit contenir la date et l'id");
+        }
+        if (beforeDate != null && afterDate != null) {
+            throw new RuntimeException("Le curseur doit être before ou after, pas les deux");
+        }
+        int pageSize = size == null ? DEFAULT_FEED_SIZE : Math.max(1, Math.min(size, MAX_FEED_SIZE));
+
+        // Fetch one extra row to know whether another page exists
+        List<T> notifications;
+        if (afterDate != null) {
+            notifications = new ArrayList<>(apres.find(afterDate, afterId, PageRequest.of(0, pageSize + 1)));
+        } else {
+            notifications = avant.find(beforeDate, beforeId, PageRequest.of(0, pageSize + 1));
+        }
+        boolean hasMore = notifications.size() > pageSize;
+        List<T> page = hasMore ? notifications.subList(0, pageSize) : notifications;
+        if (afterDate != null) {
+            // Read oldest first so the page joins up with the cursor; shown newest first like the others
+            Collections.reverse(page);
+        }
+
+        NotificationPageDTO<T> dto = new NotificationPageDTO<>(new ArrayList<>(page), pageSize, hasMore);
+        if (!page.isEmpty()) {
+            dto.setNewestDate(dateEnvoi.apply(page.get(0)));
+            dto.setNewestId(id.apply(page.get(0)));
+            if (hasMore && afterDate == null) {
+                T last = page.get(page.size() - 1);
+                dto.setNextBeforeDate(dateEnvoi.apply(last));
+                dto.setNextBeforeId(id.apply(last));
+            }
         }
+        return dto;
     }
 
-    public Long getAdminUnreadNotificationsCount() {
-        // For admin, we might want to count all unread notifications or filter by admin-relevant types
-        return notificationRepository.countByLueFalse();
+    // Bulk updates bypass the entity write listener: once they are committed, move the cached unread counts
+    // (before the streams and pollers read them), then the recipients' versions, and refresh the streams
+    private void nonLuesModifiees(int updated, Runnable comptes, Set<Destinataire> destinataires) {
+        if (updated > 0) {
+            afterCommit(() -> {
+                comptes.run();
+                recipientVersionService.changed(destinataires);
+                destinataires.forEach(notificationPushService::unreadCountChanged);
+            });
+        }
     }
 
-    public void markAllAdminNotificationsAsRead() {
-        // Mark all notifications as read (you might want to filter by admin-relevant types)
-        List<Notification> unreadNotifications = notificationRepository.findByLueFalse();
-        for (Notification notification : unreadNotifications) {
-            notification.setLue(true);
-            notificationRepository.save(notification);
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
     }
 }
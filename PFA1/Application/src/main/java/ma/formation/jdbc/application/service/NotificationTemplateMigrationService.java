@@ -0,0 +1,101 @@
+package ma.formation.jdbc.application.service;
+
+import jakarta.annotation.PreDestroy;
+import ma.formation.jdbc.application.model.NotificationTemplates;
+import ma.formation.jdbc.application.repository.NotificationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves notifications written before templates from their stored text to a template and its parameters
+ * (see NotificationTemplates). A text is only moved when a template of its type renders it back exactly;
+ * the others keep their text. Works in ascending id chunks (see ChunkedJob).
+ */
+@Service
+public class NotificationTemplateMigrationService {
+    private static final Logger log = LoggerFactory.getLogger(NotificationTemplateMigrationService.class);
+
+    // Templates each notification type was written with
+    private static final Map<String, List<String>> MODELES_PAR_TYPE = Map.of(
+            "MISSION_ASSIGNEE", List.of(NotificationTemplates.MISSION_ASSIGNEE_ADMIN,
+                    NotificationTemplates.MISSION_ASSIGNEE_CHAUFFEUR, NotificationTemplates.MISSION_ASSIGNEE_DISPATCH),
+            "MISSION_ACCEPTEE", List.of(NotificationTemplates.MISSION_ACCEPTEE),
+            "MISSION_COMMENCEE", List.of(NotificationTemplates.MISSION_COMMENCEE,
+                    NotificationTemplates.MISSION_ACCEPTEE_COMMENCEE),
+            "MISSION_TERMINEE", List.of(NotificationTemplates.MISSION_TERMINEE),
+            "MISSION_REFUSEE", List.of(NotificationTemplates.MISSION_REFUSEE),
+            "MISSION_PROBLEME", List.of(NotificationTemplates.MISSION_ABANDONNEE, NotificationTemplates.MISSION_PROBLEME),
+            "CONGE_ACCEPTE", List.of(NotificationTemplates.CONGE_ACCEPTE),
+            "CONGE_REFUSE", List.of(NotificationTemplates.CONGE_REFUSE, NotificationTemplates.CONGE_REFUSE_RAISON),
+            "DEMANDE_CONGE", List.of(NotificationTemplates.DEMANDE_CONGE));
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Value("${notifications.templates.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notifications.templates.migration.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${notifications.templates.migration.pause-ms:200}")
+    private long pauseMs;
+
+    private final ChunkedJob job;
+
+    public NotificationTemplateMigrationService(PlatformTransactionManager transactionManager) {
+        this.job = new ChunkedJob(transactionManager, () -> chunkSize, () -> pauseMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        job.stop();
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.templates.migration.delay-ms:86400000}",
+               initialDelayString = "${notifications.templates.migration.initial-delay-ms:60000}")
+    public void migrerPeriodiquement() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            migrer();
+        } catch (RuntimeException e) {
+            log.error("Notification template migration failed", e);
+        }
+    }
+
+    /** Moves the stored texts that match a template; returns how many were moved. */
+    public int migrer() {
+        long start = System.currentTimeMillis();
+        int migrees = job.run(notificationRepository::findTextesAMigrer, ligne -> (Long) ligne[0], chunk -> {
+            int deplacees = 0;
+            for (Object[] ligne : chunk) {
+                deplacees += migrer((Long) ligne[0], (String) ligne[1], (String) ligne[2]);
+            }
+            return deplacees;
+        });
+
+        if (migrees > 0) {
+            log.info("Moved {} notification texts to templates in {} ms", migrees, System.currentTimeMillis() - start);
+        }
+        return migrees;
+    }
+
+    private int migrer(Long id, String type, String texte) {
+        for (String modele : MODELES_PAR_TYPE.getOrDefault(type, List.of())) {
+            String parametres = NotificationTemplates.parametresDe(modele, texte);
+            if (parametres != null && parametres.length() <= NotificationTemplates.PARAMETRES_MAX) {
+                return notificationRepository.migrerVersModele(id, modele, parametres);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,71 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.service.NotificationPushService.Destinataire;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of what each recipient's polled screens show (notification lists, unread counts, dashboard
+ * stats), used as the ETag of those endpoints: a poll whose {@code If-None-Match} still matches gets a
+ * 304 before any query runs. A version moves once a write that can change those screens has committed:
+ * a notification created, read or deleted, a mission counted for the recipient, and for the admin any
+ * change behind the admin dashboard. The ETag also carries a server epoch, so versions from before a
+ * restart or from another instance never match.
+ */
+@Service
+public class RecipientVersionService {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // Moved by changes that concern every recipient (e.g. an archival pass)
+    private final AtomicLong global = new AtomicLong();
+
+    // A recipient without an entry is at version 0
+    private final Map<Destinataire, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /** Current ETag of {@code destinataire}'s screens; read it before querying what it covers. */
+    public String etag(Destinataire destinataire) {
+        AtomicLong version = versions.get(destinataire);
+        return "\"" + epoch + "-" + global.get() + "-" + (version != null ? version.get() : 0) + "\"";
+    }
+
+    /** Moves the version of {@code destinataire}; call it once the change is committed. */
+    public void changed(Destinataire destinataire) {
+        versions.computeIfAbsent(destinataire, d -> new AtomicLong()).incrementAndGet();
+    }
+
+    public void changed(Collection<Destinataire> destinataires) {
+        destinataires.forEach(this::changed);
+    }
+
+    public void allChanged() {
+        global.incrementAndGet();
+    }
+
+    /** Moves the versions once the current transaction commits, or now outside of one. */
+    public void changedAfterCommit(Collection<Destinataire> destinataires) {
+        afterCommit(() -> changed(destinataires));
+    }
+
+    public void allChangedAfterCommit() {
+        afterCommit(this::allChanged);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
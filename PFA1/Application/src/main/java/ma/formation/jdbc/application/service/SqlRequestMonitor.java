@@ -0,0 +1,183 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.dto.SqlEndpointStatsDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL statements and JDBC time of each HTTP request, by endpoint. The request filter
+ * ({@link ma.formation.jdbc.application.config.SqlRequestFilter}) opens a measure on the request thread and
+ * closes it with the handler method; the data source wrapper
+ * ({@link ma.formation.jdbc.application.config.SqlMonitoringDataSource}) adds every statement executed on
+ * that thread in between. Statements of other threads (outbox workers, schedulers, parallel dispatch) are
+ * not counted.
+ * <p>
+ * A request is logged and flagged when it goes over the statement or JDBC time budget, or when it executes
+ * the same statement {@code max-repetitions} times or more: the same SQL with other parameters, run in a
+ * loop, is what an N+1 looks like. A JDBC batch counts once. Counts and durations go to fixed-bucket
+ * histograms per endpoint; a measure costs a map update per statement and a few atomic adds per request.
+ */
+@Service
+public class SqlRequestMonitor {
+    private static final Logger log = LoggerFactory.getLogger(SqlRequestMonitor.class);
+
+    // Upper bounds of the histogram buckets; the last bucket takes everything above
+    private static final long[] LIMITES_STATEMENTS = {1, 2, 5, 10, 20, 50, 100};
+    private static final long[] LIMITES_MS = {1, 5, 10, 25, 50, 100, 250, 500, 1000};
+
+    private static final int SQL_MAX = 300;
+
+    private final ThreadLocal<Mesure> mesures = new ThreadLocal<>();
+    private final Map<String, Statistiques> statistiques = new ConcurrentHashMap<>();
+
+    @Value("${sql.monitoring.max-statements:30}")
+    private int maxStatements;
+
+    @Value("${sql.monitoring.max-jdbc-ms:500}")
+    private long maxJdbcMs;
+
+    @Value("${sql.monitoring.max-repetitions:10}")
+    private int maxRepetitions;
+
+    // Statements run by the request on this thread so far, with how many times each SQL text ran
+    private static final class Mesure {
+        private int statements;
+        private long nanos;
+        private final Map<String, Integer> repetitions = new HashMap<>();
+    }
+
+    private static final class Statistiques {
+        private final String handler;
+        private final LongAdder requetes = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator statementsMax = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator nanosMax = new LongAccumulator(Math::max, 0);
+        private final LongAdder horsBudget = new LongAdder();
+        private final LongAdder nPlusUn = new LongAdder();
+        private final AtomicLongArray histogrammeStatements = new AtomicLongArray(LIMITES_STATEMENTS.length + 1);
+        private final AtomicLongArray histogrammeMs = new AtomicLongArray(LIMITES_MS.length + 1);
+        private volatile String dernierStatementRepete;
+
+        private Statistiques(String handler) {
+            this.handler = handler;
+        }
+    }
+
+    public void debuter() {
+        mesures.set(new Mesure());
+    }
+
+    /** Whether statements run on this thread are being measured. */
+    public boolean actif() {
+        return mesures.get() != null;
+    }
+
+    public void enregistrer(String sql, long nanos) {
+        Mesure mesure = mesures.get();
+        if (mesure == null) {
+            return;
+        }
+        mesure.statements++;
+        mesure.nanos += nanos;
+        mesure.repetitions.merge(sql, 1, Integer::sum);
+    }
+
+    /**
+     * Closes the measure of this thread and adds it to {@code endpoint} (method and path pattern).
+     * {@code handler} names the controller method, or is null when no handler matched.
+     */
+    public void terminer(String endpoint, String handler) {
+        Mesure mesure = mesures.get();
+        mesures.remove();
+        if (mesure == null) {
+            return;
+        }
+        Statistiques stats = statistiques.computeIfAbsent(endpoint, cle -> new Statistiques(handler));
+        long ms = TimeUnit.NANOSECONDS.toMillis(mesure.nanos);
+        stats.requetes.increment();
+        stats.statements.add(mesure.statements);
+        stats.nanos.add(mesure.nanos);
+        stats.statementsMax.accumulate(mesure.statements);
+        stats.nanosMax.accumulate(mesure.nanos);
+        stats.histogrammeStatements.incrementAndGet(bucket(LIMITES_STATEMENTS, mesure.statements));
+        stats.histogrammeMs.incrementAndGet(bucket(LIMITES_MS, ms));
+
+        if (mesure.statements > maxStatements || ms > maxJdbcMs) {
+            stats.horsBudget.increment();
+            log.warn("{} ran {} SQL statements in {} ms of JDBC time (budget {} statements, {} ms)",
+                    endpoint, mesure.statements, ms, maxStatements, maxJdbcMs);
+        }
+        Map.Entry<String, Integer> plusRepete = mesure.repetitions.entrySet().stream()
+                .max(Map.Entry.comparingByValue()).orElse(null);
+        if (plusRepete != null && plusRepete.getValue() >= maxRepetitions) {
+            String sql = plusRepete.getKey().length() > SQL_MAX ? plusRepete.getKey().substring(0, SQL_MAX) + "..." : plusRepete.getKey();
+            stats.nPlusUn.increment();
+            stats.dernierStatementRepete = sql;
+            log.warn("{} ran the same SQL statement {} times, likely an N+1: {}", endpoint, plusRepete.getValue(), sql);
+        }
+    }
+
+    /** Endpoints by total JDBC time, highest first. */
+    public List<SqlEndpointStatsDTO> getStats() {
+        return statistiques.entrySet().stream()
+                .map(entry -> toDTO(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(SqlEndpointStatsDTO::getJdbcMsTotal).reversed())
+                .toList();
+    }
+
+    public void reinitialiser() {
+        statistiques.clear();
+    }
+
+    private SqlEndpointStatsDTO toDTO(String endpoint, Statistiques stats) {
+        SqlEndpointStatsDTO dto = new SqlEndpointStatsDTO();
+        dto.setEndpoint(endpoint);
+        dto.setHandler(stats.handler);
+        long requetes = stats.requetes.sum();
+        dto.setRequetes(requetes);
+        dto.setStatementsTotal(stats.statements.sum());
+        dto.setStatementsMoyenne(requetes == 0 ? 0 : (double) dto.getStatementsTotal() / requetes);
+        dto.setStatementsMax(stats.statementsMax.get());
+        dto.setJdbcMsTotal(stats.nanos.sum() / 1_000_000.0);
+        dto.setJdbcMsMoyenne(requetes == 0 ? 0 : dto.getJdbcMsTotal() / requetes);
+        dto.setJdbcMsMax(stats.nanosMax.get() / 1_000_000.0);
+        dto.setHorsBudget(stats.horsBudget.sum());
+        dto.setRequetesNPlusUn(stats.nPlusUn.sum());
+        dto.setDernierStatementRepete(stats.dernierStatementRepete);
+        dto.setHistogrammeStatements(histogramme(LIMITES_STATEMENTS, stats.histogrammeStatements));
+        dto.setHistogrammeJdbcMs(histogramme(LIMITES_MS, stats.histogrammeMs));
+        return dto;
+    }
+
+    private static int bucket(long[] limites, long valeur) {
+        int i = 0;
+        while (i < limites.length && valeur > limites[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    // Buckets by upper bound ("<=5"), the last one open (">100")
+    private static Map<String, Long> histogramme(long[] limites, AtomicLongArray compteurs) {
+        Map<String, Long> histogramme = new LinkedHashMap<>();
+        for (int i = 0; i < limites.length; i++) {
+            histogramme.put("<=" + limites[i], compteurs.get(i));
+        }
+        histogramme.put(">" + limites[limites.length - 1], compteurs.get(limites.length));
+        return histogramme;
+    }
+}
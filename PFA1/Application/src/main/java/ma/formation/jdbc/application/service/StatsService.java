@@ -0,0 +1,90 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.model.Mission;
+import ma.formation.jdbc.application.model.MissionCounter;
+import ma.formation.jdbc.application.repository.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+@Service
+public class StatsService {
+    @Autowired
+    private MissionCounterService missionCounterService;
+
+    @Autowired
+    private ChauffeurRepository chauffeurRepository;
+
+    @Autowired
+    private EmployeRepository employeRepository;
+
+    @Autowired
+    private VehiculeRepository vehiculeRepository;
+
+    @Autowired
+    private NotificationCountCache notificationCountCache;
+
+    // Admin dashboard: global mission counts plus entity totals
+    @Transactional(readOnly = true)
+    public Map<String, Object> getAdminStats() {
+        Map<Mission.EtatMission, Long> counts = toCounts(missionCounterService.getGlobal());
+
+        Object[] vehicules = vehiculeRepository.countTotalAndDisponible().get(0);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalMissions", total(counts));
+        stats.put("totalChauffeurs", chauffeurRepository.count());
+        stats.put("totalVehicules", ((Number) vehicules[0]).longValue());
+        stats.put("totalEmployes", employeRepository.count());
+        stats.put("availableVehicules", ((Number) vehicules[1]).longValue());
+        stats.put("activeMissions", counts.get(Mission.EtatMission.COMMENCEE) + counts.get(Mission.EtatMission.EN_COURS));
+        return stats;
+    }
+
+    // Driver dashboard
+    @Transactional(readOnly = true)
+    public Map<String, Object> getChauffeurStats(Long chauffeurId) {
+        Map<Mission.EtatMission, Long> counts = toCounts(missionCounterService.getForChauffeur(chauffeurId));
+        Map<String, Object> stats = missionStats(counts);
+
+        // Calculate success rate
+        long totalMissions = total(counts);
+        double successRate = totalMissions > 0 ? (double) counts.get(Mission.EtatMission.TERMINEE) / totalMissions * 100 : 0;
+        stats.put("successRate", Math.round(successRate));
+        return stats;
+    }
+
+    // Employee dashboard
+    @Transactional(readOnly = true)
+    public Map<String, Object> getEmployeStats(Long employeId) {
+        Map<Mission.EtatMission, Long> counts = toCounts(missionCounterService.getForEmploye(employeId));
+        Map<String, Object> stats = missionStats(counts);
+        stats.put("unreadNotifications", notificationCountCache.nonLues(NotificationCountCache.Compteur.employe(employeId)));
+        return stats;
+    }
+
+    private Map<String, Object> missionStats(Map<Mission.EtatMission, Long> counts) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalMissions", total(counts));
+        stats.put("activeMissions", counts.get(Mission.EtatMission.COMMENCEE));
+        stats.put("pendingMissions", counts.get(Mission.EtatMission.EN_ATTENTE));
+        stats.put("completedMissions", counts.get(Mission.EtatMission.TERMINEE));
+        stats.put("refusedMissions", counts.get(Mission.EtatMission.REFUSEE));
+        return stats;
+    }
+
+    private Map<Mission.EtatMission, Long> toCounts(MissionCounter counter) {
+        Map<Mission.EtatMission, Long> counts = new EnumMap<>(Mission.EtatMission.class);
+        for (Mission.EtatMission etat : Mission.EtatMission.values()) {
+            counts.put(etat, counter.get(etat));
+        }
+        return counts;
+    }
+
+    private long total(Map<Mission.EtatMission, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
@@ -5,6 +5,7 @@ import ma.formation.jdbc.application.repository.VehiculeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,6 +16,12 @@ public class VehicleService {
     @Autowired
     private VehiculeRepository vehiculeRepository;
 
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private RecipientVersionService recipientVersionService;
+
     @PreAuthorize("hasRole('ADMIN')")
     public Vehicule createVehicle(Vehicule vehicle) {
         Vehicule existingVehicle = vehiculeRepository.findByImmatriculation(vehicle.getImmatriculation());
@@ -54,6 +61,17 @@ public class VehicleService {
         return vehiculeRepository.findAll();
     }
 
+    // With the driver each vehicle is assigned to, for the fleet view
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<Vehicule> getAllVehiclesWithChauffeur() {
+        return vehiculeRepository.findAllWithChauffeur();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public long countVehicles() {
+        return vehiculeRepository.count();
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     public Vehicule getVehicleById(Long id) {
         return vehiculeRepository.findById(id)
@@ -70,28 +88,40 @@ public class VehicleService {
     /**
      * Mark vehicle as unavailable (when assigned to a mission)
      */
+    @Transactional
     public void markVehicleAsUnavailable(Long vehicleId) {
-        Vehicule vehicule = getVehicleById(vehicleId);
-        vehicule.setDisponible(false);
-        vehiculeRepository.save(vehicule);
+        setDisponible(vehicleId, false);
     }
     
     /**
      * Mark vehicle as available (when mission is completed or cancelled)
      */
+    @Transactional
     public void markVehicleAsAvailable(Long vehicleId) {
-        Vehicule vehicule = getVehicleById(vehicleId);
-        vehicule.setDisponible(true);
-        vehiculeRepository.save(vehicule);
+        setDisponible(vehicleId, true);
     }
     
     /**
-     * Check if vehicle is available
+     * Check if vehicle is available, answered by the availability index when it knows the vehicle
      */
     public boolean isVehicleAvailable(Long vehicleId) {
+        Boolean disponible = availabilityIndex.isVehiculeDisponible(vehicleId);
+        if (disponible != null) {
+            return disponible;
+        }
         Vehicule vehicule = getVehicleById(vehicleId);
         return vehicule.isDisponible();
     }
+
+    // Single UPDATE without loading the vehicle; the index and the admin dashboard version follow once the
+    // transaction commits, as the entity write listener does not see bulk updates
+    private void setDisponible(Long vehicleId, boolean disponible) {
+        if (vehiculeRepository.updateDisponible(vehicleId, disponible) == 0) {
+            throw new RuntimeException("Vehicle not found");
+        }
+        availabilityIndex.afterCommit(() -> availabilityIndex.vehiculeWritten(vehicleId, disponible));
+        recipientVersionService.changedAfterCommit(List.of(NotificationPushService.Destinataire.ADMIN));
+    }
     
     /**
      * Get count of available vehicles
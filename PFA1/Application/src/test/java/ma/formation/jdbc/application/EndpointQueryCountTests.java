@@ -0,0 +1,543 @@
+package ma.formation.jdbc.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.formation.jdbc.application.dto.SqlEndpointStatsDTO;
+import ma.formation.jdbc.application.model.*;
+import ma.formation.jdbc.application.repository.*;
+import ma.formation.jdbc.application.service.MissionCounterService;
+import ma.formation.jdbc.application.service.SqlRequestMonitor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Upper bound on the SQL statements each REST endpoint runs, on H2 with a seeded dataset. The bounds do
+ * not depend on how many rows the dataset holds or how many items a bulk request carries, so an endpoint
+ * that loads or writes related rows one by one (N+1) goes over its bound and fails the build. Statements
+ * are counted on the request thread only, by the runtime monitor (see SqlRequestMonitor): asynchronous
+ * delivery to the outbox workers and event streams is not counted.
+ *
+ * Write endpoints act on rows created for them just before the request, so the tests do not depend on
+ * the order they run in.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EndpointQueryCountTests {
+    private static final int EMPLOYES = 4;
+    private static final int CHAUFFEURS = 6;
+    private static final int VEHICULES = 8;
+    private static final int MISSIONS = 60;
+    private static final int CONGES = 6;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AdminRepository adminRepository;
+
+    @Autowired
+    private EmployeRepository employeRepository;
+
+    @Autowired
+    private ChauffeurRepository chauffeurRepository;
+
+    @Autowired
+    private VehiculeRepository vehiculeRepository;
+
+    @Autowired
+    private MissionRepository missionRepository;
+
+    @Autowired
+    private IndisponibiliteRepository indisponibiliteRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private MissionCounterService missionCounterService;
+
+    @Autowired
+    private SqlRequestMonitor sqlRequestMonitor;
+
+    private final MockHttpSession session = new MockHttpSession();
+
+    private Admin admin;
+
+    private final List<Employe> employes = new ArrayList<>();
+    private final List<Chauffeur> chauffeurs = new ArrayList<>();
+    private final List<Vehicule> vehicules = new ArrayList<>();
+    private final List<Mission> missions = new ArrayList<>();
+
+    // Distinct start days, so missions created for a test never overlap a driver's schedule
+    private int jours;
+    private int numero;
+
+    @BeforeAll
+    void seed() {
+        admin = new Admin();
+        admin.setNom("Admin");
+        admin.setPrenom("Principal");
+        admin.setTelephone("0600000000");
+        admin.setUser(user(UserRole.ADMIN));
+        admin = adminRepository.save(admin);
+
+        // Logged in as that admin, as AuthController does
+        SecurityContextImpl context = new SecurityContextImpl(new UsernamePasswordAuthenticationToken(
+                admin.getUser().getEmail(), null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, context);
+
+        for (int i = 0; i < VEHICULES; i++) {
+            vehicules.add(vehicule());
+        }
+        for (int i = 0; i < EMPLOYES; i++) {
+            employes.add(employe());
+        }
+        for (int i = 0; i < CHAUFFEURS; i++) {
+            Chauffeur chauffeur = chauffeur();
+            // Half the fleet has a driver of its own
+            if (i < VEHICULES / 2) {
+                chauffeur.setVehicule(vehicules.get(i));
+                chauffeurRepository.save(chauffeur);
+            }
+            chauffeurs.add(chauffeur);
+        }
+
+        Mission.EtatMission[] etats = Mission.EtatMission.values();
+        for (int i = 0; i < MISSIONS; i++) {
+            Mission.EtatMission etat = etats[i % etats.length];
+            // A quarter of the pending missions have no driver yet
+            Chauffeur chauffeur = etat == Mission.EtatMission.EN_ATTENTE && i % 4 == 0 ? null : chauffeurs.get(i % CHAUFFEURS);
+            Mission mission = mission(etat, employes.get(i % EMPLOYES), chauffeur, vehicules.get(i % VEHICULES));
+            if (i % 7 == 0 && chauffeur != null && etat == Mission.EtatMission.EN_ATTENTE) {
+                mission.setProbleme("Panne");
+                missionRepository.save(mission);
+            }
+            missions.add(mission);
+        }
+
+        for (int i = 0; i < CONGES; i++) {
+            conge(chauffeurs.get(i % CHAUFFEURS));
+        }
+
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < MISSIONS; i++) {
+            Mission mission = missions.get(i);
+            notifications.add(notification(mission.getEmploye(), null, mission, i % 3 == 0));
+            if (mission.getChauffeur() != null) {
+                notifications.add(notification(null, mission.getChauffeur(), mission, i % 2 == 0));
+            }
+        }
+        for (Indisponibilite conge : indisponibiliteRepository.findAll()) {
+            Notification notification = demandeConge();
+            notification.setIndisponibilite(conge);
+            notifications.add(notification);
+        }
+        notificationRepository.saveAll(notifications);
+
+        missionCounterService.reconcile();
+    }
+
+    @Test
+    void adminReads() throws Exception {
+        Long chauffeurId = chauffeurs.get(0).getId();
+        Long employeId = employes.get(0).getId();
+
+        expectAtMost(1, get("/api/admin/chauffeurs"));
+        expectAtMost(1, get("/api/admin/chauffeurs/{id}", chauffeurId));
+        expectAtMost(1, get("/api/admin/chauffeurs/count"));
+        expectAtMost(1, get("/api/admin/employes"));
+        expectAtMost(1, get("/api/admin/employes/{id}", employeId));
+        expectAtMost(1, get("/api/admin/employes/{id}/missions", employeId));
+        expectAtMost(1, get("/api/admin/employes/count"));
+        expectAtMost(1, get("/api/admin/vehicules"));
+        expectAtMost(1, get("/api/admin/vehicules/disponibles"));
+        expectAtMost(1, get("/api/admin/vehicules/count"));
+        expectAtMost(1, get("/api/admin/missions/en-attente"));
+        expectAtMost(1, get("/api/admin/missions/count"));
+        expectAtMost(1, get("/api/admin/missions").param("size", "20"));
+        expectAtMost(1, get("/api/admin/missions").param("etat", "TERMINEE").param("chauffeurId", chauffeurId.toString()));
+        expectAtMost(1, get("/api/admin/missions/{id}", missions.get(0).getId()));
+        expectAtMost(1, get("/api/admin/historique/chauffeur/{id}", chauffeurId));
+        expectAtMost(1, get("/api/admin/indisponibilites/non-acceptees"));
+        expectAtMost(1, get("/api/admin/demandes-conge"));
+        expectAtMost(4, get("/api/admin/dashboard/stats"));
+        expectAtMost(3, get("/api/admin/mission-form-data"));
+        expectAtMost(3, get("/api/admin/mission-form-data").param("dateHeure", "2030-06-01T10:00:00"));
+
+        expectAtMost(0, get("/api/admin/sql-stats"));
+    }
+
+    @Test
+    void adminWrites() throws Exception {
+        Chauffeur chauffeur = chauffeur();
+        Employe employe = employes.get(1);
+        Vehicule vehicule = vehicule();
+
+        expectAtMost(8, post("/api/admin/missions/{missionId}/chauffeur/{chauffeurId}",
+                mission(Mission.EtatMission.EN_ATTENTE, employe, null, null).getId(), chauffeur.getId()));
+        expectAtMost(5, post("/api/admin/indisponibilite/{id}/accepter", conge(chauffeur).getId()));
+        expectAtMost(9, post("/api/admin/demandes-conge/{id}/accepter", conge(chauffeur()).getId()));
+        expectAtMost(3, post("/api/admin/demandes-conge/{id}/refuser", conge(chauffeur).getId())
+                .contentType(MediaType.APPLICATION_JSON).content(json(Map.of("raison", "Effectif insuffisant"))));
+
+        expectAtMost(1, post("/api/admin/employe")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("nom", "Alami", "prenom", "Sara", "telephone", "0611111111"))));
+        expectAtMost(2, post("/api/admin/create-employe")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("nom", "Bennani", "prenom", "Omar", "telephone", "0622222222",
+                        "email", email(), "password", "secret"))));
+        expectAtMost(2, post("/api/admin/create-chauffeur")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("nom", "Idrissi", "prenom", "Youssef", "telephone", "0633333333",
+                        "email", email(), "password", "secret", "actif", true,
+                        "dateEmbauche", "2024-01-15T08:00:00"))));
+        expectAtMost(1, post("/api/admin/create-vehicule")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("immatriculation", "TEST-" + (++numero), "marque", "Renault",
+                        "modele", "Kangoo", "capacite", 600, "disponible", true))));
+
+        expectAtMost(9, post("/api/admin/create-mission")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(missionRequest(employe, chauffeur, vehicule))));
+        List<Map<String, Object>> lot = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            lot.add(missionRequest(employes.get(i % EMPLOYES), i % 2 == 0 ? chauffeur() : null, null));
+        }
+        // Missions, counters and notifications are written as JDBC batches: the count only grows by one per
+        // hibernate.jdbc.batch_size items. The drivers are locked and their schedules read once for the whole list
+        expectAtMost(7, post("/api/admin/create-missions")
+                .contentType(MediaType.APPLICATION_JSON).content(json(lot)));
+        // The chosen drivers are locked and re-checked once and the guarded assignments are one batch,
+        // however many missions are assigned
+        expectAtMost(11, post("/api/admin/dispatch"));
+
+        Mission aModifier = mission(Mission.EtatMission.EN_ATTENTE, employe, null, null);
+        expectAtMost(9, put("/api/admin/missions/{id}", aModifier.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("depart", "Rabat", "destination", "Casablanca", "dateHeure", date().toString(),
+                        "typeMission", "document", "chauffeurId", chauffeur.getId(), "vehiculeId", vehicule.getId(),
+                        "employeId", employe.getId()))));
+        expectAtMost(3, delete("/api/admin/missions/{id}", mission(Mission.EtatMission.TERMINEE, employe, null, null).getId()));
+
+        Chauffeur aModifierChauffeur = chauffeur();
+        expectAtMost(4, put("/api/admin/chauffeurs/{id}", aModifierChauffeur.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("nom", "Tazi", "prenom", "Karim", "telephone", "0644444444",
+                        "email", email(), "actif", true, "dateEmbauche", "2023-03-01T08:00:00"))));
+        expectAtMost(11, delete("/api/admin/chauffeurs/{id}", chauffeur().getId()));
+
+        Employe aModifierEmploye = employe();
+        expectAtMost(4, put("/api/admin/employes/{id}", aModifierEmploye.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("nom", "Fassi", "prenom", "Nadia", "telephone", "0655555555", "email", email()))));
+        expectAtMost(11, delete("/api/admin/employes/{id}", employe().getId()));
+    }
+
+    @Test
+    void chauffeurReads() throws Exception {
+        Long chauffeurId = chauffeurs.get(1).getId();
+
+        expectAtMost(1, get("/api/chauffeurs"));
+        expectAtMost(1, get("/api/chauffeurs/{id}", chauffeurId));
+        expectAtMost(1, get("/api/chauffeurs/{id}/indisponibilites", chauffeurId));
+        expectAtMost(1, get("/api/chauffeurs/{id}/missions", chauffeurId));
+        expectAtMost(1, get("/api/chauffeurs/{id}/dashboard/stats", chauffeurId));
+        expectAtMost(1, get("/api/chauffeurs/{id}/notifications", chauffeurId));
+        expectAtMost(1, get("/api/chauffeurs/{id}/notifications/feed", chauffeurId).param("size", "5"));
+        expectAtMost(1, get("/api/chauffeurs/{id}/notifications/unread-count", chauffeurId));
+        expectAtMost(1, get("/api/chauffeurs/{id}/notifications/stream", chauffeurId));
+    }
+
+    @Test
+    void chauffeurWrites() throws Exception {
+        Chauffeur chauffeur = chauffeur();
+        Employe employe = employes.get(2);
+
+        expectAtMost(1, post("/api/chauffeurs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("nom", "Berrada", "prenom", "Hamza", "telephone", "0666666666",
+                        "actif", true, "dateEmbauche", "2022-09-01T08:00:00"))));
+        expectAtMost(4, post("/api/chauffeurs/{id}/vehicule/{vehiculeId}", chauffeur.getId(), vehicule().getId()));
+        expectAtMost(4, post("/api/chauffeurs/{id}/indisponibilite", chauffeur.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("type", "CONGE_ANNUEL", "dateDebut", "2031-08-01T00:00:00",
+                        "dateFin", "2031-08-15T00:00:00", "raison", "Vacances"))));
+        expectAtMost(5, post("/api/chauffeurs/indisponibilite/{id}/accepter", conge(chauffeur).getId()));
+
+        expectAtMost(3, post("/api/chauffeurs/missions/{id}/accept",
+                mission(Mission.EtatMission.EN_ATTENTE, employe, chauffeur, null).getId()));
+        expectAtMost(6, post("/api/chauffeurs/missions/{id}/complete",
+                mission(Mission.EtatMission.COMMENCEE, employe, chauffeur, null).getId()));
+        expectAtMost(4, post("/api/chauffeurs/missions/{id}/refuse",
+                mission(Mission.EtatMission.EN_ATTENTE, employe, chauffeur, null).getId())
+                .contentType(MediaType.APPLICATION_JSON).content(json(Map.of("reason", "Indisponible"))));
+        expectAtMost(3, post("/api/chauffeurs/missions/{id}/report-problem",
+                mission(Mission.EtatMission.COMMENCEE, employe, chauffeur, null).getId())
+                .contentType(MediaType.APPLICATION_JSON).content(json(Map.of("problem", "Crevaison"))));
+
+        Chauffeur lecteur = chauffeurs.get(2);
+        expectAtMost(2, put("/api/chauffeurs/notifications/{id}/mark-read",
+                notificationRepository.save(notification(null, lecteur, null, false)).getId()));
+        expectAtMost(5, put("/api/chauffeurs/{id}/notifications/mark-all-read", lecteur.getId()));
+    }
+
+    @Test
+    void employeReads() throws Exception {
+        Long employeId = employes.get(1).getId();
+
+        expectAtMost(1, get("/api/employes/{id}", employeId));
+        expectAtMost(1, get("/api/employes/{id}/missions", employeId));
+        expectAtMost(1, get("/api/employes/{id}/missions/with-problems", employeId));
+        expectAtMost(2, get("/api/employes/{id}/dashboard/stats", employeId));
+        expectAtMost(1, get("/api/employes/{id}/notifications/non-lues", employeId));
+        expectAtMost(1, get("/api/employes/{id}/notifications/historique", employeId));
+        expectAtMost(1, get("/api/employes/{id}/notifications/historique/archives", employeId));
+    }
+
+    @Test
+    void employeWrites() throws Exception {
+        Employe employe = employes.get(3);
+        Chauffeur chauffeur = chauffeur();
+
+        expectAtMost(2, post("/api/employes/notification/{id}/lue",
+                notificationRepository.save(notification(employe, null, null, false)).getId()));
+
+        Mission refusee = mission(Mission.EtatMission.REFUSEE, employe, chauffeurs.get(3), null);
+        expectAtMost(7, post("/api/employes/{employeId}/missions/{missionId}/reassign/{chauffeurId}",
+                employe.getId(), refusee.getId(), chauffeur.getId()));
+    }
+
+    @Test
+    void missionReads() throws Exception {
+        Long chauffeurId = chauffeurs.get(4).getId();
+
+        expectAtMost(1, get("/api/missions/en-attente"));
+        expectAtMost(1, get("/api/missions/chauffeur/{id}", chauffeurId));
+        expectAtMost(1, get("/api/missions/historique/chauffeur/{id}", chauffeurId));
+    }
+
+    @Test
+    void missionWrites() throws Exception {
+        Employe employe = employes.get(0);
+        Chauffeur chauffeur = chauffeur();
+
+        expectAtMost(3, post("/api/missions").param("employeId", employe.getId().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("destination", "Tanger", "depart", "Rabat", "dateHeure", date().toString(),
+                        "typeMission", "materiel"))));
+        expectAtMost(10, post("/api/missions/{id}/accepter",
+                mission(Mission.EtatMission.EN_ATTENTE, employe, null, null).getId())
+                .param("chauffeurId", chauffeur.getId().toString()));
+        expectAtMost(6, post("/api/missions/{id}/commencer",
+                mission(Mission.EtatMission.EN_ATTENTE, employe, chauffeur, null).getId()));
+        expectAtMost(4, post("/api/missions/{id}/terminer",
+                mission(Mission.EtatMission.EN_COURS, employe, chauffeur, null).getId()));
+        expectAtMost(4, post("/api/missions/{id}/refuser",
+                mission(Mission.EtatMission.EN_ATTENTE, employe, chauffeur, null).getId()).content("Trop loin"));
+        expectAtMost(4, post("/api/missions/{id}/signaler-probleme",
+                mission(Mission.EtatMission.COMMENCEE, employe, chauffeur, null).getId()).content("Accident"));
+    }
+
+    @Test
+    void notificationReads() throws Exception {
+        Long employeId = employes.get(2).getId();
+
+        expectAtMost(1, get("/api/employes/{id}/notifications", employeId));
+        expectAtMost(1, get("/api/employes/{id}/notifications/feed", employeId).param("size", "5"));
+        expectAtMost(1, get("/api/employes/{id}/notifications/unread-count", employeId));
+        expectAtMost(1, get("/api/employes/{id}/notifications/recent", employeId));
+        expectAtMost(1, get("/api/employes/{id}/notifications/stream", employeId));
+        expectAtMost(1, get("/api/admin/notifications"));
+        expectAtMost(1, get("/api/admin/notifications/feed").param("size", "5"));
+        expectAtMost(1, get("/api/admin/notifications/unread-count"));
+        expectAtMost(1, get("/api/admin/notifications/stream"));
+        expectAtMost(2, get("/api/admin/notifications/outbox"));
+        expectAtMost(1, get("/api/admin/notifications/count-cache"));
+    }
+
+    @Test
+    void notificationWrites() throws Exception {
+        Employe employe = employe();
+
+        expectAtMost(2, put("/api/notifications/{id}/mark-read",
+                notificationRepository.save(notification(employe, null, null, false)).getId()));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(notificationRepository.save(notification(employe, null, null, false)).getId());
+        }
+        expectAtMost(2, put("/api/notifications/mark-read").contentType(MediaType.APPLICATION_JSON).content(json(ids)));
+        expectAtMost(5, put("/api/employes/{id}/notifications/mark-all-read", employe.getId()));
+        expectAtMost(2, delete("/api/notifications/{id}",
+                notificationRepository.save(notification(employe, null, null, false)).getId()));
+        expectAtMost(1, post("/api/employes/{id}/notifications/test", employe.getId()));
+
+        Long demandeId = notificationRepository.save(demandeConge()).getId();
+        expectAtMost(2, put("/api/admin/notifications/{id}/mark-read", demandeId));
+        // Plus the admins' login emails when the cached admin list was cleared
+        expectAtMost(6, put("/api/admin/notifications/mark-all-read"));
+        expectAtMost(2, delete("/api/admin/notifications/{id}", demandeId));
+        expectAtMost(1, post("/api/admin/notifications/outbox/relancer"));
+    }
+
+    // Runs the request and checks it succeeded within the statement bound. The count is the one the runtime
+    // monitor took at the JDBC level, so statements run outside Hibernate (JdbcTemplate batches) are included;
+    // a batch counts once. The failure lists the statements Hibernate prepared
+    private MvcResult expectAtMost(int maxStatements, MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result;
+        List<String> statements;
+        sqlRequestMonitor.reinitialiser();
+        QueryCountInspector.start();
+        try {
+            result = mvc.perform(request.session(session)).andReturn();
+        } finally {
+            statements = QueryCountInspector.stop();
+        }
+        MockHttpServletRequest sent = result.getRequest();
+        String endpoint = sent.getMethod() + " " + sent.getRequestURI();
+        int status = result.getResponse().getStatus();
+        assertTrue(status >= 200 && status < 300,
+                endpoint + " answered " + status + ": " + result.getResponse().getContentAsString());
+        List<SqlEndpointStatsDTO> mesures = sqlRequestMonitor.getStats();
+        assertEquals(1, mesures.size(), endpoint + " was not measured once: " + mesures);
+        long executes = mesures.get(0).getStatementsTotal();
+        assertTrue(executes <= maxStatements, endpoint + " ran " + executes
+                + " statements, at most " + maxStatements + " expected:\n" + String.join("\n", statements));
+        return result;
+    }
+
+    private String json(Object body) throws Exception {
+        return objectMapper.writeValueAsString(body);
+    }
+
+    private LocalDateTime date() {
+        return LocalDateTime.of(2030, 1, 1, 9, 0).plusDays(jours++);
+    }
+
+    private String email() {
+        return "utilisateur" + (++numero) + "@cdg.ma";
+    }
+
+    private User user(UserRole role) {
+        User user = new User();
+        user.setEmail(email());
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+
+    private Vehicule vehicule() {
+        Vehicule vehicule = new Vehicule();
+        vehicule.setImmatriculation("V-" + (++numero));
+        vehicule.setMarque("Dacia");
+        vehicule.setModele("Dokker");
+        vehicule.setCapacite(800);
+        vehicule.setDisponible(true);
+        return vehiculeRepository.save(vehicule);
+    }
+
+    private Employe employe() {
+        Employe employe = new Employe();
+        employe.setNom("Employe" + (++numero));
+        employe.setPrenom("Test");
+        employe.setTelephone("0700000000");
+        employe.setDateEmbauche(LocalDateTime.of(2020, 1, 1, 8, 0));
+        employe.setUser(user(UserRole.EMPLOYE));
+        return employeRepository.save(employe);
+    }
+
+    private Chauffeur chauffeur() {
+        Chauffeur chauffeur = new Chauffeur();
+        chauffeur.setNom("Chauffeur" + (++numero));
+        chauffeur.setPrenom("Test");
+        chauffeur.setTelephone("0710000000");
+        chauffeur.setActif(true);
+        chauffeur.setDateEmbauche(LocalDateTime.of(2021, 1, 1, 8, 0));
+        chauffeur.setUser(user(UserRole.CHAUFFEUR));
+        return chauffeurRepository.save(chauffeur);
+    }
+
+    private Mission mission(Mission.EtatMission etat, Employe employe, Chauffeur chauffeur, Vehicule vehicule) {
+        Mission mission = new Mission();
+        mission.setDepart("Rabat");
+        mission.setDestination("Destination " + (++numero));
+        mission.setDateHeure(date());
+        mission.setTypeMission("document");
+        mission.setEtat(etat);
+        mission.setAcceptee(etat != Mission.EtatMission.EN_ATTENTE && etat != Mission.EtatMission.REFUSEE);
+        mission.setEmploye(employe);
+        mission.setChauffeur(chauffeur);
+        mission.setVehicule(vehicule);
+        return missionRepository.save(mission);
+    }
+
+    private Indisponibilite conge(Chauffeur chauffeur) {
+        Indisponibilite conge = new Indisponibilite();
+        conge.setChauffeur(chauffeur);
+        conge.setType("CONGE_ANNUEL");
+        conge.setRaison("Repos");
+        conge.setDateDebut(date());
+        conge.setDateFin(date());
+        return indisponibiliteRepository.save(conge);
+    }
+
+    private Notification notification(Employe employe, Chauffeur chauffeur, Mission mission, boolean lue) {
+        Notification notification = new Notification();
+        notification.setEmploye(employe);
+        notification.setChauffeur(chauffeur);
+        notification.setMission(mission);
+        notification.setType("MISSION_TERMINEE");
+        notification.rediger(NotificationTemplates.MISSION_TERMINEE, mission != null ? mission.getDestination() : "Rabat");
+        notification.setDateEnvoi(LocalDateTime.now().minusMinutes(++numero));
+        notification.setLue(lue);
+        return notification;
+    }
+
+    private Notification demandeConge() {
+        Notification notification = notification(null, null, null, false);
+        notification.setAdmin(admin);
+        notification.setType("DEMANDE_CONGE");
+        notification.rediger(NotificationTemplates.DEMANDE_CONGE, "Test", "Chauffeur");
+        return notification;
+    }
+
+    private Map<String, Object> missionRequest(Employe employe, Chauffeur chauffeur, Vehicule vehicule) {
+        Map<String, Object> request = new java.util.HashMap<>();
+        request.put("destination", "Kenitra");
+        request.put("depart", "Rabat");
+        request.put("dateHeure", date().toString());
+        request.put("typeMission", "materiel");
+        request.put("employeId", employe.getId());
+        request.put("chauffeurId", chauffeur != null ? chauffeur.getId() : null);
+        request.put("vehiculeId", vehicule != null ? vehicule.getId() : null);
+        return request;
+    }
+}
@@ -0,0 +1,34 @@
+package ma.formation.jdbc.application;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL statements Hibernate prepares on the current thread between {@link #start()} and
+ * {@link #stop()}. Registered by the test profile; statements of other threads (outbox workers, event
+ * streams) are not recorded.
+ */
+public class QueryCountInspector implements StatementInspector {
+    private static final ThreadLocal<List<String>> statements = new ThreadLocal<>();
+
+    static void start() {
+        statements.set(new ArrayList<>());
+    }
+
+    static List<String> stop() {
+        List<String> recorded = statements.get();
+        statements.remove();
+        return recorded != null ? recorded : List.of();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> recorded = statements.get();
+        if (recorded != null) {
+            recorded.add(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,212 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.dto.BulkMissionResultDTO;
+import ma.formation.jdbc.application.dto.CreateMissionRequest;
+import ma.formation.jdbc.application.exception.MissionConflictException;
+import ma.formation.jdbc.application.model.*;
+import ma.formation.jdbc.application.repository.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Driver schedule checks made under the driver locks: the planning read from the database, and the
+ * conflicts between the items of one bulk creation. Missions take {@code planning.duree-mission-minutes}
+ * (120 by default) from their start. Dates are in 2040, apart from the other tests' data.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AvailabilityIndexTests {
+    private static final LocalDateTime MISSION = LocalDateTime.of(2040, 3, 1, 10, 0);
+    private static final LocalDateTime CONGE_DEBUT = LocalDateTime.of(2040, 3, 5, 0, 0);
+    private static final LocalDateTime CONGE_FIN = LocalDateTime.of(2040, 3, 7, 0, 0);
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private EmployeRepository employeRepository;
+
+    @Autowired
+    private ChauffeurRepository chauffeurRepository;
+
+    @Autowired
+    private MissionRepository missionRepository;
+
+    @Autowired
+    private IndisponibiliteRepository indisponibiliteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Employe employe;
+    private Chauffeur chauffeur;
+    private Chauffeur autreChauffeur;
+    private Mission mission;
+
+    @BeforeAll
+    void seed() {
+        employe = new Employe();
+        employe.setNom("Planning");
+        employe.setPrenom("Test");
+        employe.setTelephone("0700000000");
+        employe.setDateEmbauche(LocalDateTime.of(2020, 1, 1, 8, 0));
+        employe = employeRepository.save(employe);
+
+        chauffeur = chauffeur();
+        autreChauffeur = chauffeur();
+
+        mission = mission(chauffeur, MISSION, Mission.EtatMission.EN_ATTENTE);
+        // Finished missions leave the schedule
+        mission(chauffeur, MISSION.plusDays(1), Mission.EtatMission.TERMINEE);
+
+        Indisponibilite conge = new Indisponibilite();
+        conge.setChauffeur(chauffeur);
+        conge.setType("CONGE_ANNUEL");
+        conge.setDateDebut(CONGE_DEBUT);
+        conge.setDateFin(CONGE_FIN);
+        conge.setAcceptee(true);
+        conge.setStatut("ACCEPTEE");
+        indisponibiliteRepository.save(conge);
+    }
+
+    @Test
+    void missionWindowConflicts() {
+        MissionConflictException e = assertThrows(MissionConflictException.class,
+                () -> verifierLibre(chauffeur, MISSION.plusHours(1), null));
+        assertTrue(e.getMessage().contains("mission " + mission.getId()), e.getMessage());
+        // Starting before and running into it
+        assertThrows(MissionConflictException.class, () -> verifierLibre(chauffeur, MISSION.minusHours(1), null));
+    }
+
+    @Test
+    void adjacentWindowsAreFree() {
+        assertDoesNotThrow(() -> verifierLibre(chauffeur, MISSION.plusHours(2), null));
+        assertDoesNotThrow(() -> verifierLibre(chauffeur, MISSION.minusHours(2), null));
+    }
+
+    @Test
+    void missionIgnoreeIsNotItsOwnConflict() {
+        assertDoesNotThrow(() -> verifierLibre(chauffeur, MISSION.plusHours(1), mission.getId()));
+        // Only that mission is ignored: the leave still counts
+        assertThrows(MissionConflictException.class,
+                () -> verifierLibre(chauffeur, CONGE_DEBUT.plusDays(1), mission.getId()));
+    }
+
+    @Test
+    void acceptedLeaveConflicts() {
+        MissionConflictException e = assertThrows(MissionConflictException.class,
+                () -> verifierLibre(chauffeur, CONGE_DEBUT.plusDays(1), null));
+        assertTrue(e.getMessage().contains("congé"), e.getMessage());
+        assertThrows(MissionConflictException.class, () -> verifierLibre(chauffeur, CONGE_DEBUT.minusHours(1), null));
+        assertDoesNotThrow(() -> verifierLibre(chauffeur, CONGE_FIN, null));
+    }
+
+    @Test
+    void finishedMissionsAndOtherDriversDoNotConflict() {
+        assertDoesNotThrow(() -> verifierLibre(chauffeur, MISSION.plusDays(1), null));
+        assertDoesNotThrow(() -> verifierLibre(autreChauffeur, MISSION, null));
+        assertDoesNotThrow(() -> verifierLibre(autreChauffeur, CONGE_DEBUT.plusDays(1), null));
+    }
+
+    @Test
+    void leaveOverAPlannedMissionIsRefused() {
+        assertThrows(MissionConflictException.class,
+                () -> planning(chauffeur, MISSION.minusDays(1), MISSION.plusDays(1),
+                        p -> p.verifierCongePossible(chauffeur.getId(), MISSION.minusDays(1), MISSION.plusHours(1))));
+        // Overlapping another leave is not a mission conflict
+        assertDoesNotThrow(() -> planning(chauffeur, CONGE_DEBUT, CONGE_FIN,
+                p -> p.verifierCongePossible(chauffeur.getId(), CONGE_DEBUT.plusDays(1), CONGE_FIN.plusDays(1))));
+    }
+
+    @Test
+    void bulkItemsConflictingWithEachOtherAreRejected() {
+        Chauffeur libre = chauffeur();
+        LocalDateTime debut = LocalDateTime.of(2040, 4, 1, 10, 0);
+        List<BulkMissionResultDTO> results = adminService.createMissions(List.of(
+                request(libre, debut),
+                // Overlaps the first item, which is not in the database yet
+                request(libre, debut.plusHours(1)),
+                // Starts when the first one ends
+                request(libre, debut.plusHours(2)),
+                // Inserted before the first item but ends after it starts
+                request(libre, debut.minusHours(1)),
+                // Overlaps the mission in the database
+                request(chauffeur, MISSION.plusHours(1))));
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getError().contains("dans cette liste"), results.get(1).getError());
+        assertTrue(results.get(2).isSuccess());
+        assertFalse(results.get(3).isSuccess());
+        assertTrue(results.get(3).getError().contains("dans cette liste"), results.get(3).getError());
+        assertFalse(results.get(4).isSuccess());
+        assertTrue(results.get(4).getError().contains("mission " + mission.getId()), results.get(4).getError());
+
+        // The created missions now block the slot for later requests
+        assertThrows(MissionConflictException.class, () -> verifierLibre(libre, debut.plusHours(3), null));
+    }
+
+    private void verifierLibre(Chauffeur chauffeur, LocalDateTime dateHeure, Long missionIgnoree) {
+        planning(chauffeur, dateHeure, dateHeure,
+                p -> p.verifierChauffeurLibre(chauffeur.getId(), dateHeure, missionIgnoree));
+    }
+
+    // Reads the driver's planning under its lock, as the assigning services do, and runs the check on it
+    private void planning(Chauffeur chauffeur, LocalDateTime premier, LocalDateTime dernier,
+                          Consumer<AvailabilityIndex.Planning> verification) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            availabilityIndex.verrouillerChauffeurs(List.of(chauffeur.getId()));
+            verification.accept(availabilityIndex.planningVerrouille(List.of(chauffeur.getId()), premier, dernier));
+        });
+    }
+
+    private Chauffeur chauffeur() {
+        Chauffeur chauffeur = new Chauffeur();
+        chauffeur.setNom("Planning");
+        chauffeur.setPrenom("Test");
+        chauffeur.setTelephone("0710000000");
+        chauffeur.setActif(true);
+        chauffeur.setDateEmbauche(LocalDateTime.of(2021, 1, 1, 8, 0));
+        return chauffeurRepository.save(chauffeur);
+    }
+
+    private Mission mission(Chauffeur chauffeur, LocalDateTime dateHeure, Mission.EtatMission etat) {
+        Mission mission = new Mission();
+        mission.setDepart("Rabat");
+        mission.setDestination("Casablanca");
+        mission.setDateHeure(dateHeure);
+        mission.setTypeMission("document");
+        mission.setEtat(etat);
+        mission.setAcceptee(etat != Mission.EtatMission.EN_ATTENTE);
+        mission.setEmploye(employe);
+        mission.setChauffeur(chauffeur);
+        return missionRepository.save(mission);
+    }
+
+    private CreateMissionRequest request(Chauffeur chauffeur, LocalDateTime dateHeure) {
+        CreateMissionRequest request = new CreateMissionRequest();
+        request.setDepart("Rabat");
+        request.setDestination("Casablanca");
+        request.setDateHeure(dateHeure.toString());
+        request.setTypeMission("document");
+        request.setEmployeId(employe.getId());
+        request.setChauffeurId(chauffeur.getId());
+        return request;
+    }
+}
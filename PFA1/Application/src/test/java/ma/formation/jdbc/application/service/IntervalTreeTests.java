@@ -0,0 +1,150 @@
+package ma.formation.jdbc.application.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Overlap answers of the interval tree, checked against a plain scan of the same intervals. Sorted and
+ * random insertions and removals rebalance the tree many times, so a rotation or removal that leaves a
+ * stale subtree end would show up as a missed overlap.
+ */
+class IntervalTreeTests {
+    private static final LocalDateTime ORIGINE = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    private record Intervalle(LocalDateTime debut, LocalDateTime fin, Long id) {}
+
+    private static LocalDateTime h(int heures) {
+        return ORIGINE.plusHours(heures);
+    }
+
+    @Test
+    void overlapIsHalfOpen() {
+        IntervalTree<Long> tree = new IntervalTree<>();
+        tree.add(h(10), h(12), 1L);
+
+        assertEquals(1L, tree.firstOverlap(h(11), h(13), id -> false));
+        assertEquals(1L, tree.firstOverlap(h(9), h(11), id -> false));
+        assertEquals(1L, tree.firstOverlap(h(10), h(12), id -> false));
+        assertEquals(1L, tree.firstOverlap(h(8), h(14), id -> false));
+        // Touching ends do not overlap
+        assertNull(tree.firstOverlap(h(12), h(14), id -> false));
+        assertNull(tree.firstOverlap(h(8), h(10), id -> false));
+    }
+
+    @Test
+    void ignoredValuesAreSkipped() {
+        IntervalTree<Long> tree = new IntervalTree<>();
+        tree.add(h(10), h(12), 1L);
+        tree.add(h(11), h(13), 2L);
+
+        assertEquals(2L, tree.firstOverlap(h(10), h(14), id -> id == 1L));
+        assertNull(tree.firstOverlap(h(10), h(14), id -> true));
+    }
+
+    @Test
+    void sameStartIsOrderedByValue() {
+        IntervalTree<Long> tree = new IntervalTree<>();
+        tree.add(h(10), h(12), 2L);
+        tree.add(h(10), h(11), 1L);
+
+        assertFalse(tree.remove(h(10), 3L));
+        assertTrue(tree.remove(h(10), 2L));
+        assertEquals(1, tree.size());
+        assertEquals(1L, tree.firstOverlap(h(10), h(11), id -> false));
+        assertNull(tree.firstOverlap(h(11), h(12), id -> false));
+    }
+
+    @Test
+    void rotationsCarryTheSubtreeEnd() {
+        // The third insert rotates left: the long interval moves below the new root
+        IntervalTree<Long> gauche = new IntervalTree<>();
+        gauche.add(h(0), h(100), 1L);
+        gauche.add(h(1), h(2), 2L);
+        gauche.add(h(2), h(3), 3L);
+        assertEquals(1L, gauche.firstOverlap(h(50), h(51), id -> false));
+
+        // Mirror case, rotating right
+        IntervalTree<Long> droite = new IntervalTree<>();
+        droite.add(h(2), h(100), 3L);
+        droite.add(h(1), h(2), 2L);
+        droite.add(h(0), h(1), 1L);
+        assertEquals(3L, droite.firstOverlap(h(50), h(51), id -> false));
+
+        // Removing the root replaces it by its successor, which must take over the end of the left subtree
+        IntervalTree<Long> retrait = new IntervalTree<>();
+        retrait.add(h(1), h(2), 2L);
+        retrait.add(h(0), h(100), 1L);
+        retrait.add(h(2), h(3), 3L);
+        assertTrue(retrait.remove(h(1), 2L));
+        assertEquals(1L, retrait.firstOverlap(h(50), h(51), id -> false));
+    }
+
+    @Test
+    void sortedInsertionsAndRemovalsKeepAnswersRight() {
+        IntervalTree<Long> tree = new IntervalTree<>();
+        List<Intervalle> intervalles = new ArrayList<>();
+        // Ascending starts rotate at almost every insert; one long interval early on sets a subtree end
+        // that must move with the rotations
+        for (long i = 0; i < 200; i++) {
+            int duree = i == 3 ? 500 : 1;
+            Intervalle intervalle = new Intervalle(h((int) i * 2), h((int) i * 2 + duree), i);
+            tree.add(intervalle.debut(), intervalle.fin(), intervalle.id());
+            intervalles.add(intervalle);
+        }
+        verifier(tree, intervalles, new Random(1));
+
+        for (long i = 0; i < 200; i += 3) {
+            Intervalle intervalle = intervalles.get((int) i);
+            assertTrue(tree.remove(intervalle.debut(), intervalle.id()));
+        }
+        intervalles.removeIf(intervalle -> intervalle.id() % 3 == 0);
+        assertEquals(intervalles.size(), tree.size());
+        verifier(tree, intervalles, new Random(2));
+    }
+
+    @Test
+    void randomInsertionsAndRemovalsKeepAnswersRight() {
+        Random random = new Random(42);
+        IntervalTree<Long> tree = new IntervalTree<>();
+        List<Intervalle> intervalles = new ArrayList<>();
+        for (long i = 0; i < 2000; i++) {
+            if (!intervalles.isEmpty() && random.nextInt(3) == 0) {
+                Intervalle intervalle = intervalles.remove(random.nextInt(intervalles.size()));
+                assertTrue(tree.remove(intervalle.debut(), intervalle.id()));
+            } else {
+                int debut = random.nextInt(1000);
+                Intervalle intervalle = new Intervalle(h(debut), h(debut + 1 + random.nextInt(20)), i);
+                tree.add(intervalle.debut(), intervalle.fin(), intervalle.id());
+                intervalles.add(intervalle);
+            }
+        }
+        assertEquals(intervalles.size(), tree.size());
+        verifier(tree, intervalles, random);
+
+        intervalles.forEach(intervalle -> assertTrue(tree.remove(intervalle.debut(), intervalle.id())));
+        assertTrue(tree.isEmpty());
+        assertNull(tree.firstOverlap(h(0), h(2000), id -> false));
+    }
+
+    // Random windows: the tree finds an overlap exactly when the scan does, and what it finds overlaps
+    private static void verifier(IntervalTree<Long> tree, List<Intervalle> intervalles, Random random) {
+        for (int q = 0; q < 500; q++) {
+            int debut = random.nextInt(1100);
+            LocalDateTime d = h(debut);
+            LocalDateTime f = h(debut + 1 + random.nextInt(10));
+            boolean attendu = intervalles.stream().anyMatch(i -> i.debut().isBefore(f) && i.fin().isAfter(d));
+            Long trouve = tree.firstOverlap(d, f, id -> false);
+            assertEquals(attendu, trouve != null, "fenêtre " + d + " - " + f);
+            if (trouve != null) {
+                Intervalle intervalle = intervalles.stream().filter(i -> i.id().equals(trouve)).findFirst().orElseThrow();
+                assertTrue(intervalle.debut().isBefore(f) && intervalle.fin().isAfter(d));
+            }
+        }
+    }
+}
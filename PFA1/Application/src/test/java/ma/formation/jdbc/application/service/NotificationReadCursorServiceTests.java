@@ -0,0 +1,110 @@
+package ma.formation.jdbc.application.service;
+
+import ma.formation.jdbc.application.model.*;
+import ma.formation.jdbc.application.repository.EmployeRepository;
+import ma.formation.jdbc.application.repository.NotificationReadCursorRepository;
+import ma.formation.jdbc.application.repository.NotificationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A notification inserted with an id below its recipient's read cursor, as happens with pooled ids
+ * (another instance's block, or a slower concurrent transaction): it must arrive unread, and the rows the
+ * cursor covered must stay read.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class NotificationReadCursorServiceTests {
+    // Far above the ids the generator hands out during the tests
+    private static final long CURSEUR = 1_000_000_000L;
+
+    @Autowired
+    private NotificationReadCursorService readCursorService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationReadCursorRepository cursorRepository;
+
+    @Autowired
+    private EmployeRepository employeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void notificationBelowTheCursorArrivesUnreadAndLeavesTheOthersAsTheyWere() {
+        Employe employe = new Employe();
+        employe.setNom("Curseur");
+        employe.setPrenom("Test");
+        employe.setTelephone("0700000000");
+        employe.setDateEmbauche(LocalDateTime.of(2020, 1, 1, 8, 0));
+        employe = employeRepository.save(employe);
+        Long employeId = employe.getId();
+
+        // Read by the cursor (one just below it, above the id the next insert gets), read by its flag, and
+        // one above the cursor that is still unread
+        Notification parCurseur = notificationRepository.save(notification(employe, false));
+        Notification parDrapeau = notificationRepository.save(notification(employe, true));
+        jdbcTemplate.update("UPDATE notifications SET id = ? WHERE id = ?", CURSEUR - 1,
+                notificationRepository.save(notification(employe, false)).getId());
+        jdbcTemplate.update("UPDATE notifications SET id = ? WHERE id = ?", CURSEUR + 1,
+                notificationRepository.save(notification(employe, false)).getId());
+
+        NotificationReadCursor cursor = new NotificationReadCursor();
+        cursor.setKey(new NotificationReadCursor.Key(NotificationReadCursor.EMPLOYE, employeId));
+        cursor.setDernierIdLu(CURSEUR);
+        cursorRepository.save(cursor);
+
+        assertEquals(1L, notificationService.getUnreadNotificationsCount(employeId));
+        assertEquals(1L, notificationRepository.countByEmployeIdAndLueFalse(employeId));
+
+        // Inserted as the outbox does, with the next id of the pool, far below the cursor
+        Employe destinataire = employe;
+        Notification arrivee = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Notification> notifications = notificationRepository.saveAll(List.of(notification(destinataire, false)));
+            readCursorService.notificationsInserees(notifications);
+            return notifications.get(0);
+        });
+        assertTrue(arrivee.getId() < CURSEUR);
+
+        assertFalse(notificationRepository.findById(arrivee.getId()).orElseThrow().isLue());
+        assertTrue(notificationRepository.findById(parCurseur.getId()).orElseThrow().isLue());
+        assertTrue(notificationRepository.findById(parDrapeau.getId()).orElseThrow().isLue());
+        assertTrue(notificationRepository.findById(CURSEUR - 1).orElseThrow().isLue());
+        assertFalse(notificationRepository.findById(CURSEUR + 1).orElseThrow().isLue());
+
+        // The cursor moved back below the new notification; the row it no longer covers is flagged instead
+        assertEquals(arrivee.getId() - 1, cursorRepository.findById(cursor.getKey()).orElseThrow().getDernierIdLu());
+        assertTrue(jdbcTemplate.queryForObject("SELECT lue FROM notifications WHERE id = ?", Boolean.class, CURSEUR - 1));
+        assertEquals(2L, notificationService.getUnreadNotificationsCount(employeId));
+        assertEquals(2L, notificationRepository.countByEmployeIdAndLueFalse(employeId));
+    }
+
+    private Notification notification(Employe employe, boolean lue) {
+        Notification notification = new Notification();
+        notification.setEmploye(employe);
+        notification.setType("MISSION_TERMINEE");
+        notification.rediger(NotificationTemplates.MISSION_TERMINEE, "Rabat");
+        notification.setDateEnvoi(LocalDateTime.now());
+        notification.setLue(lue);
+        return notification;
+    }
+}
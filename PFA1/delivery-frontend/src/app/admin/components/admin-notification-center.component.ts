@@ -309,7 +309,7 @@ export class AdminNotificationCenterComponent implements OnInit, OnDestroy {
   constructor(private adminNotificationService: AdminNotificationService) {}
 
   ngOnInit() {
-    this.adminNotificationService.startPolling();
+    this.adminNotificationService.startListening();
     
     this.notificationSubscription = this.adminNotificationService.getNotifications().subscribe(
       notifications => {
@@ -325,7 +325,7 @@ export class AdminNotificationCenterComponent implements OnInit, OnDestroy {
   }
 
   ngOnDestroy() {
-    this.adminNotificationService.stopPolling();
+    this.adminNotificationService.stopListening();
     if (this.notificationSubscription) {
       this.notificationSubscription.unsubscribe();
     }
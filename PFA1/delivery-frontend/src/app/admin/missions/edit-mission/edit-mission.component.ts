@@ -115,7 +115,8 @@ export class EditMissionComponent implements OnInit {
       depart: ['', Validators.required],
       destination: ['', Validators.required],
       dateHeure: ['', Validators.required],
-      etat: ['', Validators.required],
+      // Shown only: the state follows the mission's actions (acceptance, start, end)
+      etat: [{ value: '', disabled: true }],
       typeMission: ['', Validators.required],
       chauffeurId: [''],
       vehiculeId: [''],
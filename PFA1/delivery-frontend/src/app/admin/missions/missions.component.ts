@@ -65,7 +65,11 @@ export interface Mission {
 export class MissionsComponent implements OnInit {
   missions: Mission[] = [];
   loading = true;
+  loadingMore = false;
   error: string | null = null;
+
+  // Cursor of the next page (last mission shown), null once every mission is loaded
+  private nextPage: { beforeDate: string; beforeId: number } | null = null;
   
   displayedColumns: string[] = ['id', 'route', 'date', 'type', 'status', 'employe', 'chauffeur', 'actions'];
 
@@ -89,9 +93,10 @@ export class MissionsComponent implements OnInit {
     this.loading = true;
     this.error = null;
     
-    this.adminService.getAllMissions().subscribe({
-      next: (missions: Mission[]) => {
-        this.missions = missions;
+    this.adminService.getMissionsPage().subscribe({
+      next: (page: any) => {
+        this.missions = page.missions;
+        this.setNextPage(page);
         this.loading = false;
       },
       error: (error: any) => {
@@ -102,6 +107,36 @@ export class MissionsComponent implements OnInit {
     });
   }
 
+  get hasMore(): boolean {
+    return this.nextPage !== null;
+  }
+
+  // Appends the page after the last mission shown
+  loadMore(): void {
+    if (!this.nextPage || this.loadingMore) {
+      return;
+    }
+    this.loadingMore = true;
+    this.adminService.getMissionsPage(this.nextPage).subscribe({
+      next: (page: any) => {
+        this.missions = [...this.missions, ...page.missions];
+        this.setNextPage(page);
+        this.loadingMore = false;
+      },
+      error: (error: any) => {
+        console.error('Error loading more missions:', error);
+        this.snackBar.open('Erreur lors du chargement des missions', 'Fermer', { duration: 3000 });
+        this.loadingMore = false;
+      }
+    });
+  }
+
+  private setNextPage(page: any): void {
+    this.nextPage = page.hasMore && page.nextBeforeDate && page.nextBeforeId
+      ? { beforeDate: page.nextBeforeDate, beforeId: page.nextBeforeId }
+      : null;
+  }
+
   getStatusColor(status: string): string {
     switch (status) {
       case 'EN_ATTENTE': return 'warn';
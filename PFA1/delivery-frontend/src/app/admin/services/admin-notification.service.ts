@@ -1,7 +1,9 @@
 import { Injectable } from '@angular/core';
-import { BehaviorSubject, interval, Subscription } from 'rxjs';
+import { BehaviorSubject, Subscription } from 'rxjs';
 import { HttpClient } from '@angular/common/http';
 import { environment } from '../../../environments/environment';
+import { AuthService } from '../../core/services/auth.service';
+import { NotificationStreamService } from '../../core/services/notification-stream.service';
 
 export interface AdminNotification {
   id: number;
@@ -26,10 +28,15 @@ export interface AdminNotification {
 export class AdminNotificationService {
   private notifications$ = new BehaviorSubject<AdminNotification[]>([]);
   private unreadCount$ = new BehaviorSubject<number>(0);
-  private pollingSubscription?: Subscription;
-  private readonly POLLING_INTERVAL = 10000; // 10 seconds
+  private streamSubscription?: Subscription;
 
-  constructor(private http: HttpClient) {}
+  constructor(private http: HttpClient, private notificationStream: NotificationStreamService,
+              private authService: AuthService) {}
+
+  // Each admin has their own notifications and read state; the server serves those of the admin logged in
+  private get isAdmin(): boolean {
+    return this.authService.currentUserValue?.adminId !== undefined;
+  }
 
   getNotifications() {
     return this.notifications$.asObservable();
@@ -39,24 +46,31 @@ export class AdminNotificationService {
     return this.unreadCount$.asObservable();
   }
 
-  startPolling() {
-    if (this.pollingSubscription) {
-      return; // Already polling
+  startListening() {
+    if (this.streamSubscription) {
+      return; // Already listening
+    }
+    if (!this.isAdmin) {
+      return;
     }
 
     // Initial load
     this.loadNotifications();
 
-    // Start polling every 10 seconds
-    this.pollingSubscription = interval(this.POLLING_INTERVAL).subscribe(() => {
-      this.loadNotifications();
+    // Reload on pushed leave requests, take unread counts as pushed
+    this.streamSubscription = this.notificationStream.adminStream().subscribe(event => {
+      if (event.type === 'unread-count') {
+        this.unreadCount$.next(event.count);
+      } else {
+        this.loadNotifications();
+      }
     });
   }
 
-  stopPolling() {
-    if (this.pollingSubscription) {
-      this.pollingSubscription.unsubscribe();
-      this.pollingSubscription = undefined;
+  stopListening() {
+    if (this.streamSubscription) {
+      this.streamSubscription.unsubscribe();
+      this.streamSubscription = undefined;
     }
   }
 
@@ -16,6 +16,9 @@ export class AuthInterceptor implements HttpInterceptor {
     // Get the auth token from localStorage
     const token = localStorage.getItem('token');
     
+    // Send the session cookie the login set: the admin routes and the admin notifications depend on it
+    request = request.clone({ withCredentials: true });
+
     // Clone the request and add the authorization header if token exists
     if (token) {
       request = request.clone({
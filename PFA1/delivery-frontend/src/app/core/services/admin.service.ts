@@ -1,6 +1,6 @@
 import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { Observable, map } from 'rxjs';
 
 export interface DemandeConge {
   id: number;
@@ -71,7 +71,12 @@ export class AdminService {
   }
 
   getAllMissions(): Observable<any[]> {
-    return this.http.get<any[]>(`${this.apiUrl}/missions`);
+    return this.getMissionsPage().pipe(map(page => page.missions));
+  }
+
+  // One keyset page of missions, newest first; pass the previous page's nextBeforeDate/nextBeforeId to continue
+  getMissionsPage(params: { [key: string]: string | number } = {}): Observable<any> {
+    return this.http.get<any>(`${this.apiUrl}/missions`, { params });
   }
 
   getMissionsCount(): Observable<any> {
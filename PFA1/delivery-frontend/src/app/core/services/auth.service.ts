@@ -12,6 +12,7 @@ interface UserResponse {
   userType: string;
   employeId?: number;
   chauffeurId?: number;
+  adminId?: number;
 }
 
 @Injectable({
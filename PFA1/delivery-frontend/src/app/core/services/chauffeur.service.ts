@@ -73,6 +73,11 @@ export class ChauffeurService {
     return this.http.put<void>(`${this.chauffeurApiUrl}/notifications/${notificationId}/mark-read`, {});
   }
 
+  // Returns the number of notifications marked as read
+  markAllChauffeurNotificationsAsRead(chauffeurId: number): Observable<number> {
+    return this.http.put<number>(`${this.chauffeurApiUrl}/${chauffeurId}/notifications/mark-all-read`, {});
+  }
+
   // Get all chauffeurs for admin management
   getAllChauffeurs(): Observable<any[]> {
     return this.http.get<any[]>(`${environment.apiUrl}/admin/chauffeurs`);
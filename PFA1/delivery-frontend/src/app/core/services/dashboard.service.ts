@@ -1,6 +1,6 @@
 import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { Observable, map } from 'rxjs';
 import { environment } from '../../../environments/environment';
 import { ChauffeurDTO } from './mission.service';
 
@@ -43,6 +43,14 @@ export interface MissionResponseDTO {
   };
 }
 
+export interface MissionPage {
+  missions: MissionResponseDTO[];
+  size: number;
+  hasMore: boolean;
+  nextBeforeDate?: string;
+  nextBeforeId?: number;
+}
+
 @Injectable({
   providedIn: 'root'
 })
@@ -76,9 +84,14 @@ export class DashboardService {
     return this.http.get<{count: number}>(`${this.apiUrl}/admin/employes/count`);
   }
 
-  // Get all missions for admin dashboard - using admin endpoint
+  // Get the most recent page of missions for admin dashboard - using admin endpoint
   getAllMissions(): Observable<MissionResponseDTO[]> {
-    return this.http.get<MissionResponseDTO[]>(`${this.apiUrl}/admin/missions`);
+    return this.getMissionsPage().pipe(map(page => page.missions));
+  }
+
+  // Get one keyset page of missions; pass the previous page's nextBeforeDate/nextBeforeId to continue
+  getMissionsPage(params: { [key: string]: string | number } = {}): Observable<MissionPage> {
+    return this.http.get<MissionPage>(`${this.apiUrl}/admin/missions`, { params });
   }
 
   // Get recent missions (last 10) - fallback to all missions
@@ -13,6 +13,21 @@ export interface CreateMissionRequest {
   vehiculeId?: number;
 }
 
+export interface BulkMissionResult {
+  index: number;
+  success: boolean;
+  missionId?: number;
+  error?: string;
+}
+
+export interface DispatchResult {
+  missionsExaminees: number;
+  missionsAffectees: number;
+  conflits: number;
+  dureeMs: number;
+  affectations: { missionId: number; chauffeurId: number; vehiculeId: number }[];
+}
+
 export interface MissionFormData {
   chauffeurs: ChauffeurDTO[];
   employes: EmployeDTO[];
@@ -56,8 +71,18 @@ export class MissionService {
     return this.http.post(`${this.apiUrl}/create-mission`, request);
   }
 
-  getMissionFormData(): Observable<MissionFormData> {
+  createMissions(requests: CreateMissionRequest[]): Observable<BulkMissionResult[]> {
+    return this.http.post<BulkMissionResult[]>(`${this.apiUrl}/create-missions`, requests);
+  }
+
+  dispatchMissions(): Observable<DispatchResult> {
+    return this.http.post<DispatchResult>(`${this.apiUrl}/dispatch`, {});
+  }
+
+  // With a date, only the drivers free for a mission at that time are returned
+  getMissionFormData(dateHeure?: string): Observable<MissionFormData> {
     console.log('Calling API:', `${this.apiUrl}/mission-form-data`);
-    return this.http.get<MissionFormData>(`${this.apiUrl}/mission-form-data`);
+    const options = dateHeure ? { params: { dateHeure } } : {};
+    return this.http.get<MissionFormData>(`${this.apiUrl}/mission-form-data`, options);
   }
 }
@@ -0,0 +1,65 @@
+import { Injectable, NgZone } from '@angular/core';
+import { Observable, share } from 'rxjs';
+import { environment } from '../../../environments/environment';
+
+// Notification as pushed by the server: its own fields and the ids it points to
+export interface PushedNotification {
+  id: number;
+  type: string;
+  message: string;
+  dateEnvoi: string;
+  lue: boolean;
+  missionId?: number;
+  indisponibiliteId?: number;
+}
+
+export type NotificationStreamEvent =
+  | { type: 'notification'; notification: PushedNotification }
+  | { type: 'unread-count'; count: number }
+  // Events were missed (server restart or too long offline): reload the list
+  | { type: 'resync' };
+
+/**
+ * Server-sent notification streams. One EventSource per stream path is shared by every subscriber
+ * and closed when the last one unsubscribes. The browser reconnects on its own and sends the last
+ * event id, so the server replays what was missed.
+ */
+@Injectable({
+  providedIn: 'root'
+})
+export class NotificationStreamService {
+  private streams = new Map<string, Observable<NotificationStreamEvent>>();
+
+  constructor(private zone: NgZone) {}
+
+  employeeStream(employeId: number): Observable<NotificationStreamEvent> {
+    return this.stream(`/employes/${employeId}/notifications/stream`);
+  }
+
+  chauffeurStream(chauffeurId: number): Observable<NotificationStreamEvent> {
+    return this.stream(`/chauffeurs/${chauffeurId}/notifications/stream`);
+  }
+
+  // Stream of the admin logged in on the session
+  adminStream(): Observable<NotificationStreamEvent> {
+    return this.stream('/admin/notifications/stream');
+  }
+
+  private stream(path: string): Observable<NotificationStreamEvent> {
+    let stream = this.streams.get(path);
+    if (!stream) {
+      stream = new Observable<NotificationStreamEvent>(observer => {
+        const source = new EventSource(`${environment.apiUrl}${path}`, { withCredentials: true });
+        const emit = (event: NotificationStreamEvent) => this.zone.run(() => observer.next(event));
+        source.addEventListener('notification', (e: MessageEvent) =>
+          emit({ type: 'notification', notification: JSON.parse(e.data) }));
+        source.addEventListener('unread-count', (e: MessageEvent) =>
+          emit({ type: 'unread-count', count: Number(e.data) }));
+        source.addEventListener('resync', () => emit({ type: 'resync' }));
+        return () => source.close();
+      }).pipe(share());
+      this.streams.set(path, stream);
+    }
+    return stream;
+  }
+}
@@ -1,7 +1,8 @@
 import { Injectable, OnDestroy } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { Observable, BehaviorSubject, interval, Subscription } from 'rxjs';
+import { Observable, BehaviorSubject, Subscription } from 'rxjs';
 import { AuthService } from './auth.service';
+import { NotificationStreamService } from './notification-stream.service';
 
 export interface Notification {
   id: number;
@@ -31,17 +32,16 @@ export class NotificationService implements OnDestroy {
   private unreadCountSubject = new BehaviorSubject<number>(0);
   public unreadCount$ = this.unreadCountSubject.asObservable();
   
-  private pollingSubscription?: Subscription;
-  private readonly POLLING_INTERVAL = 5000; // 5 seconds for real-time updates
+  private streamSubscription?: Subscription;
+  private streamEmployeId = 0;
 
   constructor(
     private http: HttpClient,
-    private authService: AuthService
+    private authService: AuthService,
+    private notificationStream: NotificationStreamService
   ) {
-    // Load notifications on service initialization
+    // Load notifications on service initialization (also opens the event stream)
     this.loadNotifications();
-    // Start real-time polling
-    this.startPolling();
   }
 
   private getCurrentEmployeeId(): number {
@@ -90,6 +90,7 @@ export class NotificationService implements OnDestroy {
       console.warn('No employee ID found, cannot load notifications');
       return;
     }
+    this.startListening(employeId);
     
     this.getNotifications().subscribe({
       next: (notifications) => {
@@ -106,27 +107,30 @@ export class NotificationService implements OnDestroy {
     });
   }
 
-  // Start real-time polling for notifications
-  private startPolling(): void {
-    // Stop any existing polling
-    this.stopPolling();
-    
-    // Start polling every 5 seconds
-    this.pollingSubscription = interval(this.POLLING_INTERVAL).subscribe(() => {
-      const employeId = this.getCurrentEmployeeId();
-      if (employeId) {
-        this.loadNotifications();
+  // Listen to the server's notification stream instead of polling
+  private startListening(employeId: number): void {
+    if (this.streamSubscription && this.streamEmployeId === employeId) {
+      return;
+    }
+    this.stopListening();
+    this.streamEmployeId = employeId;
+    this.streamSubscription = this.notificationStream.employeeStream(employeId).subscribe(event => {
+      switch (event.type) {
+        case 'unread-count':
+          this.unreadCountSubject.next(event.count);
+          break;
+        case 'notification':
+        case 'resync':
+          this.loadNotifications();
+          break;
       }
     });
-    
-    console.log('Employee notification polling started (5 seconds interval)');
   }
 
-  // Stop polling
-  private stopPolling(): void {
-    if (this.pollingSubscription) {
-      this.pollingSubscription.unsubscribe();
-      this.pollingSubscription = undefined;
+  private stopListening(): void {
+    if (this.streamSubscription) {
+      this.streamSubscription.unsubscribe();
+      this.streamSubscription = undefined;
     }
   }
 
@@ -135,9 +139,9 @@ export class NotificationService implements OnDestroy {
     this.loadNotifications();
   }
 
-  // Cleanup method to stop polling when service is destroyed
+  // Cleanup method to close the stream when service is destroyed
   ngOnDestroy(): void {
-    this.stopPolling();
+    this.stopListening();
   }
 
   // Get notification icon based on type
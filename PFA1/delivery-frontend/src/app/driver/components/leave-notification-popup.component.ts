@@ -298,15 +298,15 @@ export class LeaveNotificationPopupComponent implements OnInit, OnDestroy {
       }
     );
 
-    // Start polling for new notifications
-    this.popupService.startPolling();
+    // Listen for new notifications
+    this.popupService.startListening();
   }
 
   ngOnDestroy() {
     if (this.subscription) {
       this.subscription.unsubscribe();
     }
-    this.popupService.stopPolling();
+    this.popupService.stopListening();
   }
 
   trackByNotificationId(index: number, notification: PopupNotification): number {
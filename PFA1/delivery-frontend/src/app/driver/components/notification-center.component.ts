@@ -8,7 +8,8 @@ import { MatListModule } from '@angular/material/list';
 import { MatDividerModule } from '@angular/material/divider';
 import { MatTooltipModule } from '@angular/material/tooltip';
 import { ChauffeurService } from '../../core/services/chauffeur.service';
-import { Subscription, interval } from 'rxjs';
+import { NotificationStreamService } from '../../core/services/notification-stream.service';
+import { Subscription } from 'rxjs';
 
 export interface ChauffeurNotification {
   id: number;
@@ -335,33 +336,41 @@ export class NotificationCenterComponent implements OnInit, OnDestroy {
   unreadCount = 0;
   loading = false;
   hasNewLeaveNotifications: any;
-  private pollingSubscription?: Subscription;
-  private readonly POLLING_INTERVAL = 10000; // 10 seconds
+  private streamSubscription?: Subscription;
 
-  constructor(private chauffeurService: ChauffeurService) {}
+  constructor(
+    private chauffeurService: ChauffeurService,
+    private notificationStream: NotificationStreamService
+  ) {}
 
   ngOnInit() {
     this.loadNotifications();
-    this.loadUnreadCount();
-    this.startPolling();
+    this.startListening();
   }
 
   ngOnDestroy() {
-    this.stopPolling();
+    this.stopListening();
   }
 
-  private startPolling() {
-    // Start polling every 10 seconds for real-time updates
-    this.pollingSubscription = interval(this.POLLING_INTERVAL).subscribe(() => {
-      this.loadNotifications();
-      this.loadUnreadCount();
+  private startListening() {
+    const chauffeurId = this.getChauffeurId();
+    if (!chauffeurId) {
+      return;
+    }
+    // The stream sends the unread count on connect and after every change
+    this.streamSubscription = this.notificationStream.chauffeurStream(chauffeurId).subscribe(event => {
+      if (event.type === 'unread-count') {
+        this.unreadCount = event.count;
+      } else {
+        this.loadNotifications();
+      }
     });
   }
 
-  private stopPolling() {
-    if (this.pollingSubscription) {
-      this.pollingSubscription.unsubscribe();
-      this.pollingSubscription = undefined;
+  private stopListening() {
+    if (this.streamSubscription) {
+      this.streamSubscription.unsubscribe();
+      this.streamSubscription = undefined;
     }
   }
 
@@ -415,22 +424,17 @@ export class NotificationCenterComponent implements OnInit, OnDestroy {
   }
 
   markAllAsRead() {
-    // For now, mark each notification individually since we don't have a bulk endpoint
-    if (this.unreadCount > 0) {
-      const unreadNotifications = this.notifications.filter(n => !n.lue);
-      
-      unreadNotifications.forEach(notification => {
-        this.chauffeurService.markChauffeurNotificationAsRead(notification.id).subscribe({
-          next: () => {
-            notification.lue = true;
-          },
-          error: (error: any) => {
-            console.error('Error marking notification as read:', error);
-          }
-        });
+    const chauffeurId = this.getChauffeurId();
+    if (this.unreadCount > 0 && chauffeurId) {
+      this.chauffeurService.markAllChauffeurNotificationsAsRead(chauffeurId).subscribe({
+        next: () => {
+          this.notifications.forEach(notification => notification.lue = true);
+          this.unreadCount = 0;
+        },
+        error: (error: any) => {
+          console.error('Error marking notifications as read:', error);
+        }
       });
-      
-      this.unreadCount = 0;
     }
   }
 
@@ -1,6 +1,7 @@
 import { Injectable } from '@angular/core';
-import { BehaviorSubject, interval, Subscription } from 'rxjs';
+import { BehaviorSubject, Subscription } from 'rxjs';
 import { ChauffeurService } from '../../core/services/chauffeur.service';
+import { NotificationStreamService } from '../../core/services/notification-stream.service';
 
 export interface PopupNotification {
   id: number;
@@ -25,34 +26,41 @@ export interface PopupNotification {
 })
 export class LeaveNotificationPopupService {
   private popupNotifications$ = new BehaviorSubject<PopupNotification[]>([]);
-  private pollingSubscription?: Subscription;
+  private streamSubscription?: Subscription;
   private lastCheckedNotificationId = 0;
-  private readonly POLLING_INTERVAL = 10000; // 10 seconds for faster updates
+  private readonly POPUP_TYPES = ['CONGE_ACCEPTE', 'CONGE_REFUSE', 'MISSION_ASSIGNEE'];
 
-  constructor(private chauffeurService: ChauffeurService) {}
+  constructor(
+    private chauffeurService: ChauffeurService,
+    private notificationStream: NotificationStreamService
+  ) {}
 
   getPopupNotifications() {
     return this.popupNotifications$.asObservable();
   }
 
-  startPolling() {
-    if (this.pollingSubscription) {
-      return; // Already polling
+  startListening() {
+    const chauffeurId = this.getChauffeurId();
+    if (this.streamSubscription || !chauffeurId) {
+      return; // Already listening
     }
 
     // Initial check
     this.checkForNewNotifications();
 
-    // Start polling every 30 seconds
-    this.pollingSubscription = interval(this.POLLING_INTERVAL).subscribe(() => {
-      this.checkForNewNotifications();
+    // Fetch the details (leave dates, etc.) only when a popup-worthy notification is pushed
+    this.streamSubscription = this.notificationStream.chauffeurStream(chauffeurId).subscribe(event => {
+      if ((event.type === 'notification' && this.POPUP_TYPES.includes(event.notification.type))
+          || event.type === 'resync') {
+        this.checkForNewNotifications();
+      }
     });
   }
 
-  stopPolling() {
-    if (this.pollingSubscription) {
-      this.pollingSubscription.unsubscribe();
-      this.pollingSubscription = undefined;
+  stopListening() {
+    if (this.streamSubscription) {
+      this.streamSubscription.unsubscribe();
+      this.streamSubscription = undefined;
     }
   }
 
@@ -67,9 +75,7 @@ export class LeaveNotificationPopupService {
       next: (notifications: any[]) => {
         // Filter for all important notifications that are newer than last checked
         const importantNotifications = notifications.filter(notification => 
-          (notification.type === 'CONGE_ACCEPTE' || 
-           notification.type === 'CONGE_REFUSE' ||
-           notification.type === 'MISSION_ASSIGNEE') &&
+          this.POPUP_TYPES.includes(notification.type) &&
           notification.id > this.lastCheckedNotificationId &&
           !notification.lue // Only show unread notifications
         );
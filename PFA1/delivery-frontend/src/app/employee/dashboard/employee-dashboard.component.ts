@@ -17,8 +17,9 @@ import { MatDialogModule } from '@angular/material/dialog';
 import { MatSnackBarModule } from '@angular/material/snack-bar';
 import { AuthService } from '../../core/services/auth.service';
 import { EmployeeDashboardService, MissionResponseDTO, DashboardStats, Notification } from '../services/employee-dashboard.service';
-import { interval, Subscription } from 'rxjs';
-import { switchMap } from 'rxjs/operators';
+import { Subscription } from 'rxjs';
+import { filter, switchMap } from 'rxjs/operators';
+import { NotificationStreamService } from '../../core/services/notification-stream.service';
 import { NotificationCenterComponent } from '../components/notification-center.component';
 import { ReassignMissionDialogComponent, ReassignMissionData } from '../../admin/components/reassign-mission-dialog.component';
 
@@ -59,15 +60,15 @@ export class EmployeeDashboardComponent implements OnInit, OnDestroy {
   employeeName = '';
   currentEmployeeName: any;
   employeeProfile: any = null;
-  private pollingSubscription?: Subscription;
-  private readonly POLLING_INTERVAL = 5000; // 5 seconds
+  private streamSubscription?: Subscription;
 
   constructor(
     private authService: AuthService,
     private router: Router,
     private dashboardService: EmployeeDashboardService,
     private dialog: MatDialog,
-    private snackBar: MatSnackBar
+    private snackBar: MatSnackBar,
+    private notificationStream: NotificationStreamService
   ) {}
 
   ngOnInit(): void {
@@ -100,19 +101,23 @@ export class EmployeeDashboardComponent implements OnInit, OnDestroy {
     }
     
     this.loadDashboardData();
-    this.startRealTimePolling();
+    this.startRealTimeUpdates(currentUser?.employeId);
   }
 
   ngOnDestroy(): void {
-    if (this.pollingSubscription) {
-      this.pollingSubscription.unsubscribe();
+    if (this.streamSubscription) {
+      this.streamSubscription.unsubscribe();
     }
   }
 
-  private startRealTimePolling(): void {
-    // Start polling for mission status updates every 5 seconds
-    this.pollingSubscription = interval(this.POLLING_INTERVAL)
+  private startRealTimeUpdates(employeId?: number): void {
+    if (!employeId) {
+      return;
+    }
+    // Mission status changes reach the employee as notifications: reload only when one is pushed
+    this.streamSubscription = this.notificationStream.employeeStream(employeId)
       .pipe(
+        filter(event => event.type !== 'unread-count'),
         switchMap(() => this.dashboardService.getMissionsWithProblems())
       )
       .subscribe({
@@ -126,7 +131,7 @@ export class EmployeeDashboardComponent implements OnInit, OnDestroy {
           }
         },
         error: (error) => {
-          console.error('Error during real-time polling:', error);
+          console.error('Error during real-time update:', error);
         }
       });
   }